@@ -14,6 +14,10 @@
  * limitations under the License.
  */
 
+import controller.TaskManager;
+import dao.AccessRulesCache;
+import dao.BackupWriter;
+import dao.HttpClientFactory;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -25,6 +29,7 @@ import org.apache.logging.log4j.Logger;
 
 import java.awt.Taskbar;
 import java.awt.Toolkit;
+import java.time.Duration;
 
 /**
  * Start Application (GUI)
@@ -94,12 +99,19 @@ public class StartApp extends Application {
         stage.setMaximized(true);
 
         stage.show();
+
+        AccessRulesCache.getInstance().start();
     }
 
     @Override
     public void stop() throws Exception {
         super.stop();
         log.debug("räume alles auf");
+        AccessRulesCache.getInstance().shutdown();
+        // jobs may still hand backups to the writer
+        TaskManager.shutdownInstance(Duration.ofSeconds(10));
+        BackupWriter.shutdownInstance(Duration.ofSeconds(30));
+        HttpClientFactory.getInstance().shutdown();
     }
 
     private static String toHexString(byte[] bytes) {
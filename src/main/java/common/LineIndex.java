@@ -0,0 +1,393 @@
+/*
+ * Copyright 2018 Karl Kauc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package common;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Line index over a text file, for showing large server responses without loading them as one string.
+ * <p>
+ * Opening the file scans it once for line breaks and for the lines starting a {@code <Fund>} or
+ * {@code <ShareClass>} element (the records). A line is only decoded when it is asked for, and search
+ * works on the bytes of the file. The file is read in pages at absolute positions through its channel and
+ * the last used pages are cached, so an index can be used from several threads. The file is not mapped,
+ * a mapping would keep it locked on Windows until it is garbage collected; {@link #close()} releases it.
+ */
+public class LineIndex implements Closeable {
+
+    /** longer lines are cut, a single huge line would make every view slow */
+    static final int MAX_LINE_BYTES = 8192;
+
+    private static final byte[][] RECORD_TAGS = {
+            "Fund".getBytes(StandardCharsets.US_ASCII),
+            "ShareClass".getBytes(StandardCharsets.US_ASCII)
+    };
+
+    private final Path file;
+    private final Pages buffer;
+    private final int size;
+    private final int[] lineStarts;
+    private final int lineCount;
+    private final int[] records;
+    private final int recordCount;
+
+    private LineIndex(Path file, Pages buffer, int size, int[] lineStarts, int lineCount,
+                      int[] records, int recordCount) {
+        this.file = file;
+        this.buffer = buffer;
+        this.size = size;
+        this.lineStarts = lineStarts;
+        this.lineCount = lineCount;
+        this.records = records;
+        this.recordCount = recordCount;
+    }
+
+    /**
+     * Opens the file and indexes its lines. The index keeps the file open until it is closed.
+     */
+    public static LineIndex open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return index(file, channel);
+        } catch (UncheckedIOException e) {
+            channel.close();
+            throw e.getCause();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static LineIndex index(Path file, FileChannel channel) throws IOException {
+        if (channel.size() > Integer.MAX_VALUE) {
+            throw new IOException("File too large to show: " + file + " (" + channel.size() + " bytes)");
+        }
+        int size = (int) channel.size();
+        Pages buffer = new Pages(channel, size);
+
+        int[] lineStarts = new int[Math.max(16, size / 40)];
+        int lineCount = 0;
+        int[] records = new int[16];
+        int recordCount = 0;
+
+        int start = 0;
+        while (start < size) {
+            if (lineCount == lineStarts.length) {
+                lineStarts = Arrays.copyOf(lineStarts, lineCount * 2);
+            }
+            lineStarts[lineCount] = start;
+            if (isRecordStart(buffer, start, size)) {
+                if (recordCount == records.length) {
+                    records = Arrays.copyOf(records, recordCount * 2);
+                }
+                records[recordCount++] = lineCount;
+            }
+            lineCount++;
+
+            int next = start;
+            while (next < size && buffer.get(next) != '\n') {
+                next++;
+            }
+            start = next + 1;
+        }
+
+        return new LineIndex(file, buffer, size, lineStarts, lineCount, records, recordCount);
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * @return the line without line break, cut after at most {@link #MAX_LINE_BYTES} bytes
+     */
+    public String getLine(int line) {
+        int start = lineStarts[line];
+        int end = lineEnd(line);
+        boolean cut = end - start > MAX_LINE_BYTES;
+        if (cut) {
+            end = start + MAX_LINE_BYTES;
+            // do not split a UTF-8 character, cut before its lead byte
+            while (end > start && (buffer.get(end) & 0xC0) == 0x80) {
+                end--;
+            }
+        }
+
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(start + i);
+        }
+        String text = new String(bytes, StandardCharsets.UTF_8);
+        return cut ? text + " …" : text;
+    }
+
+    /**
+     * @return number of {@code <Fund>} and {@code <ShareClass>} elements
+     */
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * @return the line on which the record starts
+     */
+    public int getRecordLine(int record) {
+        return records[record];
+    }
+
+    /**
+     * Finds the line closing the record starting on {@code startLine}, i.e. the next line with the same
+     * indentation and the matching end tag.
+     * @return the last line of the record
+     */
+    public int getRecordEndLine(int startLine) {
+        int start = lineStarts[startLine];
+        int indent = indentation(start);
+        int tagStart = start + indent + 1;
+        int tagEnd = tagStart;
+        while (tagEnd < size && isNameByte(buffer.get(tagEnd))) {
+            tagEnd++;
+        }
+        int end = lineEnd(startLine);
+        int closingTag = end - (tagEnd - tagStart) - 3;
+        if (end - start >= 2 && buffer.get(end - 1) == '>' && buffer.get(end - 2) == '/'
+                || closingTag > tagStart && closes(closingTag, tagStart, tagEnd)) {
+            // <Fund/> or <Fund>...</Fund> on one line
+            return startLine;
+        }
+
+        for (int line = startLine + 1; line < lineCount; line++) {
+            int lineStart = lineStarts[line];
+            if (indentation(lineStart) == indent && closes(lineStart + indent, tagStart, tagEnd)) {
+                return line;
+            }
+        }
+        return lineCount - 1;
+    }
+
+    /**
+     * Searches the text in the lines from {@code fromLine} on.
+     * @param ignoreCase ignores the case of ASCII letters
+     * @return the first line containing the text, or -1
+     */
+    public int find(String text, int fromLine, boolean ignoreCase) {
+        if (text == null || text.isEmpty() || fromLine >= lineCount) {
+            return -1;
+        }
+        byte[] pattern = text.getBytes(StandardCharsets.UTF_8);
+        if (ignoreCase) {
+            for (int i = 0; i < pattern.length; i++) {
+                pattern[i] = lower(pattern[i]);
+            }
+        }
+
+        int last = size - pattern.length;
+        byte first = pattern[0];
+        for (int pos = lineStarts[Math.max(0, fromLine)]; pos <= last; pos++) {
+            byte b = buffer.get(pos);
+            if ((ignoreCase ? lower(b) : b) != first) {
+                continue;
+            }
+            int i = 1;
+            while (i < pattern.length) {
+                byte c = buffer.get(pos + i);
+                if ((ignoreCase ? lower(c) : c) != pattern[i]) {
+                    break;
+                }
+                i++;
+            }
+            if (i == pattern.length) {
+                return lineOf(pos);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the line containing the byte at this offset
+     */
+    int lineOf(int offset) {
+        int index = Arrays.binarySearch(lineStarts, 0, lineCount, offset);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    /** end of the line without \r\n */
+    private int lineEnd(int line) {
+        int start = lineStarts[line];
+        int end = line + 1 < lineCount ? lineStarts[line + 1] : size;
+        if (end > start && buffer.get(end - 1) == '\n') {
+            end--;
+        }
+        if (end > start && buffer.get(end - 1) == '\r') {
+            end--;
+        }
+        return end;
+    }
+
+    private int indentation(int start) {
+        int pos = start;
+        while (pos < size && (buffer.get(pos) == ' ' || buffer.get(pos) == '\t')) {
+            pos++;
+        }
+        return pos - start;
+    }
+
+    private boolean closes(int pos, int tagStart, int tagEnd) {
+        int length = tagEnd - tagStart;
+        if (pos + length + 2 >= size || buffer.get(pos) != '<' || buffer.get(pos + 1) != '/') {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (buffer.get(pos + 2 + i) != buffer.get(tagStart + i)) {
+                return false;
+            }
+        }
+        return buffer.get(pos + 2 + length) == '>';
+    }
+
+    private static boolean isRecordStart(Pages buffer, int start, int size) {
+        int pos = start;
+        while (pos < size && (buffer.get(pos) == ' ' || buffer.get(pos) == '\t')) {
+            pos++;
+        }
+        if (pos >= size || buffer.get(pos) != '<') {
+            return false;
+        }
+        pos++;
+        for (byte[] tag : RECORD_TAGS) {
+            int end = pos + tag.length;
+            if (end >= size) {
+                continue;
+            }
+            boolean match = true;
+            for (int i = 0; i < tag.length && match; i++) {
+                match = buffer.get(pos + i) == tag[i];
+            }
+            byte after = buffer.get(end);
+            if (match && (after == '>' || after == ' ' || after == '/')) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Closes the file, lines can no longer be read afterwards
+     */
+    @Override
+    public void close() throws IOException {
+        buffer.close();
+    }
+
+    private static boolean isNameByte(byte b) {
+        return b != '>' && b != ' ' && b != '/' && b != '\t' && b != '\r' && b != '\n';
+    }
+
+    private static byte lower(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+    }
+
+    /**
+     * Pages of the file read at absolute positions, the last used ones are kept. Reading a line or
+     * scanning the file mostly stays on one page, which is checked without locking.
+     */
+    private static final class Pages implements Closeable {
+        private static final int PAGE_SIZE = 64 * 1024;
+        private static final int CACHED_PAGES = 16;
+
+        private final FileChannel channel;
+        private final int size;
+        private final Map<Integer, Page> cache = new LinkedHashMap<>(CACHED_PAGES, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Page> eldest) {
+                return size() > CACHED_PAGES;
+            }
+        };
+        private volatile Page last;
+
+        private Pages(FileChannel channel, int size) {
+            this.channel = channel;
+            this.size = size;
+        }
+
+        byte get(int pos) {
+            int number = pos / PAGE_SIZE;
+            Page page = last;
+            if (page == null || page.number != number) {
+                page = load(number);
+                last = page;
+            }
+            return page.bytes[pos - page.start];
+        }
+
+        private Page load(int number) {
+            synchronized (cache) {
+                Page page = cache.get(number);
+                if (page == null) {
+                    page = new Page(number, read(number * PAGE_SIZE, Math.min(PAGE_SIZE, size - number * PAGE_SIZE)));
+                    cache.put(number, page);
+                }
+                return page;
+            }
+        }
+
+        private byte[] read(int start, int length) {
+            ByteBuffer bytes = ByteBuffer.allocate(length);
+            try {
+                while (bytes.hasRemaining()) {
+                    if (channel.read(bytes, start + bytes.position()) < 0) {
+                        throw new EOFException("file shorter than when it was indexed");
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return bytes.array();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    private static final class Page {
+        private final int number;
+        private final int start;
+        private final byte[] bytes;
+
+        private Page(int number, byte[] bytes) {
+            this.number = number;
+            this.start = number * Pages.PAGE_SIZE;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -17,88 +17,104 @@ package common;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.w3c.dom.Document;
-import org.w3c.dom.NodeList;
-
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathFactory;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 public class XMLHelper {
     private static final Logger log = LogManager.getLogger(XMLHelper.class);
 
+    private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+
     public enum FileTypes {
         OFI,
         ACCESS_RIGHTS,
         FUND_DATA
     }
 
-    public static FileTypes getFileType(String fileData) {
-        FileTypes detectedType = null;
-        try {
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            DocumentBuilder builder = factory.newDocumentBuilder();
-            Document doc = builder.parse(new ByteArrayInputStream(fileData.getBytes(StandardCharsets.UTF_8)));
-
-            // First, check for the specific OFI case
-            XPath xpath = XPathFactory.newInstance().newXPath();
-            String expression = "//Funds/Fund/CountrySpecificData/AT/OeNB/Meldungstyp";
-            NodeList nodes = (NodeList) xpath.evaluate(expression, doc, XPathConstants.NODESET);
-
-            if (nodes.getLength() > 0) {
-                String meldungstyp = nodes.item(0).getTextContent();
-                if ("OFI".equals(meldungstyp)) {
-                    log.debug("OFI fund file detected by Meldungstyp.");
-                    detectedType = FileTypes.OFI;
-                }
-            }
+    /**
+     * Shared StAX factory with DTDs and external entities disabled. Creating readers from it is thread-safe.
+     */
+    public static XMLInputFactory getInputFactory() {
+        return INPUT_FACTORY;
+    }
 
-            // If not OFI, check the root element for other types
-            if (detectedType == null) {
-                String rootElement = doc.getDocumentElement().getTagName();
-                log.debug("XML root element is <{}>", rootElement);
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
 
-                if (rootElement.contains("AccessRules")) {
-                    detectedType = FileTypes.ACCESS_RIGHTS;
-                } else if (rootElement.contains("Funds")) {
-                    // This is the default for fund data that is not OFI
-                    detectedType = FileTypes.FUND_DATA;
-                }
+    /**
+     * Element path of the report type, {@code //Funds/Fund/CountrySpecificData/AT/OeNB/Meldungstyp}
+     */
+    private static final String[] MELDUNGSTYP_PATH = {"Funds", "Fund", "CountrySpecificData", "AT", "OeNB", "Meldungstyp"};
+
+    /**
+     * What one pass over a file found out about it
+     */
+    static final class Scan {
+        private String rootElement;
+        private String meldungstyp;
+        private String documentId;
+
+        FileTypes getFileType() {
+            if ("OFI".equals(meldungstyp)) {
+                log.debug("OFI fund file detected by Meldungstyp.");
+                return FileTypes.OFI;
+            }
+
+            log.debug("XML root element is <{}>", rootElement);
+            if (rootElement != null && rootElement.contains("AccessRules")) {
+                return FileTypes.ACCESS_RIGHTS;
+            } else if (rootElement != null && rootElement.contains("Funds")) {
+                // This is the default for fund data that is not OFI
+                return FileTypes.FUND_DATA;
             }
+
+            // If we reach here, the file type is unknown.
+            throw new IllegalArgumentException("Unknown XML file type");
+        }
+
+        String getRootElement() {
+            return rootElement;
+        }
+
+        String getDocumentId() {
+            return documentId;
+        }
+    }
+
+    public static FileTypes getFileType(String fileData) {
+        return getFileType(fileData.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static FileTypes getFileType(byte[] content) {
+        Scan scan;
+        try {
+            scan = scan(new ByteArrayInputStream(content), false);
         } catch (Exception e) {
             log.error("Error parsing XML to determine file type", e);
             // Re-throw as a runtime exception to signal a failure in processing
             throw new RuntimeException("Failed to determine XML file type", e);
         }
-
-        if (detectedType != null) {
-            return detectedType;
-        }
-
-        // If we reach here, the file type is unknown.
-        throw new IllegalArgumentException("Unknown XML file type");
+        return scan.getFileType();
     }
 
     public static boolean isOfiFile(String fileData) {
         try {
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            DocumentBuilder builder = factory.newDocumentBuilder();
-            Document doc = builder.parse(new ByteArrayInputStream(fileData.getBytes(StandardCharsets.UTF_8)));
-
-            XPath xpath = XPathFactory.newInstance().newXPath();
-            String expression = "//Funds/Fund/CountrySpecificData/AT/OeNB/Meldungstyp";
-            NodeList nodes = (NodeList) xpath.evaluate(expression, doc, XPathConstants.NODESET);
-
-            if (nodes.getLength() > 0) {
-                String meldungstyp = nodes.item(0).getTextContent();
-                if ("OFI".equals(meldungstyp)) {
-                    log.debug("Ofi Fonds gefunden");
-                    return true;
-                }
+            Scan scan = scan(new ByteArrayInputStream(fileData.getBytes(StandardCharsets.UTF_8)), false);
+            if ("OFI".equals(scan.meldungstyp)) {
+                log.debug("Ofi Fonds gefunden");
+                return true;
             }
             log.debug("KEIN Ofi Fonds gefunden");
             return false;
@@ -108,6 +124,71 @@ public class XMLHelper {
         }
     }
 
+    /**
+     * Reads the file up to the first Meldungstyp and, if wanted, the first UniqueDocumentID. Only files
+     * without Meldungstyp are read to the end.
+     */
+    static Scan scan(InputStream in, boolean withDocumentId) throws XMLStreamException {
+        Scan scan = new Scan();
+        boolean meldungstypSeen = false;
+        String[] path = new String[16];
+        int depth = 0;
+
+        XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(in);
+        try {
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.END_ELEMENT) {
+                    depth--;
+                    continue;
+                }
+                if (event != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+
+                String prefix = reader.getPrefix();
+                String name = prefix == null || prefix.isEmpty() ? reader.getLocalName() : prefix + ":" + reader.getLocalName();
+                if (depth == path.length) {
+                    path = Arrays.copyOf(path, depth * 2);
+                }
+                path[depth++] = name;
+
+                if (scan.rootElement == null) {
+                    scan.rootElement = name;
+                }
+
+                if (withDocumentId && scan.documentId == null && "UniqueDocumentID".equals(reader.getLocalName())) {
+                    String id = reader.getElementText().trim();
+                    depth--;
+                    scan.documentId = id.isEmpty() ? null : id;
+                } else if (!meldungstypSeen && endsWith(path, depth, MELDUNGSTYP_PATH)) {
+                    scan.meldungstyp = reader.getElementText();
+                    depth--;
+                    meldungstypSeen = true;
+                }
+
+                if (meldungstypSeen && (!withDocumentId || scan.documentId != null)) {
+                    break;
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return scan;
+    }
+
+    private static boolean endsWith(String[] path, int depth, String[] suffix) {
+        if (depth < suffix.length) {
+            return false;
+        }
+        for (int i = 0; i < suffix.length; i++) {
+            if (!suffix[i].equals(path[depth - suffix.length + i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public static boolean isOfiResponseOk(String fileData) {
         return true;
     }
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2018 Karl Kauc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package common;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * A data file read once for an upload: its content, file type and UniqueDocumentID.
+ * <p>
+ * The type and ID come from a single StAX pass over the content, so classification,
+ * duplicate check, upload and backup all work on the same bytes.
+ */
+public final class XmlFileInfo {
+    private final File file;
+    private final byte[] content;
+    private final XMLHelper.FileTypes fileType;
+    private final String rootElement;
+    private final String documentId;
+
+    private XmlFileInfo(File file, byte[] content, XMLHelper.FileTypes fileType, String rootElement, String documentId) {
+        this.file = file;
+        this.content = content;
+        this.fileType = fileType;
+        this.rootElement = rootElement;
+        this.documentId = documentId;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the file is no fund data, OFI or access rule file
+     * @throws RuntimeException if the file is no well-formed XML
+     */
+    public static XmlFileInfo read(File file) throws IOException {
+        return of(file, Files.readAllBytes(file.toPath()));
+    }
+
+    /**
+     * @param file the file, used for its name
+     * @param content the content of the file
+     */
+    public static XmlFileInfo of(File file, byte[] content) {
+        XMLHelper.Scan scan;
+        try {
+            scan = XMLHelper.scan(new ByteArrayInputStream(content), true);
+        } catch (XMLStreamException e) {
+            throw new RuntimeException("Failed to determine XML file type of " + file.getName(), e);
+        }
+        return new XmlFileInfo(file, content, scan.getFileType(), scan.getRootElement(), scan.getDocumentId());
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public byte[] getContent() {
+        return content;
+    }
+
+    public XMLHelper.FileTypes getFileType() {
+        return fileType;
+    }
+
+    public String getRootElement() {
+        return rootElement;
+    }
+
+    /**
+     * @return the UniqueDocumentID or null if the file has none
+     */
+    public String getDocumentId() {
+        return documentId;
+    }
+}
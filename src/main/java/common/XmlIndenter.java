@@ -0,0 +1,121 @@
+/*
+ * Copyright 2018 Karl Kauc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package common;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.XMLEvent;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Streaming pretty printer for XML shown to the user. Backups are stored as received, the indentation is
+ * only added for display. Whitespace between elements is replaced by a line break and two spaces per level,
+ * text content is kept as it is.
+ */
+public class XmlIndenter {
+    private static final Logger log = LogManager.getLogger(XmlIndenter.class);
+
+    private static final String INDENT = "  ";
+    private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+    private static final XMLEventFactory EVENT_FACTORY = XMLEventFactory.newInstance();
+
+    /**
+     * The indented XML, or the text unchanged if it is not XML (e.g. an "ERROR: ..." reply of the server)
+     */
+    public static String indent(String xml) {
+        if (xml == null || !xml.stripLeading().startsWith("<")) {
+            return xml;
+        }
+        StringWriter out = new StringWriter(xml.length() + xml.length() / 4);
+        try {
+            indent(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), out);
+            return out.toString();
+        } catch (XMLStreamException e) {
+            log.debug("XML kann nicht formatiert werden: " + e.getMessage());
+            return xml;
+        }
+    }
+
+    /**
+     * Reads the XML event by event and writes it indented to {@code out}
+     */
+    public static void indent(InputStream in, Writer out) throws XMLStreamException {
+        XMLEventReader reader = XMLHelper.getInputFactory().createXMLEventReader(in);
+        XMLEventWriter writer = OUTPUT_FACTORY.createXMLEventWriter(out);
+        // per open element: does it contain child elements, then its end tag goes onto a new line
+        Deque<Boolean> hasChildren = new ArrayDeque<>();
+        try {
+            while (reader.hasNext()) {
+                XMLEvent event = reader.nextEvent();
+                switch (event.getEventType()) {
+                    case XMLEvent.START_ELEMENT:
+                        if (!hasChildren.isEmpty()) {
+                            hasChildren.pop();
+                            hasChildren.push(true);
+                        }
+                        newLine(writer, hasChildren.size());
+                        writer.add(event);
+                        hasChildren.push(false);
+                        break;
+                    case XMLEvent.END_ELEMENT:
+                        if (hasChildren.pop()) {
+                            newLine(writer, hasChildren.size());
+                        }
+                        writer.add(event);
+                        break;
+                    case XMLEvent.CHARACTERS:
+                        if (!event.asCharacters().getData().isBlank()) {
+                            writer.add(event);
+                        }
+                        break;
+                    case XMLEvent.SPACE:
+                        break;
+                    case XMLEvent.COMMENT:
+                    case XMLEvent.PROCESSING_INSTRUCTION:
+                        newLine(writer, hasChildren.size());
+                        writer.add(event);
+                        break;
+                    case XMLEvent.END_DOCUMENT:
+                        writer.add(EVENT_FACTORY.createCharacters("\n"));
+                        writer.add(event);
+                        break;
+                    default:
+                        writer.add(event);
+                }
+            }
+            writer.flush();
+        } finally {
+            reader.close();
+            writer.close();
+        }
+    }
+
+    private static void newLine(XMLEventWriter writer, int depth) throws XMLStreamException {
+        writer.add(EVENT_FACTORY.createCharacters("\n" + INDENT.repeat(depth)));
+    }
+}
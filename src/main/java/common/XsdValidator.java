@@ -0,0 +1,156 @@
+/*
+ * Copyright 2018 Karl Kauc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package common;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+
+import javax.xml.XMLConstants;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import javax.xml.validation.Validator;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Checks files against the XSDs in {@code /xsd} before they are uploaded, so broken files are rejected
+ * without a round trip to the FDP server.
+ * <p>
+ * Every schema is compiled once and shared; {@link Schema} is thread-safe. A {@link Validator} is not,
+ * so every thread keeps its own per schema. Files are validated as stream and never built into a DOM.
+ * <p>
+ * Only access rule files are checked. Fund data and OFI files (FundsXML4) are skipped on purpose:
+ * no FundsXML4 schema ships with the client, and the FDP server checks them against the schema
+ * versions it accepts, which a bundled copy would get out of step with.
+ */
+public class XsdValidator {
+    private static final Logger log = LogManager.getLogger(XsdValidator.class);
+
+    /** validation goes on after an error, but only this many are reported */
+    static final int MAX_ERRORS = 10;
+
+    /** root element -> XSD in /xsd */
+    private static final Map<String, String> SCHEMAS = Map.of(
+            "FundsXML_AccessRules", "FundsXML_AccessRules_2.3.0.xsd");
+
+    private static final Map<String, Schema> COMPILED = new ConcurrentHashMap<>();
+    private static final ThreadLocal<Map<String, Validator>> VALIDATORS = ThreadLocal.withInitial(HashMap::new);
+
+    private XsdValidator() {
+    }
+
+    /**
+     * @return name of the XSD that files with this root element must match, or null if there is none
+     */
+    public static String getSchemaName(String rootElement) {
+        return rootElement != null ? SCHEMAS.get(rootElement) : null;
+    }
+
+    /**
+     * Validates the bytes that are uploaded, so the file is not read a second time.
+     * @return the schema errors of the file, empty if it is valid or there is no schema for it
+     */
+    public static List<String> validate(XmlFileInfo fileInfo) throws IOException {
+        return validate(fileInfo.getRootElement(), new ByteArrayInputStream(fileInfo.getContent()));
+    }
+
+    /**
+     * @param in the XML, read as stream and not closed
+     * @return the schema errors, empty if the XML is valid or there is no schema for the root element
+     */
+    public static List<String> validate(String rootElement, InputStream in) throws IOException {
+        String schemaName = getSchemaName(rootElement);
+        if (schemaName == null) {
+            log.debug("Kein XSD für {}, nicht validiert", rootElement);
+            return List.of();
+        }
+
+        Validator validator = VALIDATORS.get().computeIfAbsent(schemaName, name -> getSchema(name).newValidator());
+        validator.reset();
+        Errors errors = new Errors();
+        validator.setErrorHandler(errors);
+
+        try {
+            validator.validate(new StreamSource(in));
+        } catch (SAXException e) {
+            // fatal error, already collected by the error handler
+        } finally {
+            validator.setErrorHandler(null);
+        }
+
+        if (!errors.messages.isEmpty()) {
+            log.info("XML does not match {}: {}", schemaName, errors.messages.get(0));
+        }
+        return errors.messages;
+    }
+
+    private static Schema getSchema(String schemaName) {
+        return COMPILED.computeIfAbsent(schemaName, name -> {
+            URL url = XsdValidator.class.getResource("/xsd/" + name);
+            if (url == null) {
+                throw new IllegalStateException("XSD not found: " + name);
+            }
+            try {
+                SchemaFactory factory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+                factory.setProperty(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+                factory.setProperty(XMLConstants.ACCESS_EXTERNAL_SCHEMA, "");
+                Schema schema = factory.newSchema(url);
+                log.debug("XSD {} kompiliert", name);
+                return schema;
+            } catch (SAXException e) {
+                throw new IllegalStateException("Cannot compile XSD " + name, e);
+            }
+        });
+    }
+
+    private static final class Errors implements ErrorHandler {
+        private final List<String> messages = new ArrayList<>();
+
+        @Override
+        public void warning(SAXParseException exception) {
+            log.debug("XSD warning: {}", exception.getMessage());
+        }
+
+        @Override
+        public void error(SAXParseException exception) {
+            add(exception);
+        }
+
+        @Override
+        public void fatalError(SAXParseException exception) throws SAXException {
+            add(exception);
+            throw exception;
+        }
+
+        private void add(SAXParseException exception) {
+            if (messages.size() < MAX_ERRORS) {
+                messages.add("line " + exception.getLineNumber() + ", column " + exception.getColumnNumber()
+                        + ": " + exception.getMessage());
+            }
+        }
+    }
+}
@@ -17,7 +17,7 @@ package controller;
 
 import javafx.scene.control.Button;
 import dao.AccesRights;
-import dao.WriteXLS;
+import dao.AccessRulesCache;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
@@ -86,8 +86,12 @@ public class AccessRightGrant implements Initializable {
     void exportToExcel() {
         final String fileName = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy_MM_dd_H_m_s")) + "_accessRulesGranted.xlsx";
         log.debug("speichere alle ab [" + fileName + "].");
-        WriteXLS.writeAccessRights(fileName, accessRule);
-        statusMessage.setText("Alles gespeichert!");
+        if (accessRule == null || accessRule.isEmpty()) {
+            statusMessage.setText("Keine Daten zum Speichern");
+            return;
+        }
+
+        TableExportTask.startAccessRights(exportToExcel, statusMessage, fileName, accessRule);
     }
 
     @Override
@@ -469,6 +473,7 @@ public class AccessRightGrant implements Initializable {
         root.getChildren().clear();
 
         // Reload from server/file
+        AccessRulesCache.getInstance().refresh(AccessRulesCache.Kind.GIVEN);
         accessRule = ar.getAccessRightsGivenFromOEKB();
 
         if (accessRule == null || accessRule.isEmpty()) {
@@ -18,7 +18,6 @@ package controller;
 import javafx.scene.control.Button;
 import javafx.scene.control.TextField;
 import dao.AccesRights;
-import dao.WriteXLS;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.control.Label;
@@ -70,8 +69,12 @@ public class AccessRightsReceived implements Initializable {
         final String fileName = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy_MM_dd_H_m_s")) + "_accessRulesReceived.xlsx";
         log.debug("speichere alles nach Excel [" + fileName + "].");
 
-        WriteXLS.writeAccessRights(fileName, accessRule);
-        statusMessage.setText("Gespeichert");
+        if (accessRule == null || accessRule.isEmpty()) {
+            statusMessage.setText("Keine Daten zum Speichern");
+            return;
+        }
+
+        TableExportTask.startAccessRights(exportToExcel, statusMessage, fileName, accessRule);
     }
 
     @FXML
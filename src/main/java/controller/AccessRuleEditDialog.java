@@ -16,6 +16,7 @@
 package controller;
 
 import dao.AccesRights;
+import dao.FundSearchIndex;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -204,6 +205,13 @@ public class AccessRuleEditDialog implements Initializable {
 
         shareclassIsinColumn.setCellValueFactory(cellData -> new javafx.beans.property.SimpleStringProperty(cellData.getValue()));
         shareclassIsinTableView.setItems(shareclassIsinList);
+
+        // Type-ahead from the ISIN/LEI master data
+        FundSuggestions.prepare();
+        FundSuggestions.attach(newLeiField, FundSearchIndex.Field.LEI, this::handleAddLei);
+        FundSuggestions.attach(newOenbIdField, FundSearchIndex.Field.OENB_ID, this::handleAddOenbId);
+        FundSuggestions.attach(newSegmentIsinField, FundSearchIndex.Field.ISIN, this::handleAddSegmentIsin);
+        FundSuggestions.attach(newShareclassIsinField, FundSearchIndex.Field.ISIN, this::handleAddShareclassIsin);
     }
 
     /**
@@ -565,8 +573,8 @@ public class AccessRuleEditDialog implements Initializable {
             saveButton.setDisable(true);
             cancelButton.setDisable(true);
 
-            // Run upload in background thread
-            new Thread(() -> {
+            // Run upload in background, without timeout: stopping between DELETE and IMPORT would lose the rule
+            TaskManager.ManagedTask<Void> upload = TaskManager.getInstance().execute("Access rule upload", null, false, task -> {
                 try {
                     log.info("Starting save workflow for rule: {} (New: {}, FileSystem Mode: {})",
                             accessRule.getId(), isNewRule, isFileSystemMode);
@@ -650,7 +658,12 @@ public class AccessRuleEditDialog implements Initializable {
                         cancelButton.setDisable(false);
                     });
                 }
-            }).start();
+            });
+            // only when the job could not be started
+            upload.setOnCancelled(event -> {
+                saveButton.setDisable(false);
+                cancelButton.setDisable(false);
+            });
         }
     }
 
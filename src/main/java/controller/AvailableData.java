@@ -25,19 +25,16 @@ import javafx.scene.control.DatePicker;
 import javafx.scene.control.Button;
 import javafx.scene.control.CheckBox;
 import javafx.scene.control.ComboBox;
-import javafx.scene.control.TextArea;
 import javafx.scene.control.TextField;
 import javafx.scene.control.Label;
 import javafx.scene.control.Button;
 import javafx.scene.control.CheckBox;
 import javafx.scene.control.ComboBox;
-import javafx.scene.control.TextArea;
 import javafx.scene.control.TextField;
 import javafx.scene.control.ProgressIndicator;
 import javafx.scene.control.Button;
 import javafx.scene.control.CheckBox;
 import javafx.scene.control.ComboBox;
-import javafx.scene.control.TextArea;
 import javafx.scene.control.TextField;
 import model.ApplicationSettings;
 import model.DownloadParameters;
@@ -45,6 +42,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.net.URL;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
@@ -76,7 +74,7 @@ public class AvailableData implements Initializable {
     private ProgressIndicator progressIndicator;
 
     @FXML
-    private TextArea resultTextArea;
+    private ResultViewer resultViewer;
 
     @FXML
     private Label statusLabel;
@@ -108,12 +106,12 @@ public class AvailableData implements Initializable {
 
     @FXML
     private void download() {
-        resultTextArea.clear();
+        resultViewer.clear();
         statusLabel.setText("Querying available data...");
         progressIndicator.setVisible(true);
         downloadButton.setDisable(true);
 
-        new Thread(() -> {
+        TaskManager.getInstance().execute("Available data download", task -> {
             try {
                 LocalDate contentDate = contentDatePicker.getValue();
                 LocalDateTime uploadTimeFrom = null;
@@ -166,7 +164,7 @@ public class AvailableData implements Initializable {
                 ApplicationSettings settings = ApplicationSettings.getInstance();
                 if (settings.isFileSystem()) {
                     Platform.runLater(() -> {
-                        resultTextArea.setText("⚠️ OFFLINE MODE\n\nThis feature is not available in File System Mode.\n\nTo use this feature:\n1. Go to Settings\n2. Uncheck 'Use File System Mode (Mock XML Data)'\n3. Make sure you have valid OeKB credentials configured");
+                        resultViewer.setText("⚠️ OFFLINE MODE\n\nThis feature is not available in File System Mode.\n\nTo use this feature:\n1. Go to Settings\n2. Uncheck 'Use File System Mode (Mock XML Data)'\n3. Make sure you have valid OeKB credentials configured");
                         statusLabel.setText("Feature not available in offline mode");
                         progressIndicator.setVisible(false);
                         downloadButton.setDisable(false);
@@ -174,10 +172,10 @@ public class AvailableData implements Initializable {
                     return;
                 }
 
-                String result = new OeKBHTTP().downloadAvailableData(contentDate, uploadTimeFrom, uploadTimeTo, fdpContent, params);
+                Path result = new OeKBHTTP().downloadAvailableDataToFile(contentDate, uploadTimeFrom, uploadTimeTo, fdpContent, params);
 
                 Platform.runLater(() -> {
-                    resultTextArea.setText(result);
+                    resultViewer.showDownload(result);
                     statusLabel.setText("Available data query completed");
                     progressIndicator.setVisible(false);
                     downloadButton.setDisable(false);
@@ -187,12 +185,16 @@ public class AvailableData implements Initializable {
                 log.error("Error during query", e);
                 Platform.runLater(() -> {
                     statusLabel.setText("Error: " + e.getMessage());
-                    resultTextArea.setText("Error occurred:\n" + e.getMessage());
+                    resultViewer.setText("Error occurred:\n" + e.getMessage());
                     progressIndicator.setVisible(false);
                     downloadButton.setDisable(false);
                 });
             }
-        }).start();
+        }).setOnCancelled(event -> {
+            statusLabel.setText("Download cancelled");
+            progressIndicator.setVisible(false);
+            downloadButton.setDisable(false);
+        });
     }
 
     @FXML
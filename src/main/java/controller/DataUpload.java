@@ -15,10 +15,18 @@
  */
 package controller;
 
+import javafx.scene.control.Label;
+import javafx.scene.control.TableCell;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
 import javafx.scene.control.TextArea;
+import javafx.scene.control.cell.PropertyValueFactory;
 import common.XMLHelper;
-import dao.OeKBHTTP;
+import dao.BulkUploader;
+import dao.UploadReplyParser;
 import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.image.Image;
@@ -27,21 +35,17 @@ import javafx.scene.input.DragEvent;
 import javafx.scene.input.Dragboard;
 import javafx.scene.input.TransferMode;
 import javafx.scene.layout.StackPane;
+import model.UploadFileStatus;
+import model.UploadReply;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
-
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.net.URL;
-import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.ResourceBundle;
 
 public class DataUpload implements Initializable {
@@ -53,12 +57,80 @@ public class DataUpload implements Initializable {
     @FXML
     private StackPane dataUpload;
 
+    @FXML
+    private TableView<UploadFileStatus> uploadTable;
+
+    @FXML
+    private Label uploadSummaryLabel;
+
     private ImageView imageView;
 
+    private final ObservableList<UploadFileStatus> uploadStatuses = FXCollections.observableArrayList();
+
     @Override
     public void initialize(URL location, ResourceBundle resources) {
         log.debug("bin im init...");
         dataUploadMessage.clear();
+        setupTable();
+    }
+
+    /**
+     * Setup columns of the per-file status table
+     */
+    private void setupTable() {
+        TableColumn<UploadFileStatus, String> fileCol = new TableColumn<>("File");
+        fileCol.setPrefWidth(260);
+        fileCol.setCellValueFactory(new PropertyValueFactory<>("fileName"));
+
+        TableColumn<UploadFileStatus, XMLHelper.FileTypes> typeCol = new TableColumn<>("Type");
+        typeCol.setPrefWidth(110);
+        typeCol.setCellValueFactory(new PropertyValueFactory<>("fileType"));
+
+        TableColumn<UploadFileStatus, UploadFileStatus.State> stateCol = new TableColumn<>("Status");
+        stateCol.setPrefWidth(100);
+        stateCol.setCellValueFactory(new PropertyValueFactory<>("state"));
+        stateCol.setCellFactory(column -> new TableCell<UploadFileStatus, UploadFileStatus.State>() {
+            @Override
+            protected void updateItem(UploadFileStatus.State item, boolean empty) {
+                super.updateItem(item, empty);
+                if (empty || item == null) {
+                    setText(null);
+                    setStyle("");
+                } else {
+                    setText(item.getDescription());
+                    if (item == UploadFileStatus.State.FAILED) {
+                        setStyle("-fx-text-fill: #d32f2f; -fx-font-weight: bold;");
+                    } else if (item == UploadFileStatus.State.DONE) {
+                        setStyle("-fx-text-fill: #388e3c;");
+                    } else {
+                        setStyle("");
+                    }
+                }
+            }
+        });
+
+        TableColumn<UploadFileStatus, String> overallCol = new TableColumn<>("Reply");
+        overallCol.setPrefWidth(100);
+        overallCol.setCellValueFactory(new PropertyValueFactory<>("overallStatus"));
+
+        TableColumn<UploadFileStatus, Integer> errorCol = new TableColumn<>("Errors");
+        errorCol.setPrefWidth(70);
+        errorCol.setCellValueFactory(new PropertyValueFactory<>("errorCount"));
+
+        TableColumn<UploadFileStatus, String> messageCol = new TableColumn<>("Message");
+        messageCol.setPrefWidth(400);
+        messageCol.setCellValueFactory(new PropertyValueFactory<>("message"));
+
+        uploadTable.getColumns().setAll(List.of(fileCol, typeCol, stateCol, overallCol, errorCol, messageCol));
+        uploadTable.setItems(uploadStatuses);
+        uploadTable.setPlaceholder(new Label("Drop XML files below to upload them"));
+    }
+
+    private void updateSummary() {
+        long done = uploadStatuses.stream().filter(UploadFileStatus::isFinished).count();
+        long failed = uploadStatuses.stream().filter(s -> s.getState() == UploadFileStatus.State.FAILED).count();
+        uploadSummaryLabel.setText(done + " of " + uploadStatuses.size() + " files finished" +
+                (failed > 0 ? ", " + failed + " failed" : ""));
     }
 
     // wenn file auf pane gezogen wird
@@ -86,14 +158,15 @@ public class DataUpload implements Initializable {
 
     /**
      * Analyzes the server response for errors and triggers appropriate next actions.
+     * Works on the reply BulkUploader already parsed, the raw reply is not parsed again.
      * Checks for:
      * - Error responses (e.g., "ID already exists")
-     * - OFI-specific responses
-     * - Access Rights responses
+     * - Access rule responses
      *
-     * @param responseData The XML response from the server
+     * @param status The finished upload with the reply of the server
      */
-    public static void checkForNextActions(String responseData) {
+    public static void checkForNextActions(UploadFileStatus status) {
+        String responseData = status.getReply();
         if (responseData == null || responseData.isEmpty()) {
             log.warn("Empty response from server, no next actions to process");
             return;
@@ -105,58 +178,39 @@ public class DataUpload implements Initializable {
             return;
         }
 
-        try {
-            // Parse XML response
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            // Disable external entities for security
-            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
-            factory.setFeature("http://xml.org/sax/features/external-general-entities", false);
-            factory.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
-
-            DocumentBuilder builder = factory.newDocumentBuilder();
-            Document doc = builder.parse(new ByteArrayInputStream(
-                responseData.getBytes(StandardCharsets.UTF_8)));
-
-            // Check for error elements
-            NodeList errorNodes = doc.getElementsByTagName("Error");
-            if (errorNodes.getLength() > 0) {
-                for (int i = 0; i < errorNodes.getLength(); i++) {
-                    Element error = (Element) errorNodes.item(i);
-                    String errorCode = error.getAttribute("code");
-                    String errorMsg = error.getTextContent();
-
-                    if ("ID_EXISTS".equals(errorCode) || errorMsg.contains("id schon vorhanden")) {
-                        log.warn("Upload failed - ID already exists: {}", errorMsg);
-                    } else {
-                        log.warn("Server error [{}]: {}", errorCode, errorMsg);
-                    }
-                }
-            }
-
-            // Check for OFI-specific response
-            NodeList ofiNodes = doc.getElementsByTagName("OFI_Response");
-            if (ofiNodes.getLength() > 0) {
-                log.info("OFI response detected in server reply");
-                // OFI sum checking is already handled in dataUploadDropped() via XMLHelper.isOfiResponseOk()
-            }
+        UploadReply reply = status.getUploadReply();
+        if (reply == null) {
+            log.error("Server response is no FundsXML_Reply");
+            log.debug("Response content that failed to parse: {}",
+                responseData.length() > 500 ? responseData.substring(0, 500) + "..." : responseData);
+            return;
+        }
 
-            // Check for Access Rights response
-            NodeList arNodes = doc.getElementsByTagName("AccessRuleResponse");
-            if (arNodes.getLength() > 0) {
-                log.info("Access rule response detected in server reply");
-                // Could trigger UI update or notification here if needed
+        // Check for error status infos
+        for (UploadReply.StatusInfo info : reply.getStatusInfos()) {
+            if (info.isError()) {
+                String errorMsg = info.getMessage() != null ? info.getMessage() : "";
+                if (errorMsg.contains("id schon vorhanden")) {
+                    log.warn("Upload failed - ID already exists: {}", errorMsg);
+                } else {
+                    log.warn("Server error [{}]: {}", info.getKategorie(), errorMsg);
+                }
             }
+        }
+        if (reply.isTruncated()) {
+            log.warn("Server reported {} errors, only the first {} are kept", reply.getErrorCount(),
+                    UploadReplyParser.DEFAULT_MAX_ERRORS);
+        }
 
-            // Check for success indicators
-            NodeList successNodes = doc.getElementsByTagName("Success");
-            if (successNodes.getLength() > 0) {
-                log.info("Upload completed successfully");
-            }
+        // Check for Access Rights response
+        if (!reply.getAccessRuleStatuses().isEmpty()) {
+            log.info("Access rule response detected in server reply");
+            // Could trigger UI update or notification here if needed
+        }
 
-        } catch (Exception e) {
-            log.error("Error parsing server response for next actions: {}", e.getMessage());
-            log.debug("Response content that failed to parse: {}",
-                responseData.length() > 500 ? responseData.substring(0, 500) + "..." : responseData);
+        // Check for success indicators
+        if (reply.isSuccessful()) {
+            log.info("Upload completed successfully");
         }
     }
 
@@ -166,45 +220,69 @@ public class DataUpload implements Initializable {
         log.debug("bin in dropped ");
 
         final Dragboard db = e.getDragboard();
-        StringBuilder text = new StringBuilder();
 
+        // Check if in FileSystem mode
+        model.ApplicationSettings settings = model.ApplicationSettings.getInstance();
+        if (settings.isFileSystem()) {
+            dataUploadMessage.setText("⚠️ OFFLINE MODE\n\nThis feature is not available in File System Mode.\n\nTo use this feature:\n1. Go to Settings\n2. Uncheck 'Use File System Mode (Mock XML Data)'\n3. Make sure you have valid OeKB credentials configured");
+            e.setDropCompleted(false);
+            e.consume();
+            return;
+        }
+
+        List<UploadFileStatus> statuses = new ArrayList<>();
         for (File file : db.getFiles()) {
             log.debug("speichere File: " + file);
-            text.append("speichere File: ").append(file).append(System.lineSeparator());
+            statuses.add(new UploadFileStatus(file));
+        }
+        uploadStatuses.setAll(statuses);
+        dataUploadMessage.clear();
+        updateSummary();
 
+        // upload in background, the table is updated whenever a file changes its state
+        TaskManager.getInstance().execute("Data upload", null, task -> {
             try {
-                // Check if in FileSystem mode
-                model.ApplicationSettings settings = model.ApplicationSettings.getInstance();
-                if (settings.isFileSystem()) {
-                    dataUploadMessage.setText("⚠️ OFFLINE MODE\n\nThis feature is not available in File System Mode.\n\nTo use this feature:\n1. Go to Settings\n2. Uncheck 'Use File System Mode (Mock XML Data)'\n3. Make sure you have valid OeKB credentials configured");
-                    e.setDropCompleted(false);
-                    e.consume();
-                    return;
-                }
-
-                String fileContent = new String(java.nio.file.Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
-                XMLHelper.FileTypes fileType = XMLHelper.getFileType(fileContent);
-
-                String responseFile = new OeKBHTTP().uploadDataFile(file);
-                if (fileType == XMLHelper.FileTypes.OFI) {
-                    text.append("OFI File gefunden ").append(System.lineSeparator());
-                    log.debug("OFI FIle.. Summen Checken... ");
-                    boolean t = XMLHelper.isOfiResponseOk(responseFile);
-                    text.append("OFI Summen OK? ").append(t);
-                    log.debug("OFI Summen sind OK?? " + t);
-                }
-                checkForNextActions(responseFile);
+                new BulkUploader().uploadAll(statuses, status -> {
+                    if (status.isFinished() && status.getReply() != null) {
+                        checkForNextActions(status);
+                    }
+                    String logLine = status.isFinished() ? logLine(status) : null;
+                    Platform.runLater(() -> {
+                        if (logLine != null) {
+                            dataUploadMessage.appendText(logLine);
+                        }
+                        uploadTable.refresh();
+                        updateSummary();
+                    });
+                });
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                log.warn("upload interrupted");
             } catch (Exception ex) {
-                log.error("Error processing file", ex);
-                text.append("Error: ").append(ex.getMessage()).append(System.lineSeparator());
+                log.error("Error processing files", ex);
+                Platform.runLater(() -> dataUploadMessage.appendText("Error: " + ex.getMessage() + System.lineSeparator()));
             }
-        }
+        }).setOnCancelled(event -> dataUploadMessage.appendText("Upload cancelled" + System.lineSeparator()));
 
-        dataUploadMessage.setText(text.toString());
         e.setDropCompleted(true);
         e.consume();
     }
 
+    private static String logLine(UploadFileStatus status) {
+        StringBuilder text = new StringBuilder();
+        text.append("speichere File: ").append(status.getFile()).append(System.lineSeparator());
+        if (status.getFileType() == XMLHelper.FileTypes.OFI) {
+            text.append("OFI File gefunden ").append(System.lineSeparator());
+            if (status.getOfiSumsOk() != null) {
+                text.append("OFI Summen OK? ").append(status.getOfiSumsOk()).append(System.lineSeparator());
+            }
+        }
+        if (status.getState() == UploadFileStatus.State.FAILED) {
+            text.append("Error: ").append(status.getMessage()).append(System.lineSeparator());
+        }
+        return text.toString();
+    }
+
     // setDropCompleted can be called only from DRAG_DROPPED handler
 
     @FXML
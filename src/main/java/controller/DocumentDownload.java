@@ -25,19 +25,16 @@ import javafx.scene.control.DatePicker;
 import javafx.scene.control.Button;
 import javafx.scene.control.CheckBox;
 import javafx.scene.control.ComboBox;
-import javafx.scene.control.TextArea;
 import javafx.scene.control.TextField;
 import javafx.scene.control.Label;
 import javafx.scene.control.Button;
 import javafx.scene.control.CheckBox;
 import javafx.scene.control.ComboBox;
-import javafx.scene.control.TextArea;
 import javafx.scene.control.TextField;
 import javafx.scene.control.ProgressIndicator;
 import javafx.scene.control.Button;
 import javafx.scene.control.CheckBox;
 import javafx.scene.control.ComboBox;
-import javafx.scene.control.TextArea;
 import javafx.scene.control.TextField;
 import javafx.stage.FileChooser;
 import model.ApplicationSettings;
@@ -48,6 +45,7 @@ import org.apache.logging.log4j.Logger;
 import java.io.File;
 import java.net.URL;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -86,7 +84,7 @@ public class DocumentDownload implements Initializable {
     private ProgressIndicator progressIndicator;
 
     @FXML
-    private TextArea resultTextArea;
+    private ResultViewer resultViewer;
 
     @FXML
     private Label statusLabel;
@@ -165,12 +163,12 @@ public class DocumentDownload implements Initializable {
 
     @FXML
     private void download() {
-        resultTextArea.clear();
+        resultViewer.clear();
         statusLabel.setText("Downloading documents...");
         progressIndicator.setVisible(true);
         downloadButton.setDisable(true);
 
-        new Thread(() -> {
+        TaskManager.getInstance().execute("Document download", task -> {
             try {
                 DownloadParameters params = new DownloadParameters("DOWNLOAD_DOCUMENTS");
 
@@ -231,7 +229,7 @@ public class DocumentDownload implements Initializable {
                 ApplicationSettings settings = ApplicationSettings.getInstance();
                 if (settings.isFileSystem()) {
                     Platform.runLater(() -> {
-                        resultTextArea.setText("⚠️ OFFLINE MODE\n\nThis feature is not available in File System Mode.\n\nTo use this feature:\n1. Go to Settings\n2. Uncheck 'Use File System Mode (Mock XML Data)'\n3. Make sure you have valid OeKB credentials configured");
+                        resultViewer.setText("⚠️ OFFLINE MODE\n\nThis feature is not available in File System Mode.\n\nTo use this feature:\n1. Go to Settings\n2. Uncheck 'Use File System Mode (Mock XML Data)'\n3. Make sure you have valid OeKB credentials configured");
                         statusLabel.setText("Feature not available in offline mode");
                         progressIndicator.setVisible(false);
                         downloadButton.setDisable(false);
@@ -240,10 +238,10 @@ public class DocumentDownload implements Initializable {
                 }
 
                 log.info("Downloading documents for {} IDs, type: {}", ids.size(), docType);
-                String result = new OeKBHTTP().downloadDocuments(params, docType);
+                Path result = new OeKBHTTP().downloadDocumentsToFile(params, docType);
 
                 Platform.runLater(() -> {
-                    resultTextArea.setText(result);
+                    resultViewer.showDownload(result);
                     statusLabel.setText("Document download completed for " + ids.size() + " identifier(s)");
                     progressIndicator.setVisible(false);
                     downloadButton.setDisable(false);
@@ -253,12 +251,16 @@ public class DocumentDownload implements Initializable {
                 log.error("Error during download", e);
                 Platform.runLater(() -> {
                     statusLabel.setText("Error: " + e.getMessage());
-                    resultTextArea.setText("Error occurred:\n" + e.getMessage());
+                    resultViewer.setText("Error occurred:\n" + e.getMessage());
                     progressIndicator.setVisible(false);
                     downloadButton.setDisable(false);
                 });
             }
-        }).start();
+        }).setOnCancelled(event -> {
+            statusLabel.setText("Download cancelled");
+            progressIndicator.setVisible(false);
+            downloadButton.setDisable(false);
+        });
     }
 
     @FXML
@@ -17,9 +17,8 @@ package controller;
 
 import javafx.scene.control.Button;
 import javafx.scene.control.ComboBox;
-import javafx.scene.control.TextArea;
 import javafx.scene.control.TextField;
-import dao.OeKBHTTP;
+import dao.ChunkedFundDownloader;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.fxml.FXML;
@@ -68,7 +67,7 @@ public class FundDownload implements Initializable {
     private ProgressIndicator progressIndicator;
 
     @FXML
-    private TextArea resultTextArea;
+    private ResultViewer resultViewer;
 
     @FXML
     private Label statusLabel;
@@ -78,6 +77,11 @@ public class FundDownload implements Initializable {
 
     private List<String> idsFromFile;
 
+    private String fileName;
+
+    // IDs that failed in the last download, the next download only repeats those
+    private List<String> retryIds = List.of();
+
     @Override
     public void initialize(URL location, ResourceBundle resources) {
         log.debug("Initialize FundDownload controller");
@@ -98,6 +102,13 @@ public class FundDownload implements Initializable {
 
         progressIndicator.setVisible(false);
         idsFromFile = new ArrayList<>();
+
+        // typing new IDs drops the failed IDs of the last download
+        leiOenIdField.textProperty().addListener((observable, oldValue, newValue) -> {
+            if (!retryIds.isEmpty()) {
+                setRetryIds(List.of());
+            }
+        });
     }
 
     @FXML
@@ -113,7 +124,8 @@ public class FundDownload implements Initializable {
             try {
                 idsFromFile = Files.readAllLines(file.toPath());
                 idsFromFile.removeIf(String::isEmpty); // Remove empty lines
-                fileLabel.setText("File: " + file.getName() + " (" + idsFromFile.size() + " IDs)");
+                fileName = file.getName();
+                setRetryIds(List.of());
                 statusLabel.setText("Loaded " + idsFromFile.size() + " IDs from file");
                 log.info("Loaded {} IDs from file: {}", idsFromFile.size(), file.getName());
             } catch (Exception e) {
@@ -125,63 +137,62 @@ public class FundDownload implements Initializable {
 
     @FXML
     private void download() {
-        resultTextArea.clear();
-        statusLabel.setText("Downloading...");
-        progressIndicator.setVisible(true);
-        downloadButton.setDisable(true);
+        // read the controls here, the download itself runs on a worker thread
+        DownloadParameters params = new DownloadParameters("DOWNLOAD_FUND");
 
-        // Run download in background thread
-        new Thread(() -> {
-            try {
-                DownloadParameters params = new DownloadParameters("DOWNLOAD_FUND");
+        // Set date
+        if (datePicker.getValue() != null) {
+            params.setDate(datePicker.getValue());
+        }
 
-                // Set date
-                if (datePicker.getValue() != null) {
-                    params.setDate(datePicker.getValue());
-                }
+        // Set profile
+        params.setProfile(profileComboBox.getValue());
 
-                // Set profile
-                params.setProfile(profileComboBox.getValue());
+        // Set block size
+        try {
+            int blockSize = Integer.parseInt(blockSizeField.getText());
+            params.setRequestBlockSize(blockSize);
+        } catch (NumberFormatException e) {
+            params.setRequestBlockSize(10); // Default
+        }
 
-                // Set block size
-                try {
-                    int blockSize = Integer.parseInt(blockSizeField.getText());
-                    params.setRequestBlockSize(blockSize);
-                } catch (NumberFormatException e) {
-                    params.setRequestBlockSize(10); // Default
-                }
+        // Get IDs from the failed IDs of the last download, the file or the text field
+        boolean retry = !retryIds.isEmpty();
+        List<String> ids = new ArrayList<>();
+        if (retry) {
+            ids.addAll(retryIds);
+        } else if (!idsFromFile.isEmpty()) {
+            ids.addAll(idsFromFile);
+        } else {
+            String inputText = leiOenIdField.getText().trim();
+            if (!inputText.isEmpty()) {
+                // Support multiple IDs separated by space, comma, or newline
+                String[] idArray = inputText.split("[,\\s]+");
+                ids.addAll(Arrays.asList(idArray));
+            }
+        }
 
-                // Get IDs from text field or file
-                List<String> ids = new ArrayList<>();
-                if (!idsFromFile.isEmpty()) {
-                    ids.addAll(idsFromFile);
-                } else {
-                    String inputText = leiOenIdField.getText().trim();
-                    if (!inputText.isEmpty()) {
-                        // Support multiple IDs separated by space, comma, or newline
-                        String[] idArray = inputText.split("[,\\s]+");
-                        ids.addAll(Arrays.asList(idArray));
-                    }
-                }
+        if (ids.isEmpty()) {
+            statusLabel.setText("Error: No LEI/OeNB-IDs provided");
+            return;
+        }
 
-                if (ids.isEmpty()) {
-                    Platform.runLater(() -> {
-                        statusLabel.setText("Error: No LEI/OeNB-IDs provided");
-                        progressIndicator.setVisible(false);
-                        downloadButton.setDisable(false);
-                    });
-                    return;
-                }
+        params.setLeiOenIds(ids);
 
-                params.setLeiOenIds(ids);
+        resultViewer.clear();
+        statusLabel.setText(retry ? "Retrying " + ids.size() + " failed ID(s)..." : "Downloading...");
+        progressIndicator.setVisible(true);
+        downloadButton.setDisable(true);
 
+        TaskManager.getInstance().execute("Fund download", task -> {
+            try {
                 log.info("Downloading fund data for {} IDs", ids.size());
 
                 // Check if in FileSystem mode
                 ApplicationSettings settings = ApplicationSettings.getInstance();
                 if (settings.isFileSystem()) {
                     Platform.runLater(() -> {
-                        resultTextArea.setText("⚠️ OFFLINE MODE\n\nThis feature is not available in File System Mode.\n\nTo use this feature:\n1. Go to Settings\n2. Uncheck 'Use File System Mode (Mock XML Data)'\n3. Make sure you have valid OeKB credentials configured");
+                        resultViewer.setText("⚠️ OFFLINE MODE\n\nThis feature is not available in File System Mode.\n\nTo use this feature:\n1. Go to Settings\n2. Uncheck 'Use File System Mode (Mock XML Data)'\n3. Make sure you have valid OeKB credentials configured");
                         statusLabel.setText("Feature not available in offline mode");
                         progressIndicator.setVisible(false);
                         downloadButton.setDisable(false);
@@ -189,31 +200,71 @@ public class FundDownload implements Initializable {
                     return;
                 }
 
-                String result = new OeKBHTTP().downloadFund(params);
+                ChunkedFundDownloader.Result result = new ChunkedFundDownloader().download(params,
+                        (finished, total, failed) -> {
+                            String progress = "Downloading... block " + finished + " of " + total +
+                                    (failed > 0 ? " (" + failed + " failed)" : "");
+                            task.progress(finished, total);
+                            task.message(progress);
+                            Platform.runLater(() -> statusLabel.setText(progress));
+                        });
 
                 Platform.runLater(() -> {
-                    resultTextArea.setText(result);
-                    statusLabel.setText("Download completed for " + ids.size() + " fund(s)");
+                    resultViewer.showDownload(result.getFile());
+                    // keep the failed IDs so the next click only repeats those, a finished retry is done
+                    setRetryIds(result.getFailedIds());
+                    if (result.isComplete()) {
+                        statusLabel.setText("Download completed for " + ids.size() + " fund(s)");
+                    } else {
+                        statusLabel.setText("Download completed, " + result.getFailedIds().size() + " of " +
+                                ids.size() + " ID(s) failed - click Download to retry them");
+                    }
                     progressIndicator.setVisible(false);
                     downloadButton.setDisable(false);
                 });
 
+            } catch (InterruptedException e) {
+                // cancelled, the controls are reset by setOnCancelled
+                Thread.currentThread().interrupt();
             } catch (Exception e) {
                 log.error("Error during download", e);
                 Platform.runLater(() -> {
                     statusLabel.setText("Error: " + e.getMessage());
-                    resultTextArea.setText("Error occurred:\n" + e.getMessage());
+                    resultViewer.setText("Error occurred:\n" + e.getMessage());
                     progressIndicator.setVisible(false);
                     downloadButton.setDisable(false);
                 });
             }
-        }).start();
+        }).setOnCancelled(event -> {
+            statusLabel.setText("Download cancelled");
+            progressIndicator.setVisible(false);
+            downloadButton.setDisable(false);
+        });
+    }
+
+    /**
+     * Replaces the IDs the next download repeats and shows them instead of the selected file.
+     * An empty list goes back to the file or the text field.
+     */
+    private void setRetryIds(List<String> failedIds) {
+        retryIds = List.copyOf(failedIds);
+        updateFileLabel();
+    }
+
+    private void updateFileLabel() {
+        if (!retryIds.isEmpty()) {
+            fileLabel.setText("Retry: " + retryIds.size() + " failed IDs");
+        } else if (!idsFromFile.isEmpty()) {
+            fileLabel.setText("File: " + fileName + " (" + idsFromFile.size() + " IDs)");
+        } else {
+            fileLabel.setText("No file selected");
+        }
     }
 
     @FXML
     private void clearFile() {
         idsFromFile.clear();
-        fileLabel.setText("No file selected");
+        setRetryIds(List.of());
         statusLabel.setText("File cleared");
     }
 }
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2024 Karl Kauc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package controller;
+
+import dao.FundEnhancer;
+import dao.FundEnhancerData;
+import dao.FundSearchIndex;
+import javafx.geometry.Side;
+import javafx.scene.control.ContextMenu;
+import javafx.scene.control.MenuItem;
+import javafx.scene.control.TextField;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Type-ahead for ID text fields: while typing, the best matching funds of the ISIN/LEI master data
+ * are offered below the field. Choosing one puts its ID into the field and runs the add action.
+ */
+final class FundSuggestions {
+    private static final int MIN_QUERY_LENGTH = 2;
+    private static final int LIMIT = 10;
+
+    private FundSuggestions() {
+    }
+
+    static void attach(TextField textField, FundSearchIndex.Field idField, Runnable onSelect) {
+        ContextMenu menu = new ContextMenu();
+        menu.setAutoHide(true);
+
+        textField.textProperty().addListener((observable, oldText, text) -> {
+            if (!textField.isFocused() || text == null || text.trim().length() < MIN_QUERY_LENGTH) {
+                menu.hide();
+                return;
+            }
+
+            List<FundEnhancerData> matches = FundEnhancer.getInstance().getIndex().getSearchIndex()
+                    .search(text, LIMIT, idField);
+            if (matches.isEmpty()) {
+                menu.hide();
+                return;
+            }
+
+            List<MenuItem> items = new ArrayList<>(matches.size());
+            for (FundEnhancerData fund : matches) {
+                String id = idField.valueOf(fund);
+                MenuItem item = new MenuItem(id + "   " + fund.getFondsbezeichnung() + " (" + fund.getKAG() + ")");
+                item.setMnemonicParsing(false);
+                item.setOnAction(event -> {
+                    menu.hide();
+                    textField.setText(id);
+                    onSelect.run();
+                });
+                items.add(item);
+            }
+            menu.getItems().setAll(items);
+            if (!menu.isShowing()) {
+                menu.show(textField, Side.BOTTOM, 0, 0);
+            }
+        });
+
+        textField.focusedProperty().addListener((observable, wasFocused, focused) -> {
+            if (!focused) {
+                menu.hide();
+            }
+        });
+    }
+
+    /**
+     * Loads the master data and builds the search index in the background, so the first keystroke
+     * does not wait for it.
+     */
+    static void prepare() {
+        TaskManager.getInstance().execute("Fund search index", task -> FundEnhancer.getInstance().getIndex().getSearchIndex());
+    }
+}
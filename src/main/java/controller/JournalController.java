@@ -16,27 +16,27 @@
 package controller;
 
 import dao.Journal;
-import dao.WriteXLS;
+import dao.TableExport;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
-import javafx.stage.FileChooser;
-import javafx.stage.Stage;
 import model.JournalEntry;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.io.File;
 import java.net.URL;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.ResourceBundle;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 /**
@@ -81,6 +81,10 @@ public class JournalController implements Initializable {
     private ObservableList<JournalEntry> allEntries;
     private ObservableList<JournalEntry> filteredEntries;
 
+    private static final int BATCH_SIZE = 500;
+    private final AtomicInteger loadGeneration = new AtomicInteger();
+    private TaskManager.ManagedTask<Void> loadTask;
+
     @Override
     public void initialize(URL location, ResourceBundle resources) {
         log.debug("Initializing Journal controller");
@@ -90,7 +94,7 @@ public class JournalController implements Initializable {
 
         setupTable();
         setupFilters();
-        loadJournalEntries();
+        loadJournalEntries(false);
     }
 
     /**
@@ -189,49 +193,101 @@ public class JournalController implements Initializable {
     }
 
     /**
-     * Load journal entries from OeKB or filesystem
+     * Load journal entries from OeKB or filesystem.
+     * The journal is parsed in the background and the table is filled block by block while parsing.
+     *
+     * @param refresh ask the server for new entries instead of answering from the local journal store only
      */
-    private void loadJournalEntries() {
+    private void loadJournalEntries(boolean refresh) {
         log.debug("Loading journal entries");
         statusMessage.setText("Loading...");
+        statusMessage.setStyle("");
 
-        try {
-            Journal journalDao = new Journal();
-
-            LocalDateTime timeFrom = null;
-            LocalDateTime timeTo = null;
-
-            if (dateFromPicker.getValue() != null) {
-                timeFrom = LocalDateTime.of(dateFromPicker.getValue(), LocalTime.MIN);
-            }
+        LocalDateTime timeFrom = null;
+        LocalDateTime timeTo = null;
 
-            if (dateToPicker.getValue() != null) {
-                timeTo = LocalDateTime.of(dateToPicker.getValue(), LocalTime.MAX);
-            }
+        if (dateFromPicker.getValue() != null) {
+            timeFrom = LocalDateTime.of(dateFromPicker.getValue(), LocalTime.MIN);
+        }
 
-            String action = "All".equals(actionComboBox.getValue()) ? null : actionComboBox.getValue();
-            String type = "All".equals(typeComboBox.getValue()) ? null : typeComboBox.getValue();
+        if (dateToPicker.getValue() != null) {
+            timeTo = LocalDateTime.of(dateToPicker.getValue(), LocalTime.MAX);
+        }
 
-            List<JournalEntry> entries = journalDao.getJournalEntries(timeFrom, timeTo, action, type, true);
+        String action = "All".equals(actionComboBox.getValue()) ? null : actionComboBox.getValue();
+        String type = "All".equals(typeComboBox.getValue()) ? null : typeComboBox.getValue();
 
-            allEntries.clear();
-            allEntries.addAll(entries);
+        // a newer load makes the blocks of an older one obsolete
+        int generation = loadGeneration.incrementAndGet();
+        if (loadTask != null) {
+            loadTask.cancel(true);
+        }
 
-            filteredEntries.clear();
-            filteredEntries.addAll(entries);
+        allEntries.clear();
+        filteredEntries.clear();
+        journalTable.setItems(filteredEntries);
+        entriesCountLabel.setText("0 entries");
 
-            journalTable.setItems(filteredEntries);
+        LocalDateTime from = timeFrom;
+        LocalDateTime to = timeTo;
+        loadTask = TaskManager.getInstance().execute("Journal", task -> {
+            List<JournalEntry> batch = new ArrayList<>(BATCH_SIZE);
+            try {
+                int count = new Journal().readJournalEntries(from, to, action, type, true, refresh, entry -> {
+                    batch.add(entry);
+                    if (batch.size() >= BATCH_SIZE) {
+                        publishEntries(generation, new ArrayList<>(batch), false);
+                        batch.clear();
+                    }
+                });
+                publishEntries(generation, new ArrayList<>(batch), true);
+                log.debug("Loaded " + count + " journal entries");
+            } catch (Exception e) {
+                log.error("Error loading journal entries", e);
+                Platform.runLater(() -> {
+                    if (generation == loadGeneration.get()) {
+                        statusMessage.setText("Error loading journal");
+                        statusMessage.setStyle("-fx-text-fill: #c8102e;");
+                    }
+                });
+            }
+        });
+        loadTask.setOnCancelled(event -> {
+            if (generation == loadGeneration.get()) {
+                statusMessage.setText("Loading cancelled");
+            }
+        });
+    }
 
-            entriesCountLabel.setText(entries.size() + " entries");
-            statusMessage.setText("Loaded " + entries.size() + " entries");
+    /**
+     * Append a block of parsed entries to the table, respecting the current search text
+     */
+    private void publishEntries(int generation, List<JournalEntry> entries, boolean finished) {
+        Platform.runLater(() -> {
+            if (generation != loadGeneration.get()) {
+                return;
+            }
+            allEntries.addAll(entries);
 
-            log.debug("Loaded " + entries.size() + " journal entries");
+            String searchText = searchField.getText() != null ? searchField.getText().toLowerCase().trim() : "";
+            if (searchText.isEmpty()) {
+                filteredEntries.addAll(entries);
+            } else {
+                filteredEntries.addAll(entries.stream()
+                        .filter(entry -> matchesSearchCriteria(entry, searchText))
+                        .collect(Collectors.toList()));
+            }
 
-        } catch (Exception e) {
-            log.error("Error loading journal entries", e);
-            statusMessage.setText("Error loading journal");
-            statusMessage.setStyle("-fx-text-fill: #c8102e;");
-        }
+            entriesCountLabel.setText(allEntries.size() + " entries");
+            if (finished) {
+                statusMessage.setText("Loaded " + allEntries.size() + " entries");
+                if (!searchText.isEmpty()) {
+                    filterTable();
+                }
+            } else {
+                statusMessage.setText("Loading... " + allEntries.size() + " entries");
+            }
+        });
     }
 
     /**
@@ -240,7 +296,7 @@ public class JournalController implements Initializable {
     @FXML
     void applyFilter() {
         log.debug("Applying filter");
-        loadJournalEntries();
+        loadJournalEntries(false);
     }
 
     /**
@@ -254,7 +310,7 @@ public class JournalController implements Initializable {
         actionComboBox.setValue("All");
         typeComboBox.setValue("All");
         searchField.clear();
-        loadJournalEntries();
+        loadJournalEntries(false);
     }
 
     /**
@@ -263,50 +319,16 @@ public class JournalController implements Initializable {
     @FXML
     void refreshJournal() {
         log.debug("Refreshing journal");
-        loadJournalEntries();
+        loadJournalEntries(true);
     }
 
     /**
-     * Export to Excel
+     * Export to Excel, CSV or compressed CSV in the background
      */
     @FXML
     void exportToExcel() {
-        log.debug("Exporting journal to Excel");
-
-        if (filteredEntries.isEmpty()) {
-            statusMessage.setText("No data to export");
-            return;
-        }
-
-        FileChooser fileChooser = new FileChooser();
-        fileChooser.setTitle("Save Journal Export");
-        fileChooser.setInitialFileName(LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss")) + "_journal.xlsx");
-        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Excel Files", "*.xlsx"));
-
-        // Get the current stage to show the file chooser
-        Stage stage = (Stage) journalTable.getScene().getWindow();
-        File file = fileChooser.showSaveDialog(stage);
-
-        if (file != null) {
-            try {
-                statusMessage.setText("Exporting to " + file.getName() + "...");
-                WriteXLS.writeJournal(file.getAbsolutePath(), filteredEntries);
-                statusMessage.setText("Successfully exported " + filteredEntries.size() + " entries.");
-                log.info("Journal exported successfully to {}", file.getAbsolutePath());
-            } catch (Exception e) {
-                log.error("Failed to export journal to Excel", e);
-                statusMessage.setText("Error during export.");
-                // Optionally, show an error dialog
-                Alert alert = new Alert(Alert.AlertType.ERROR);
-                alert.setTitle("Export Error");
-                alert.setHeaderText("Could not save the Excel file.");
-                alert.setContentText("An error occurred while writing the journal data to the selected file:\n" + e.getMessage());
-                alert.showAndWait();
-            }
-        } else {
-            log.debug("Excel export cancelled by user.");
-            statusMessage.setText("Export cancelled.");
-        }
+        log.debug("Exporting journal");
+        TableExportTask.start(journalTable.getScene().getWindow(), "Journal", filteredEntries, TableExport.JOURNAL, statusMessage);
     }
 
     /**
@@ -15,12 +15,20 @@
  */
 package controller;
 
+import javafx.beans.binding.Bindings;
+import javafx.collections.ListChangeListener;
 import javafx.scene.control.Button;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
+import javafx.geometry.Pos;
 import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.layout.HBox;
 import javafx.scene.layout.Pane;
+import javafx.scene.layout.Priority;
 import model.ApplicationSettings;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -95,6 +103,12 @@ public class MainController implements Initializable {
     @FXML
     private Button btnAbout;
 
+    @FXML
+    private Button runningJobsButton;
+
+    @FXML
+    private ListView<TaskManager.ManagedTask<?>> runningJobsList;
+
     /**
      * Updates the active menu button styling
      */
@@ -434,6 +448,63 @@ public class MainController implements Initializable {
         }
     }
 
+    @FXML
+    private void toggleRunningJobs() {
+        showRunningJobs(!runningJobsList.isVisible());
+    }
+
+    private void showRunningJobs(boolean show) {
+        runningJobsList.setVisible(show);
+        runningJobsList.setManaged(show);
+    }
+
+    private void updateRunningJobs() {
+        int count = runningJobsList.getItems().size();
+        runningJobsButton.setText("Jobs: " + count);
+        if (count == 0) {
+            showRunningJobs(false);
+        }
+    }
+
+    /**
+     * One job of the {@link TaskManager} with its progress and a button to cancel it
+     */
+    private static class JobCell extends ListCell<TaskManager.ManagedTask<?>> {
+        private final Label name = new Label();
+        private final Label message = new Label();
+        private final ProgressBar progress = new ProgressBar();
+        private final Button cancel = new Button("Cancel");
+        private final HBox box = new HBox(10.0, name, progress, message, cancel);
+
+        JobCell() {
+            name.setMinWidth(200.0);
+            progress.setPrefWidth(150.0);
+            message.setMaxWidth(Double.MAX_VALUE);
+            HBox.setHgrow(message, Priority.ALWAYS);
+            box.setAlignment(Pos.CENTER_LEFT);
+        }
+
+        @Override
+        protected void updateItem(TaskManager.ManagedTask<?> task, boolean empty) {
+            super.updateItem(task, empty);
+            progress.progressProperty().unbind();
+            message.textProperty().unbind();
+            cancel.disableProperty().unbind();
+
+            if (empty || task == null) {
+                setGraphic(null);
+                return;
+            }
+            name.setText(task.getName());
+            progress.progressProperty().bind(task.progressProperty());
+            message.textProperty().bind(task.messageProperty());
+            cancel.disableProperty().bind(Bindings.createBooleanBinding(() -> !task.isCancellable() || task.isDone(),
+                    task.stateProperty()));
+            cancel.setOnAction(event -> task.cancel(true));
+            setGraphic(box);
+        }
+    }
+
     public MainController() {
         super();
     }
@@ -450,6 +521,11 @@ public class MainController implements Initializable {
         // Update global status bar
         updateGlobalStatus();
 
+        runningJobsList.setItems(TaskManager.getInstance().getTasks());
+        runningJobsList.setCellFactory(view -> new JobCell());
+        runningJobsList.getItems().addListener((ListChangeListener<TaskManager.ManagedTask<?>>) change -> updateRunningJobs());
+        updateRunningJobs();
+
         // Immer Settings Seite beim Start laden
         changeToSettings();
     }
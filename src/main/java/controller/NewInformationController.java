@@ -16,6 +16,7 @@
 package controller;
 
 import dao.NewInformation;
+import dao.TableExport;
 import javafx.application.Platform;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
@@ -204,7 +205,7 @@ public class NewInformationController implements Initializable {
         log.debug("Loading new information");
         statusLabel.setText("Loading...");
 
-        new Thread(() -> {
+        TaskManager.getInstance().execute("New information", task -> {
             try {
                 LocalDate contentDate = contentDatePicker.getValue();
                 LocalDateTime uploadFrom = uploadFromPicker.getValue() != null ?
@@ -233,7 +234,7 @@ public class NewInformationController implements Initializable {
                     showError("Error loading new information", e.getMessage());
                 });
             }
-        }).start();
+        }).setOnCancelled(event -> statusLabel.setText("Loading cancelled"));
     }
 
     @FXML
@@ -245,6 +246,11 @@ public class NewInformationController implements Initializable {
         statusLabel.setText("");
     }
 
+    @FXML
+    private void exportData() {
+        TableExportTask.start(newInformationTable.getScene().getWindow(), "New Information", filteredEntries, TableExport.NEW_INFORMATION, statusLabel);
+    }
+
     @FXML
     private void clearSearch() {
         searchField.clear();
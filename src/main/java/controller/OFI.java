@@ -27,7 +27,6 @@ import javafx.scene.control.DatePicker;
 import javafx.scene.control.Label;
 import javafx.scene.control.ProgressIndicator;
 import javafx.scene.control.RadioButton;
-import javafx.scene.control.TextArea;
 import javafx.scene.control.TextField;
 import javafx.stage.FileChooser;
 import model.ApplicationSettings;
@@ -38,6 +37,7 @@ import org.apache.logging.log4j.Logger;
 import java.io.File;
 import java.net.URL;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -75,7 +75,7 @@ public class OFI implements Initializable {
     private ProgressIndicator progressAgg;
 
     @FXML
-    private TextArea resultAggTextArea;
+    private ResultViewer resultAggViewer;
 
     // Tab 2: SecBySec
     @FXML
@@ -88,7 +88,7 @@ public class OFI implements Initializable {
     private ProgressIndicator progressSec;
 
     @FXML
-    private TextArea resultSecTextArea;
+    private ResultViewer resultSecViewer;
 
     // Tab 3: Check
     @FXML
@@ -107,7 +107,7 @@ public class OFI implements Initializable {
     private ProgressIndicator progressCheck;
 
     @FXML
-    private TextArea resultCheckTextArea;
+    private ResultViewer resultCheckViewer;
 
     private List<String> oenbIdsFromFile;
 
@@ -163,12 +163,12 @@ public class OFI implements Initializable {
 
     @FXML
     private void downloadAggregierung() {
-        resultAggTextArea.clear();
+        resultAggViewer.clear();
         statusLabel.setText("Downloading OeNB Aggregierung...");
         progressAgg.setVisible(true);
         downloadAggButton.setDisable(true);
 
-        new Thread(() -> {
+        TaskManager.getInstance().execute("OeNB Aggregierung download", task -> {
             try {
                 DownloadParameters params = new DownloadParameters("DOWNLOAD_OENB_AGGREGIERUNG");
                 params.setDate(datePicker.getValue());
@@ -190,7 +190,7 @@ public class OFI implements Initializable {
                 ApplicationSettings settings = ApplicationSettings.getInstance();
                 if (settings.isFileSystem()) {
                     Platform.runLater(() -> {
-                        resultAggTextArea.setText("⚠️ OFFLINE MODE\n\nThis feature is not available in File System Mode.\n\nTo use this feature:\n1. Go to Settings\n2. Uncheck 'Use File System Mode (Mock XML Data)'\n3. Make sure you have valid OeKB credentials configured");
+                        resultAggViewer.setText("⚠️ OFFLINE MODE\n\nThis feature is not available in File System Mode.\n\nTo use this feature:\n1. Go to Settings\n2. Uncheck 'Use File System Mode (Mock XML Data)'\n3. Make sure you have valid OeKB credentials configured");
                         statusLabel.setText("Feature not available in offline mode");
                         progressAgg.setVisible(false);
                         downloadAggButton.setDisable(false);
@@ -199,10 +199,10 @@ public class OFI implements Initializable {
                 }
 
                 log.info("Downloading OeNB Aggregierung for {} IDs", ids.size());
-                String result = new OeKBHTTP().downloadOeNBAggregierung(params);
+                Path result = new OeKBHTTP().downloadOeNBAggregierungToFile(params);
 
                 Platform.runLater(() -> {
-                    resultAggTextArea.setText(result);
+                    resultAggViewer.showDownload(result);
                     statusLabel.setText("Aggregierung download completed for " + ids.size() + " fund(s)");
                     progressAgg.setVisible(false);
                     downloadAggButton.setDisable(false);
@@ -212,22 +212,26 @@ public class OFI implements Initializable {
                 log.error("Error during download", e);
                 Platform.runLater(() -> {
                     statusLabel.setText("Error: " + e.getMessage());
-                    resultAggTextArea.setText("Error occurred:\n" + e.getMessage());
+                    resultAggViewer.setText("Error occurred:\n" + e.getMessage());
                     progressAgg.setVisible(false);
                     downloadAggButton.setDisable(false);
                 });
             }
-        }).start();
+        }).setOnCancelled(event -> {
+            statusLabel.setText("Download cancelled");
+            progressAgg.setVisible(false);
+            downloadAggButton.setDisable(false);
+        });
     }
 
     @FXML
     private void downloadSecBySec() {
-        resultSecTextArea.clear();
+        resultSecViewer.clear();
         statusLabel.setText("Downloading OeNB SecBySec...");
         progressSec.setVisible(true);
         downloadSecButton.setDisable(true);
 
-        new Thread(() -> {
+        TaskManager.getInstance().execute("OeNB SecBySec download", task -> {
             try {
                 DownloadParameters params = new DownloadParameters("DOWNLOAD_OENB_SECBYSEC");
                 params.setDate(datePicker.getValue());
@@ -249,7 +253,7 @@ public class OFI implements Initializable {
                 ApplicationSettings settings = ApplicationSettings.getInstance();
                 if (settings.isFileSystem()) {
                     Platform.runLater(() -> {
-                        resultSecTextArea.setText("⚠️ OFFLINE MODE\n\nThis feature is not available in File System Mode.\n\nTo use this feature:\n1. Go to Settings\n2. Uncheck 'Use File System Mode (Mock XML Data)'\n3. Make sure you have valid OeKB credentials configured");
+                        resultSecViewer.setText("⚠️ OFFLINE MODE\n\nThis feature is not available in File System Mode.\n\nTo use this feature:\n1. Go to Settings\n2. Uncheck 'Use File System Mode (Mock XML Data)'\n3. Make sure you have valid OeKB credentials configured");
                         statusLabel.setText("Feature not available in offline mode");
                         progressSec.setVisible(false);
                         downloadSecButton.setDisable(false);
@@ -258,10 +262,10 @@ public class OFI implements Initializable {
                 }
 
                 log.info("Downloading OeNB SecBySec for {} IDs", ids.size());
-                String result = new OeKBHTTP().downloadOeNBSecBySec(params);
+                Path result = new OeKBHTTP().downloadOeNBSecBySecToFile(params);
 
                 Platform.runLater(() -> {
-                    resultSecTextArea.setText(result);
+                    resultSecViewer.showDownload(result);
                     statusLabel.setText("SecBySec download completed for " + ids.size() + " fund(s)");
                     progressSec.setVisible(false);
                     downloadSecButton.setDisable(false);
@@ -271,22 +275,26 @@ public class OFI implements Initializable {
                 log.error("Error during download", e);
                 Platform.runLater(() -> {
                     statusLabel.setText("Error: " + e.getMessage());
-                    resultSecTextArea.setText("Error occurred:\n" + e.getMessage());
+                    resultSecViewer.setText("Error occurred:\n" + e.getMessage());
                     progressSec.setVisible(false);
                     downloadSecButton.setDisable(false);
                 });
             }
-        }).start();
+        }).setOnCancelled(event -> {
+            statusLabel.setText("Download cancelled");
+            progressSec.setVisible(false);
+            downloadSecButton.setDisable(false);
+        });
     }
 
     @FXML
     private void downloadCheck() {
-        resultCheckTextArea.clear();
+        resultCheckViewer.clear();
         statusLabel.setText("Downloading OeNB Check...");
         progressCheck.setVisible(true);
         downloadCheckButton.setDisable(true);
 
-        new Thread(() -> {
+        TaskManager.getInstance().execute("OeNB check download", task -> {
             try {
                 LocalDate date = datePicker.getValue();
 
@@ -302,7 +310,7 @@ public class OFI implements Initializable {
                 ApplicationSettings settings = ApplicationSettings.getInstance();
                 if (settings.isFileSystem()) {
                     Platform.runLater(() -> {
-                        resultCheckTextArea.setText("⚠️ OFFLINE MODE\n\nThis feature is not available in File System Mode.\n\nTo use this feature:\n1. Go to Settings\n2. Uncheck 'Use File System Mode (Mock XML Data)'\n3. Make sure you have valid OeKB credentials configured");
+                        resultCheckViewer.setText("⚠️ OFFLINE MODE\n\nThis feature is not available in File System Mode.\n\nTo use this feature:\n1. Go to Settings\n2. Uncheck 'Use File System Mode (Mock XML Data)'\n3. Make sure you have valid OeKB credentials configured");
                         statusLabel.setText("Feature not available in offline mode");
                         progressCheck.setVisible(false);
                         downloadCheckButton.setDisable(false);
@@ -311,10 +319,10 @@ public class OFI implements Initializable {
                 }
 
                 log.info("Downloading OeNB Check for date {}", date);
-                String result = new OeKBHTTP().downloadOeNBCheck(date, validFilter);
+                Path result = new OeKBHTTP().downloadOeNBCheckToFile(date, validFilter);
 
                 Platform.runLater(() -> {
-                    resultCheckTextArea.setText(result);
+                    resultCheckViewer.showDownload(result);
                     statusLabel.setText("Check download completed");
                     progressCheck.setVisible(false);
                     downloadCheckButton.setDisable(false);
@@ -324,12 +332,16 @@ public class OFI implements Initializable {
                 log.error("Error during download", e);
                 Platform.runLater(() -> {
                     statusLabel.setText("Error: " + e.getMessage());
-                    resultCheckTextArea.setText("Error occurred:\n" + e.getMessage());
+                    resultCheckViewer.setText("Error occurred:\n" + e.getMessage());
                     progressCheck.setVisible(false);
                     downloadCheckButton.setDisable(false);
                 });
             }
-        }).start();
+        }).setOnCancelled(event -> {
+            statusLabel.setText("Download cancelled");
+            progressCheck.setVisible(false);
+            downloadCheckButton.setDisable(false);
+        });
     }
 
     private List<String> getOeNBIds() {
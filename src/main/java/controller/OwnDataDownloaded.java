@@ -16,6 +16,7 @@
 package controller;
 
 import dao.DownloadedInformation;
+import dao.TableExport;
 import javafx.application.Platform;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
@@ -224,7 +225,7 @@ public class OwnDataDownloaded implements Initializable {
         log.debug("Loading download statistics");
         statusLabel.setText("Loading...");
 
-        new Thread(() -> {
+        TaskManager.getInstance().execute("Download statistics", task -> {
             try {
                 LocalDate dateFrom = dateFromPicker.getValue();
                 LocalDate dateTo = dateToPicker.getValue();
@@ -265,7 +266,7 @@ public class OwnDataDownloaded implements Initializable {
                     showError("Error loading download statistics", e.getMessage());
                 });
             }
-        }).start();
+        }).setOnCancelled(event -> statusLabel.setText("Loading cancelled"));
     }
 
     @FXML
@@ -277,6 +278,11 @@ public class OwnDataDownloaded implements Initializable {
         statusLabel.setText("");
     }
 
+    @FXML
+    private void exportData() {
+        TableExportTask.start(downloadedInfoTable.getScene().getWindow(), "Downloaded Information", filteredEntries, TableExport.DOWNLOADED_INFORMATION, statusLabel);
+    }
+
     @FXML
     private void clearSearch() {
         searchField.clear();
@@ -25,19 +25,16 @@ import javafx.scene.control.DatePicker;
 import javafx.scene.control.Button;
 import javafx.scene.control.CheckBox;
 import javafx.scene.control.ComboBox;
-import javafx.scene.control.TextArea;
 import javafx.scene.control.TextField;
 import javafx.scene.control.Label;
 import javafx.scene.control.Button;
 import javafx.scene.control.CheckBox;
 import javafx.scene.control.ComboBox;
-import javafx.scene.control.TextArea;
 import javafx.scene.control.TextField;
 import javafx.scene.control.ProgressIndicator;
 import javafx.scene.control.Button;
 import javafx.scene.control.CheckBox;
 import javafx.scene.control.ComboBox;
-import javafx.scene.control.TextArea;
 import javafx.scene.control.TextField;
 import javafx.stage.FileChooser;
 import model.ApplicationSettings;
@@ -48,6 +45,7 @@ import org.apache.logging.log4j.Logger;
 import java.io.File;
 import java.net.URL;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -83,7 +81,7 @@ public class RegulatoryReportingDownload implements Initializable {
     private ProgressIndicator progressIndicator;
 
     @FXML
-    private TextArea resultTextArea;
+    private ResultViewer resultViewer;
 
     @FXML
     private Label statusLabel;
@@ -154,12 +152,12 @@ public class RegulatoryReportingDownload implements Initializable {
 
     @FXML
     private void download() {
-        resultTextArea.clear();
+        resultViewer.clear();
         statusLabel.setText("Downloading regulatory reportings...");
         progressIndicator.setVisible(true);
         downloadButton.setDisable(true);
 
-        new Thread(() -> {
+        TaskManager.getInstance().execute("Regulatory reporting download", task -> {
             try {
                 DownloadParameters params = new DownloadParameters("DOWNLOAD_REG_REPORTINGS");
 
@@ -206,7 +204,7 @@ public class RegulatoryReportingDownload implements Initializable {
                 ApplicationSettings settings = ApplicationSettings.getInstance();
                 if (settings.isFileSystem()) {
                     Platform.runLater(() -> {
-                        resultTextArea.setText("⚠️ OFFLINE MODE\n\nThis feature is not available in File System Mode.\n\nTo use this feature:\n1. Go to Settings\n2. Uncheck 'Use File System Mode (Mock XML Data)'\n3. Make sure you have valid OeKB credentials configured");
+                        resultViewer.setText("⚠️ OFFLINE MODE\n\nThis feature is not available in File System Mode.\n\nTo use this feature:\n1. Go to Settings\n2. Uncheck 'Use File System Mode (Mock XML Data)'\n3. Make sure you have valid OeKB credentials configured");
                         statusLabel.setText("Feature not available in offline mode");
                         progressIndicator.setVisible(false);
                         downloadButton.setDisable(false);
@@ -215,10 +213,10 @@ public class RegulatoryReportingDownload implements Initializable {
                 }
 
                 log.info("Downloading regulatory reportings for {} IDs, type: {}", ids.size(), reportingType);
-                String result = new OeKBHTTP().downloadRegulatoryReportings(params, reportingType);
+                Path result = new OeKBHTTP().downloadRegulatoryReportingsToFile(params, reportingType);
 
                 Platform.runLater(() -> {
-                    resultTextArea.setText(result);
+                    resultViewer.showDownload(result);
                     statusLabel.setText("Regulatory reporting download completed for " + ids.size() + " identifier(s)");
                     progressIndicator.setVisible(false);
                     downloadButton.setDisable(false);
@@ -228,12 +226,16 @@ public class RegulatoryReportingDownload implements Initializable {
                 log.error("Error during download", e);
                 Platform.runLater(() -> {
                     statusLabel.setText("Error: " + e.getMessage());
-                    resultTextArea.setText("Error occurred:\n" + e.getMessage());
+                    resultViewer.setText("Error occurred:\n" + e.getMessage());
                     progressIndicator.setVisible(false);
                     downloadButton.setDisable(false);
                 });
             }
-        }).start();
+        }).setOnCancelled(event -> {
+            statusLabel.setText("Download cancelled");
+            progressIndicator.setVisible(false);
+            downloadButton.setDisable(false);
+        });
     }
 
     @FXML
@@ -0,0 +1,436 @@
+/*
+ * Copyright 2018 Karl Kauc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package controller;
+
+import common.LineIndex;
+import common.XmlIndenter;
+import dao.BackupStore;
+import javafx.application.Platform;
+import javafx.collections.ObservableList;
+import javafx.collections.ObservableListBase;
+import javafx.geometry.Pos;
+import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.ContextMenu;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.MenuItem;
+import javafx.scene.control.SelectionMode;
+import javafx.scene.control.TextField;
+import javafx.scene.control.ToggleButton;
+import javafx.scene.control.TreeCell;
+import javafx.scene.control.TreeItem;
+import javafx.scene.control.TreeView;
+import javafx.scene.input.Clipboard;
+import javafx.scene.input.ClipboardContent;
+import javafx.scene.input.KeyCode;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.StackPane;
+import javafx.scene.layout.VBox;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Shows a server response that may be many MB large. Used in the FXML pages instead of a TextArea.
+ * <p>
+ * The response is indented into a temporary file and indexed by {@link LineIndex}; the list only
+ * creates cells for the visible lines and reads them from the file while scrolling. Fund and
+ * ShareClass elements can be shown as tree, a record reads its lines when it is expanded. Search
+ * runs over the file in the background.
+ */
+public class ResultViewer extends VBox {
+    private static final Logger log = LogManager.getLogger(ResultViewer.class);
+
+    private static final String STYLE = "-fx-font-family: 'Courier New'; -fx-font-size: 12px;";
+
+    /** elements shown next to a record in the tree, the first one found names it */
+    private static final String[] LABEL_TAGS = {"OfficialName", "LEI", "ISIN", "OeNB_Identnr"};
+
+    /** lines after the start of a record searched for a label */
+    private static final int LABEL_LINES = 40;
+
+    // prepares one response at a time, a newer one makes the older result obsolete anyway
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "result-viewer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final TextField searchField = new TextField();
+    private final CheckBox ignoreCaseBox = new CheckBox("Ignore case");
+    private final ToggleButton treeButton = new ToggleButton("Fund/ShareClass tree");
+    private final Label infoLabel = new Label();
+    private final ListView<Integer> lineView = new ListView<>();
+    private final TreeView<Integer> treeView = new TreeView<>();
+    private final Map<Integer, String> recordLabels = new HashMap<>();
+
+    // only changed on the FX thread
+    private LineIndex index;
+    private Path displayFile;
+    private long generation;
+
+    public ResultViewer() {
+        setSpacing(5.0);
+
+        searchField.setPromptText("Search");
+        searchField.setOnAction(event -> findNext());
+        Button findButton = new Button("Find next");
+        findButton.setOnAction(event -> findNext());
+        ignoreCaseBox.setSelected(true);
+        treeButton.setOnAction(event -> showTree(treeButton.isSelected()));
+
+        HBox toolbar = new HBox(5.0, searchField, findButton, ignoreCaseBox, treeButton, infoLabel);
+        toolbar.setAlignment(Pos.CENTER_LEFT);
+
+        lineView.setStyle(STYLE);
+        lineView.setFixedCellSize(18.0);
+        lineView.setCellFactory(view -> new LineCell());
+        lineView.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+        lineView.setContextMenu(copyMenu());
+        lineView.setOnKeyPressed(event -> {
+            if (event.isShortcutDown() && event.getCode() == KeyCode.C) {
+                copySelection();
+            }
+        });
+
+        treeView.setStyle(STYLE);
+        treeView.setFixedCellSize(18.0);
+        treeView.setShowRoot(false);
+        treeView.setCellFactory(view -> new RecordCell());
+        treeView.setVisible(false);
+
+        StackPane content = new StackPane(lineView, treeView);
+        VBox.setVgrow(content, Priority.ALWAYS);
+        getChildren().addAll(toolbar, content);
+    }
+
+    /**
+     * Shows a response file, which may be gzip compressed (see {@link BackupStore#open(Path)})
+     */
+    public void showFile(Path file) {
+        show(file, null);
+    }
+
+    /**
+     * Shows the file returned by a download, null when the download failed
+     */
+    public void showDownload(Path file) {
+        if (file != null) {
+            showFile(file);
+        } else {
+            setText("Download failed - see the log for details");
+        }
+    }
+
+    /**
+     * Shows a text, e.g. a message or a response that is only available as string
+     */
+    public void setText(String text) {
+        show(null, text != null ? text : "");
+    }
+
+    public void clear() {
+        generation++;
+        setIndex(null, null);
+        infoLabel.setText("");
+    }
+
+    private void show(Path file, String text) {
+        long showGeneration = ++generation;
+        infoLabel.setText("Loading...");
+
+        EXECUTOR.execute(() -> {
+            try {
+                Path prepared = prepare(file, text);
+                LineIndex newIndex = LineIndex.open(prepared);
+                Platform.runLater(() -> {
+                    if (showGeneration != generation) {
+                        close(newIndex);
+                        delete(prepared);
+                        return;
+                    }
+                    setIndex(newIndex, prepared);
+                    infoLabel.setText(newIndex.getLineCount() + " lines, " + newIndex.getRecordCount() + " records");
+                });
+            } catch (IOException e) {
+                log.error("Error preparing result " + (file != null ? file : "text"), e);
+                Platform.runLater(() -> {
+                    if (showGeneration == generation) {
+                        infoLabel.setText("Error: " + e.getMessage());
+                    }
+                });
+            }
+        });
+    }
+
+    private void setIndex(LineIndex newIndex, Path newFile) {
+        LineIndex oldIndex = index;
+        Path oldFile = displayFile;
+        index = newIndex;
+        displayFile = newFile;
+        recordLabels.clear();
+
+        lineView.setItems(new LineList(newIndex != null ? newIndex.getLineCount() : 0));
+        lineView.scrollTo(0);
+        treeView.setRoot(null);
+        if (treeButton.isSelected()) {
+            showTree(true);
+        }
+        // after a search that may still run on the old index
+        EXECUTOR.execute(() -> {
+            close(oldIndex);
+            delete(oldFile);
+        });
+    }
+
+    /**
+     * Writes the response indented into a temporary file. Text that is no (well-formed) XML is written unchanged.
+     */
+    private static Path prepare(Path file, String text) throws IOException {
+        Path target = Files.createTempFile("oekb-result-", ".xml");
+        target.toFile().deleteOnExit();
+
+        try (InputStream in = open(file, text)) {
+            byte[] head = in.readNBytes(256);
+            if (new String(head, StandardCharsets.UTF_8).stripLeading().startsWith("<")) {
+                try (InputStream xml = open(file, text);
+                     Writer out = Files.newBufferedWriter(target, StandardCharsets.UTF_8)) {
+                    XmlIndenter.indent(xml, out);
+                    return target;
+                } catch (XMLStreamException e) {
+                    log.debug("XML kann nicht formatiert werden: " + e.getMessage());
+                }
+            }
+        }
+
+        try (InputStream in = open(file, text)) {
+            Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return target;
+    }
+
+    private static InputStream open(Path file, String text) throws IOException {
+        return file != null ? BackupStore.open(file) : new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void close(LineIndex index) {
+        if (index == null) {
+            return;
+        }
+        try {
+            index.close();
+        } catch (IOException e) {
+            log.debug("could not close {}: {}", index.getFile(), e.getMessage());
+        }
+    }
+
+    private static void delete(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // e.g. opened by a virus scanner, removed on exit
+            log.debug("could not delete {}: {}", file, e.getMessage());
+        }
+    }
+
+    private void showTree(boolean tree) {
+        if (tree && treeView.getRoot() == null && index != null) {
+            TreeItem<Integer> root = new TreeItem<>(-1);
+            List<TreeItem<Integer>> records = new ArrayList<>(index.getRecordCount());
+            for (int record = 0; record < index.getRecordCount(); record++) {
+                records.add(new RecordItem(index, index.getRecordLine(record)));
+            }
+            root.getChildren().setAll(records);
+            treeView.setRoot(root);
+        }
+        treeView.setVisible(tree);
+        lineView.setVisible(!tree);
+    }
+
+    private void findNext() {
+        String text = searchField.getText();
+        LineIndex current = index;
+        if (current == null || text == null || text.isEmpty()) {
+            return;
+        }
+
+        int from = lineView.getSelectionModel().getSelectedIndex() + 1;
+        boolean ignoreCase = ignoreCaseBox.isSelected();
+        infoLabel.setText("Searching...");
+
+        EXECUTOR.execute(() -> {
+            int found = current.find(text, from, ignoreCase);
+            if (found < 0 && from > 0) {
+                // continue at the top
+                found = current.find(text, 0, ignoreCase);
+            }
+            int line = found;
+            Platform.runLater(() -> {
+                if (current != index) {
+                    return;
+                }
+                if (line < 0) {
+                    infoLabel.setText("'" + text + "' not found");
+                    return;
+                }
+                infoLabel.setText("Line " + (line + 1) + " of " + current.getLineCount());
+                treeButton.setSelected(false);
+                showTree(false);
+                lineView.getSelectionModel().clearAndSelect(line);
+                lineView.scrollTo(Math.max(0, line - 3));
+            });
+        });
+    }
+
+    private ContextMenu copyMenu() {
+        MenuItem copy = new MenuItem("Copy");
+        copy.setOnAction(event -> copySelection());
+        return new ContextMenu(copy);
+    }
+
+    private void copySelection() {
+        if (index == null) {
+            return;
+        }
+        List<Integer> lines = new ArrayList<>(lineView.getSelectionModel().getSelectedIndices());
+        lines.sort(null);
+        StringBuilder text = new StringBuilder();
+        for (int line : lines) {
+            text.append(index.getLine(line)).append(System.lineSeparator());
+        }
+        ClipboardContent content = new ClipboardContent();
+        content.putString(text.toString());
+        Clipboard.getSystemClipboard().setContent(content);
+    }
+
+    private String recordLabel(int line) {
+        return recordLabels.computeIfAbsent(line, start -> {
+            String label = index.getLine(start).trim();
+            int end = Math.min(index.getLineCount(), start + LABEL_LINES);
+            for (int i = start + 1; i < end; i++) {
+                String text = index.getLine(i).trim();
+                for (String tag : LABEL_TAGS) {
+                    String open = "<" + tag + ">";
+                    int close = text.indexOf("</" + tag + ">");
+                    if (text.startsWith(open) && close > open.length()) {
+                        return label + "  " + text.substring(open.length(), close) + "  (line " + (start + 1) + ")";
+                    }
+                }
+            }
+            return label + "  (line " + (start + 1) + ")";
+        });
+    }
+
+    /**
+     * The line numbers 0..size-1, without holding them in memory
+     */
+    private static final class LineList extends ObservableListBase<Integer> {
+        private final int size;
+
+        private LineList(int size) {
+            this.size = size;
+        }
+
+        @Override
+        public Integer get(int line) {
+            if (line < 0 || line >= size) {
+                throw new IndexOutOfBoundsException(line);
+            }
+            return line;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    private final class LineCell extends ListCell<Integer> {
+        @Override
+        protected void updateItem(Integer line, boolean empty) {
+            super.updateItem(line, empty);
+            setText(empty || line == null || index == null ? null : index.getLine(line));
+        }
+    }
+
+    private final class RecordCell extends TreeCell<Integer> {
+        @Override
+        protected void updateItem(Integer line, boolean empty) {
+            super.updateItem(line, empty);
+            if (empty || line == null || index == null || line < 0) {
+                setText(null);
+            } else if (getTreeItem() instanceof RecordItem) {
+                setText(recordLabel(line));
+            } else {
+                setText(index.getLine(line));
+            }
+        }
+    }
+
+    /**
+     * A Fund or ShareClass element, its lines are read when it is expanded for the first time
+     */
+    private static final class RecordItem extends TreeItem<Integer> {
+        private final LineIndex index;
+        private boolean loaded;
+
+        private RecordItem(LineIndex index, int line) {
+            super(line);
+            this.index = index;
+        }
+
+        @Override
+        public boolean isLeaf() {
+            return false;
+        }
+
+        @Override
+        public ObservableList<TreeItem<Integer>> getChildren() {
+            if (!loaded) {
+                loaded = true;
+                int start = getValue();
+                int end = index.getRecordEndLine(start);
+                List<TreeItem<Integer>> lines = new ArrayList<>(end - start);
+                for (int line = start + 1; line <= end; line++) {
+                    lines.add(new TreeItem<>(line));
+                }
+                super.getChildren().setAll(lines);
+            }
+            return super.getChildren();
+        }
+    }
+}
@@ -17,7 +17,6 @@ package controller;
 
 import javafx.scene.control.Button;
 import javafx.scene.control.ComboBox;
-import javafx.scene.control.TextArea;
 import javafx.scene.control.TextField;
 import dao.OeKBHTTP;
 import javafx.application.Platform;
@@ -36,6 +35,7 @@ import org.apache.logging.log4j.Logger;
 import java.io.File;
 import java.net.URL;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -68,7 +68,7 @@ public class ShareClassDownload implements Initializable {
     private ProgressIndicator progressIndicator;
 
     @FXML
-    private TextArea resultTextArea;
+    private ResultViewer resultViewer;
 
     @FXML
     private Label statusLabel;
@@ -125,13 +125,12 @@ public class ShareClassDownload implements Initializable {
 
     @FXML
     private void download() {
-        resultTextArea.clear();
+        resultViewer.clear();
         statusLabel.setText("Downloading...");
         progressIndicator.setVisible(true);
         downloadButton.setDisable(true);
 
-        // Run download in background thread
-        new Thread(() -> {
+        TaskManager.getInstance().execute("ShareClass download", task -> {
             try {
                 DownloadParameters params = new DownloadParameters("DOWNLOAD_SHARECLASS_SEGMENT");
 
@@ -179,7 +178,7 @@ public class ShareClassDownload implements Initializable {
                 ApplicationSettings settings = ApplicationSettings.getInstance();
                 if (settings.isFileSystem()) {
                     Platform.runLater(() -> {
-                        resultTextArea.setText("⚠️ OFFLINE MODE\n\nThis feature is not available in File System Mode.\n\nTo use this feature:\n1. Go to Settings\n2. Uncheck 'Use File System Mode (Mock XML Data)'\n3. Make sure you have valid OeKB credentials configured");
+                        resultViewer.setText("⚠️ OFFLINE MODE\n\nThis feature is not available in File System Mode.\n\nTo use this feature:\n1. Go to Settings\n2. Uncheck 'Use File System Mode (Mock XML Data)'\n3. Make sure you have valid OeKB credentials configured");
                         statusLabel.setText("Feature not available in offline mode");
                         progressIndicator.setVisible(false);
                         downloadButton.setDisable(false);
@@ -188,10 +187,10 @@ public class ShareClassDownload implements Initializable {
                 }
 
                 log.info("Downloading shareclass data for {} ISINs", isins.size());
-                String result = new OeKBHTTP().downloadShareClass(params);
+                Path result = new OeKBHTTP().downloadShareClassToFile(params);
 
                 Platform.runLater(() -> {
-                    resultTextArea.setText(result);
+                    resultViewer.showDownload(result);
                     statusLabel.setText("Download completed for " + isins.size() + " shareclass(es)");
                     progressIndicator.setVisible(false);
                     downloadButton.setDisable(false);
@@ -201,12 +200,16 @@ public class ShareClassDownload implements Initializable {
                 log.error("Error during download", e);
                 Platform.runLater(() -> {
                     statusLabel.setText("Error: " + e.getMessage());
-                    resultTextArea.setText("Error occurred:\n" + e.getMessage());
+                    resultViewer.setText("Error occurred:\n" + e.getMessage());
                     progressIndicator.setVisible(false);
                     downloadButton.setDisable(false);
                 });
             }
-        }).start();
+        }).setOnCancelled(event -> {
+            statusLabel.setText("Download cancelled");
+            progressIndicator.setVisible(false);
+            downloadButton.setDisable(false);
+        });
     }
 
     @FXML
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2024 Karl Kauc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package controller;
+
+import dao.ExportColumn;
+import dao.TableExport;
+import dao.WriteXLS;
+import javafx.concurrent.Task;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Button;
+import javafx.scene.control.ButtonType;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.layout.VBox;
+import javafx.stage.FileChooser;
+import javafx.stage.Window;
+import model.AccessRule;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Exports table rows in the background. A dialog shows the progress and can cancel the export,
+ * the FX thread only asks for the file and shows the result.
+ */
+public class TableExportTask<T> extends Task<File> {
+    private static final Logger log = LogManager.getLogger(TableExportTask.class);
+
+    // one export at a time, the exports compete for the same disk anyway
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "table-export");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final File file;
+    private final String sheetName;
+    private final List<T> rows;
+    private final List<ExportColumn<T>> columns;
+
+    TableExportTask(File file, String sheetName, List<T> rows, List<ExportColumn<T>> columns) {
+        this.file = file;
+        this.sheetName = sheetName;
+        this.rows = rows;
+        this.columns = columns;
+    }
+
+    @Override
+    protected File call() throws Exception {
+        updateMessage("Exporting to " + file.getName() + "...");
+        return TableExport.export(file, sheetName, rows, columns, new TableExport.Progress() {
+            @Override
+            public void update(long done, long total) {
+                updateProgress(done, total);
+                updateMessage(done + " of " + total + " rows written");
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return TableExportTask.this.isCancelled();
+            }
+        });
+    }
+
+    /**
+     * Asks for the target file and exports a snapshot of the rows in the background.
+     * The format is chosen by the file name: xlsx, csv or csv.gz.
+     *
+     * @param name   used for the dialog title and the proposed file name
+     * @param status label for the result of the export
+     */
+    public static <T> void start(Window owner, String name, List<T> rows, List<ExportColumn<T>> columns, Label status) {
+        if (rows.isEmpty()) {
+            status.setText("No data to export");
+            return;
+        }
+
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Save " + name + " Export");
+        fileChooser.setInitialFileName(LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss")) +
+                "_" + name.toLowerCase().replace(' ', '_') + ".xlsx");
+        fileChooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("Excel Files", "*.xlsx"),
+                new FileChooser.ExtensionFilter("CSV Files (fast, for large exports)", "*.csv"),
+                new FileChooser.ExtensionFilter("Compressed CSV Files", "*.csv.gz"));
+
+        File file = fileChooser.showSaveDialog(owner);
+        if (file == null) {
+            log.debug("Export cancelled by user.");
+            status.setText("Export cancelled.");
+            return;
+        }
+        file = withSelectedExtension(file, fileChooser.getSelectedExtensionFilter());
+
+        // the table may change while the export runs
+        TableExportTask<T> task = new TableExportTask<>(file, name, new ArrayList<>(rows), columns);
+
+        ProgressBar progressBar = new ProgressBar();
+        progressBar.setPrefWidth(320);
+        progressBar.progressProperty().bind(task.progressProperty());
+        Label message = new Label();
+        message.textProperty().bind(task.messageProperty());
+
+        Alert dialog = new Alert(Alert.AlertType.NONE);
+        dialog.initOwner(owner);
+        dialog.setTitle(name + " Export");
+        dialog.setHeaderText(null);
+        dialog.getDialogPane().setContent(new VBox(8, message, progressBar));
+        dialog.getButtonTypes().setAll(ButtonType.CANCEL);
+        // closing the dialog after the export has finished does not change the task anymore
+        dialog.setOnHidden(event -> task.cancel());
+
+        task.setOnSucceeded(event -> {
+            dialog.close();
+            File written = task.getValue();
+            status.setText("Successfully exported " + task.rows.size() + " entries to " + written.getName());
+            log.info("{} exported successfully to {}", name, written.getAbsolutePath());
+        });
+        task.setOnCancelled(event -> {
+            dialog.close();
+            log.info("{} export cancelled", name);
+            status.setText("Export cancelled.");
+        });
+        task.setOnFailed(event -> {
+            dialog.close();
+            log.error("Failed to export " + name, task.getException());
+            status.setText("Error during export.");
+            Alert alert = new Alert(Alert.AlertType.ERROR);
+            alert.setTitle("Export Error");
+            alert.setHeaderText("Could not save the export file.");
+            alert.setContentText("An error occurred while writing the data to the selected file:\n" + task.getException().getMessage());
+            alert.showAndWait();
+        });
+
+        status.setText("Exporting to " + file.getName() + "...");
+        dialog.show();
+        EXECUTOR.execute(task);
+    }
+
+    /**
+     * Writes the access rules with {@link WriteXLS#writeAccessRights} in the background, it reads the
+     * master data for the fund names. The button is disabled while the export runs.
+     *
+     * @param status label for the result of the export
+     */
+    public static void startAccessRights(Button button, Label status, String fileName, List<AccessRule> rules) {
+        // the rules may change while the export runs
+        List<AccessRule> snapshot = new ArrayList<>(rules);
+        button.setDisable(true);
+        status.setText("Speichere...");
+        TaskManager.ManagedTask<File> export = TaskManager.getInstance().submit("Access rights export",
+                TaskManager.DEFAULT_TIMEOUT, task -> WriteXLS.writeAccessRights(fileName, snapshot));
+        export.setOnSucceeded(event -> {
+            button.setDisable(false);
+            File written = export.getValue();
+            // a large export is written as .csv instead of .xlsx
+            status.setText(written != null ? "Gespeichert in " + written.getName() : "Fehler beim Speichern");
+        });
+        export.setOnFailed(event -> {
+            button.setDisable(false);
+            log.error("Fehler beim Speichern der Zugriffsrechte", export.getException());
+            status.setText("Fehler beim Speichern: " + export.getException().getMessage());
+        });
+        export.setOnCancelled(event -> {
+            button.setDisable(false);
+            status.setText("Speichern abgebrochen");
+        });
+    }
+
+    /**
+     * Not every platform appends the extension of the chosen filter to a file name without one
+     */
+    static File withSelectedExtension(File file, FileChooser.ExtensionFilter filter) {
+        String name = file.getName().toLowerCase();
+        if (filter == null || filter.getExtensions().isEmpty()
+                || name.endsWith(".xlsx") || name.endsWith(".csv") || name.endsWith(".csv.gz")) {
+            return file;
+        }
+        // "*.csv.gz" -> ".csv.gz"
+        return new File(file.getParentFile(), file.getName() + filter.getExtensions().get(0).substring(1));
+    }
+}
@@ -0,0 +1,338 @@
+/*
+ * Copyright 2024 Karl Kauc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package controller;
+
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
+import javafx.concurrent.Worker;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the background work of the pages (downloads, uploads, loading tables) on a bounded pool.
+ * <p>
+ * Every job is a JavaFX {@link Task} with a name, so it shows up in the running jobs panel of the main
+ * window, can be cancelled there and is cancelled when it runs longer than its timeout. Cancelling
+ * interrupts the worker thread. Jobs that do not fit into the queue are cancelled right away.
+ */
+public class TaskManager {
+    private static final Logger log = LogManager.getLogger(TaskManager.class);
+
+    /** jobs running at the same time, the server limits parallel requests of a user anyway */
+    static final int POOL_SIZE = 4;
+
+    /** jobs waiting for a thread */
+    static final int QUEUE_SIZE = 64;
+
+    /** timeout of jobs started without one */
+    public static final Duration DEFAULT_TIMEOUT = Duration.ofMinutes(30);
+
+    private static TaskManager instance;
+
+    private final ThreadPoolExecutor executor;
+    private final ScheduledThreadPoolExecutor timeouts;
+    private final AtomicInteger threadNumber = new AtomicInteger();
+
+    // running and waiting jobs, the list for the panel is only changed on the FX thread
+    private final Set<ManagedTask<?>> active = ConcurrentHashMap.newKeySet();
+    private final ObservableList<ManagedTask<?>> tasks = FXCollections.observableArrayList();
+
+    /**
+     * Work of a job, gets its task to report progress and to check for cancellation
+     */
+    @FunctionalInterface
+    public interface Job<T> {
+        T call(ManagedTask<T> task) throws Exception;
+    }
+
+    /**
+     * Work of a job without a result
+     */
+    @FunctionalInterface
+    public interface Action {
+        void run(ManagedTask<Void> task) throws Exception;
+    }
+
+    private TaskManager() {
+        executor = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_SIZE), r -> {
+            Thread thread = new Thread(r, "task-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+
+        timeouts = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "task-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timeouts.setRemoveOnCancelPolicy(true);
+    }
+
+    public static synchronized TaskManager getInstance() {
+        if (instance == null) {
+            instance = new TaskManager();
+        }
+        return instance;
+    }
+
+    /**
+     * Starts a job with the {@link #DEFAULT_TIMEOUT}
+     */
+    public ManagedTask<Void> execute(String name, Action action) {
+        return execute(name, DEFAULT_TIMEOUT, action);
+    }
+
+    /**
+     * @param timeout null for jobs that may run as long as they need, e.g. uploads
+     */
+    public ManagedTask<Void> execute(String name, Duration timeout, Action action) {
+        return execute(name, timeout, true, action);
+    }
+
+    /**
+     * @param cancellable false for jobs that must not stop half way, see {@link ManagedTask#isCancellable()}
+     */
+    public ManagedTask<Void> execute(String name, Duration timeout, boolean cancellable, Action action) {
+        return submit(name, timeout, cancellable, task -> {
+            action.run(task);
+            return null;
+        });
+    }
+
+    /**
+     * Starts a job. The handlers of the returned task are called on the FX thread; a job may be
+     * cancelled before it runs, so pages that disable controls while it runs should also reset
+     * them in {@code setOnCancelled}.
+     *
+     * @param timeout null for no timeout
+     */
+    public <T> ManagedTask<T> submit(String name, Duration timeout, Job<T> job) {
+        return submit(name, timeout, true, job);
+    }
+
+    /**
+     * @param cancellable false for jobs that must not stop half way, see {@link ManagedTask#isCancellable()}
+     */
+    public <T> ManagedTask<T> submit(String name, Duration timeout, boolean cancellable, Job<T> job) {
+        ManagedTask<T> task = new ManagedTask<>(name, timeout, cancellable, job, timeouts);
+        active.add(task);
+        task.stateProperty().addListener((observable, oldState, state) -> {
+            if (state == Worker.State.SUCCEEDED || state == Worker.State.CANCELLED || state == Worker.State.FAILED) {
+                finished(task, state);
+            }
+        });
+        onFxThread(() -> {
+            // a job submitted outside of the FX thread may already be done
+            if (!task.isDone()) {
+                tasks.add(task);
+            }
+        });
+
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            log.warn("Job '{}' not started, {} jobs waiting", name, executor.getQueue().size());
+            task.cancel();
+        }
+        return task;
+    }
+
+    private void finished(ManagedTask<?> task, Worker.State state) {
+        active.remove(task);
+        tasks.remove(task);
+        if (state == Worker.State.FAILED) {
+            log.error("Job '" + task.getName() + "' failed", task.getException());
+        } else if (state == Worker.State.CANCELLED) {
+            log.info("Job '{}' cancelled", task.getName());
+        } else {
+            log.debug("Job '{}' finished", task.getName());
+        }
+    }
+
+    /**
+     * Running and waiting jobs, for the panel of the main window. Must only be used on the FX thread.
+     */
+    public ObservableList<ManagedTask<?>> getTasks() {
+        return tasks;
+    }
+
+    public int getActiveCount() {
+        return active.size();
+    }
+
+    /**
+     * Cancels all cancellable jobs and waits up to the timeout for the running ones to stop.
+     * Jobs that cannot be cancelled are waited for as long as they need, they are never interrupted.
+     */
+    void shutdown(Duration timeout) {
+        executor.shutdown();
+        List<ManagedTask<?>> cancelled = new ArrayList<>();
+        for (ManagedTask<?> task : active) {
+            if (task.isCancellable()) {
+                task.cancel(true);
+                cancelled.add(task);
+            }
+        }
+        try {
+            if (!executor.awaitTermination(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                int uncancellable = countUncancellable();
+                if (uncancellable > 0) {
+                    log.info("waiting for {} jobs that cannot be cancelled", uncancellable);
+                    // stopping them half way would leave inconsistent data on the server
+                    while (countUncancellable() > 0) {
+                        if (executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                            break;
+                        }
+                    }
+                }
+                if (!executor.isTerminated()) {
+                    log.warn("{} jobs still running at shutdown", executor.getActiveCount());
+                    executor.shutdownNow();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+        timeouts.shutdownNow();
+        if (!cancelled.isEmpty()) {
+            log.info("{} jobs cancelled at shutdown", cancelled.size());
+        }
+    }
+
+    /**
+     * Jobs that cannot be cancelled and are waiting or running. The FX thread may be blocked at shutdown,
+     * so the state of the future is checked instead of the list that is updated on the FX thread.
+     */
+    private int countUncancellable() {
+        int count = 0;
+        for (ManagedTask<?> task : active) {
+            if (!task.isCancellable() && !task.isDone()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Shuts down the manager if it was used, for the end of the application
+     */
+    public static void shutdownInstance(Duration timeout) {
+        TaskManager manager;
+        synchronized (TaskManager.class) {
+            manager = instance;
+        }
+        if (manager != null) {
+            manager.shutdown(timeout);
+        }
+    }
+
+    private static void onFxThread(Runnable runnable) {
+        if (Platform.isFxApplicationThread()) {
+            runnable.run();
+        } else {
+            Platform.runLater(runnable);
+        }
+    }
+
+    /**
+     * A job of the manager. Progress and message can be set by the job and are shown in the panel.
+     */
+    public static final class ManagedTask<T> extends Task<T> {
+        private final String name;
+        private final Duration timeout;
+        private final Job<T> job;
+        private final ScheduledExecutorService timeouts;
+        private final boolean cancellable;
+
+        private ManagedTask(String name, Duration timeout, boolean cancellable, Job<T> job,
+                            ScheduledExecutorService timeouts) {
+            this.name = name;
+            this.timeout = timeout;
+            this.cancellable = cancellable;
+            this.job = job;
+            this.timeouts = timeouts;
+            updateMessage("Waiting...");
+        }
+
+        @Override
+        protected T call() throws Exception {
+            Thread thread = Thread.currentThread();
+            String threadName = thread.getName();
+            thread.setName(threadName + " " + name);
+            updateMessage("Running...");
+
+            ScheduledFuture<?> timer = null;
+            if (timeout != null) {
+                timer = timeouts.schedule(() -> {
+                    log.warn("Job '{}' cancelled after timeout of {}", name, timeout);
+                    cancel(true);
+                }, timeout.toMillis(), TimeUnit.MILLISECONDS);
+            }
+
+            try {
+                return job.call(this);
+            } finally {
+                if (timer != null) {
+                    timer.cancel(false);
+                }
+                thread.setName(threadName);
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Duration getTimeout() {
+            return timeout;
+        }
+
+        /**
+         * False for jobs that must not stop half way. They cannot be cancelled in the panel and are
+         * waited for at shutdown; they should be started without timeout.
+         */
+        public boolean isCancellable() {
+            return cancellable;
+        }
+
+        public void progress(long done, long total) {
+            updateProgress(done, total);
+        }
+
+        public void message(String message) {
+            updateMessage(message);
+        }
+    }
+}
@@ -15,6 +15,7 @@
  */
 package dao;
 
+import common.XsdValidator;
 import model.AccessRule;
 import model.ApplicationSettings;
 import model.RuleRow;
@@ -34,87 +35,62 @@ import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.IOException;
 import java.io.StringWriter;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
 
 public class AccesRights {
     private static final Logger log = LogManager.getLogger(AccesRights.class);
 
+    // Document types enumerated as ListedType in FundsXML_AccessRules_2.3.0.xsd, all others are UnlistedType
+    private static final Set<String> LISTED_DOCUMENT_TYPES = Set.of(
+            "AIFMD", "AnnualReport", "AuditReport", "Factsheet", "KID", "Prospectus", "PRIIPS-KID");
+
     private ApplicationSettings applicationSettings = ApplicationSettings.getInstance();
 
     public List<AccessRule> getAccesRightsRecievedFromOEKB() {
-        String outputString;
-
-        if (applicationSettings.isFileSystem()) {
-            // Daten sollen aus Filesystem gelesen werden
-            File backupDir = new File(applicationSettings.getBackupDirectory());
-            File[] potentialFiles = backupDir.listFiles((dir, name) ->
-                name.contains("DOWNLOAD_ACCESS_RULE.xml"));
-
-            log.debug("Potential files: " + (potentialFiles != null ? Arrays.toString(potentialFiles) : "none"));
-
-            if (potentialFiles != null && potentialFiles.length > 0) {
-                File dasIstEs = Arrays.stream(potentialFiles)
-                    .max((f1, f2) -> f1.getName().compareTo(f2.getName()))
-                    .orElse(potentialFiles[0]);
-                log.debug("Das ist es: " + dasIstEs);
-
-                try {
-                    outputString = new String(java.nio.file.Files.readAllBytes(dasIstEs.toPath()), StandardCharsets.UTF_8);
-                } catch (Exception e) {
-                    log.error("Error reading file", e);
-                    return new ArrayList<>();
-                }
-            } else {
-                log.error("No backup files found");
-                return new ArrayList<>();
-            }
-        } else {
-            log.debug("lese von OeKB Server");
-            outputString = new OeKBHTTP().downloadAccessRules();
-        }
-
-        return parseAccessRules(outputString, false);
+        return AccessRulesCache.getInstance().getRules(AccessRulesCache.Kind.RECEIVED);
     }
 
     public List<AccessRule> getAccessRightsGivenFromOEKB() {
-        String outputString;
+        return AccessRulesCache.getInstance().getRules(AccessRulesCache.Kind.GIVEN);
+    }
 
+    /**
+     * Reads the XML of a rule set from the latest backup or the OeKB server, for {@link AccessRulesCache}
+     */
+    String readAccessRules(AccessRulesCache.Kind kind) {
         if (applicationSettings.isFileSystem()) {
             // Daten sollen aus Filesystem gelesen werden
-            File backupDir = new File(applicationSettings.getBackupDirectory());
-            File[] potentialFiles = backupDir.listFiles((dir, name) ->
-                name.contains("DOWNLOAD_AR_ASSIGNED.xml"));
+            Path dasIstEs = BackupStore.getInstance().findLatest(kind.getBackupMode()).orElse(null);
 
-            log.debug("Potential files: " + (potentialFiles != null ? Arrays.toString(potentialFiles) : "none"));
-
-            if (potentialFiles != null && potentialFiles.length > 0) {
-                File dasIstEs = Arrays.stream(potentialFiles)
-                    .max((f1, f2) -> f1.getName().compareTo(f2.getName()))
-                    .orElse(potentialFiles[0]);
+            if (dasIstEs != null) {
                 log.debug("Das ist es: " + dasIstEs);
 
                 try {
-                    outputString = new String(java.nio.file.Files.readAllBytes(dasIstEs.toPath()), StandardCharsets.UTF_8);
+                    return BackupStore.readString(dasIstEs);
                 } catch (Exception e) {
                     log.error("Error reading file", e);
-                    return new ArrayList<>();
+                    return null;
                 }
             } else {
                 log.error("No backup files found");
-                return new ArrayList<>();
+                return null;
             }
-        } else {
-            outputString = new OeKBHTTP().downloadGivenAccessRules();
         }
 
-        return parseAccessRules(outputString, true);
+        log.debug("lese von OeKB Server");
+        if (kind == AccessRulesCache.Kind.GIVEN) {
+            return new OeKBHTTP().downloadGivenAccessRules();
+        }
+        return new OeKBHTTP().downloadAccessRules();
     }
 
-    private List<AccessRule> parseAccessRules(String xmlString, boolean includeDataSuppliers) {
+    List<AccessRule> parseAccessRules(String xmlString, boolean includeDataSuppliers) {
         List<AccessRule> accessRules = new ArrayList<>();
 
         // Validate input before parsing
@@ -284,6 +260,18 @@ public class AccesRights {
         return getElementText(current, tagNames[tagNames.length - 1]);
     }
 
+    /**
+     * Appends an element with the given text, unless the text is null, blank or "null".
+     */
+    private static void appendOptional(Document doc, Element parent, String name, String value) {
+        if (value == null || value.isBlank() || value.equals("null")) {
+            return;
+        }
+        Element element = doc.createElement(name);
+        element.setTextContent(value.trim());
+        parent.appendChild(element);
+    }
+
     public static String deleteRule(AccessRule rule) {
         log.debug("Delete Rule: " + rule.getId());
 
@@ -308,9 +296,7 @@ public class AccesRights {
             shortElem.setTextContent(rule.getDataSupplierCreatorShort());
             dataSupplier.appendChild(shortElem);
 
-            Element nameElem = doc.createElement("Name");
-            nameElem.setTextContent(rule.getDataSupplierCreatorName());
-            dataSupplier.appendChild(nameElem);
+            appendOptional(doc, dataSupplier, "Name", rule.getDataSupplierCreatorName());
 
             Element contact = doc.createElement("Contact");
             dataSupplier.appendChild(contact);
@@ -338,10 +324,11 @@ public class AccesRights {
             Element dataSuppliers = doc.createElement("DataSuppliers");
             accessRule.appendChild(dataSuppliers);
 
-            Element dataSupplierElem = doc.createElement("DataSupplier");
-            dataSuppliers.appendChild(dataSupplierElem);
-
+            // One DataSupplier per receiver, each with exactly one Short
             for (String dds : rule.getDataSuppliersGivenShort()) {
+                Element dataSupplierElem = doc.createElement("DataSupplier");
+                dataSuppliers.appendChild(dataSupplierElem);
+
                 Element ddsShort = doc.createElement("Short");
                 ddsShort.setTextContent(dds);
                 dataSupplierElem.appendChild(ddsShort);
@@ -426,8 +413,12 @@ public class AccesRights {
                 accessRule.appendChild(documentTypesElem);
                 for (String docType : docTypes) {
                     Element docTypeElem = doc.createElement("DocumentType");
-                    docTypeElem.setTextContent(docType);
                     documentTypesElem.appendChild(docTypeElem);
+
+                    Element typeElem = doc.createElement(LISTED_DOCUMENT_TYPES.contains(docType)
+                            ? "ListedType" : "UnlistedType");
+                    typeElem.setTextContent(docType);
+                    docTypeElem.appendChild(typeElem);
                 }
             }
 
@@ -437,37 +428,28 @@ public class AccesRights {
                 Element regulatoryReportingsElem = doc.createElement("RegulatoryReportings");
                 accessRule.appendChild(regulatoryReportingsElem);
                 for (String regRep : regReps) {
-                    Element regRepElem = doc.createElement("RegulatoryReporting");
+                    Element regRepElem = doc.createElement("Type");
                     regRepElem.setTextContent(regRep);
                     regulatoryReportingsElem.appendChild(regRepElem);
                 }
             }
 
+            // Schedule and its children are optional and typed (xs:long, xs:date), so empty values are left out
             Element schedule = doc.createElement("Schedule");
-            accessRule.appendChild(schedule);
-
-            Element accessDelayInDays = doc.createElement("AccessDelayInDays");
-            accessDelayInDays.setTextContent(rule.getAccessDelayInDays());
-            schedule.appendChild(accessDelayInDays);
+            appendOptional(doc, schedule, "AccessDelayInDays", rule.getAccessDelayInDays());
 
             Element dataAccessRange = doc.createElement("DataAccessRange");
-            schedule.appendChild(dataAccessRange);
-
-            Element dateFrom = doc.createElement("DateFrom");
-            dateFrom.setTextContent(rule.getDateFrom());
-            dataAccessRange.appendChild(dateFrom);
-
-            Element dateTo = doc.createElement("DateTo");
-            dateTo.setTextContent(rule.getDateTo());
-            dataAccessRange.appendChild(dateTo);
-
-            Element frequency = doc.createElement("Frequency");
-            frequency.setTextContent(rule.getFrequency());
-            dataAccessRange.appendChild(frequency);
+            appendOptional(doc, dataAccessRange, "DateFrom", rule.getDateFrom());
+            appendOptional(doc, dataAccessRange, "DateTo", rule.getDateTo());
+            appendOptional(doc, dataAccessRange, "Frequency", rule.getFrequency());
+            if (dataAccessRange.hasChildNodes()) {
+                schedule.appendChild(dataAccessRange);
+            }
+            if (schedule.hasChildNodes()) {
+                accessRule.appendChild(schedule);
+            }
 
-            Element costsByDataSupplier = doc.createElement("CostsByDataSupplier");
-            costsByDataSupplier.setTextContent(String.valueOf(rule.getCostsByDataSupplier()));
-            accessRule.appendChild(costsByDataSupplier);
+            appendOptional(doc, accessRule, "CostsByDataSupplier", rule.getCostsByDataSupplier());
 
             // Convert to string
             TransformerFactory transformerFactory = TransformerFactory.newInstance();
@@ -493,14 +475,8 @@ public class AccesRights {
         log.debug("lösche Fund aus Rule: " + rule.getId() + ": " + rule.getLEI() + "/" +
                   rule.getOENB_ID() + "/" + rule.getSHARECLASS_ISIN() + "/" + rule.getSEGMENT_ISIN());
 
-        List<AccessRule> given = getAccesRightsRecievedFromOEKB();
-        AccessRule idToDelete = null;
-        for (AccessRule ar : given) {
-            if (ar.getId().equals(rule.getId())) {
-                idToDelete = ar;
-                break;
-            }
-        }
+        AccessRule idToDelete = AccessRulesCache.getInstance()
+                .findById(AccessRulesCache.Kind.RECEIVED, rule.getId()).orElse(null);
 
         if (idToDelete != null) {
             log.debug("LEI vorher: " + idToDelete.getLEI());
@@ -550,6 +526,18 @@ public class AccesRights {
             return "ERROR: XML content is empty";
         }
 
+        try {
+            List<String> schemaErrors = XsdValidator.validate("FundsXML_AccessRules",
+                    new ByteArrayInputStream(xmlContent.getBytes(StandardCharsets.UTF_8)));
+            if (!schemaErrors.isEmpty()) {
+                return "ERROR: XML does not match " + XsdValidator.getSchemaName("FundsXML_AccessRules") + "\n"
+                        + String.join("\n", schemaErrors);
+            }
+        } catch (IOException e) {
+            log.error("Error validating access rule XML", e);
+            return "ERROR: " + e.getMessage();
+        }
+
         File tempFile = null;
         try {
             // Create temporary file with timestamp to ensure uniqueness
@@ -565,6 +553,7 @@ public class AccesRights {
 
             // Upload the file
             String result = new OeKBHTTP().uploadAccessRule(tempFile);
+            AccessRulesCache.getInstance().invalidate();
 
             // Check if upload was successful
             if (result != null && (result.contains("SUCCESS") || result.contains("OK"))) {
@@ -0,0 +1,297 @@
+/*
+ * Copyright 2018 Karl Kauc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dao;
+
+import model.AccessRule;
+import model.ApplicationSettings;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Received and granted access rules, kept in memory so the access rule pages and rule lookups do
+ * not download the rule set again.
+ * <p>
+ * {@link #start()} loads both rule sets in the background and refreshes them every
+ * {@link #REFRESH_INTERVAL}. A refresh compares the hash of the reply with the loaded one and only
+ * parses the rules again if the server sent something new; an empty or non-XML reply keeps the
+ * loaded rules. Uploads of access rules and changed connection settings invalidate the cache.
+ * <p>
+ * Callers always get copies of the cached rules, so they can edit them freely.
+ */
+public class AccessRulesCache {
+    private static final Logger log = LogManager.getLogger(AccessRulesCache.class);
+
+    static final Duration REFRESH_INTERVAL = Duration.ofMinutes(15);
+
+    private static AccessRulesCache instance;
+
+    public enum Kind {
+        /** rules other data suppliers granted to us */
+        RECEIVED("DOWNLOAD_ACCESS_RULE"),
+        /** rules we granted to other data suppliers */
+        GIVEN("DOWNLOAD_AR_ASSIGNED");
+
+        private final String backupMode;
+
+        Kind(String backupMode) {
+            this.backupMode = backupMode;
+        }
+
+        /** Mode of the backups holding this rule set */
+        public String getBackupMode() {
+            return backupMode;
+        }
+    }
+
+    /**
+     * Reads the XML of one rule set, from the server or the backups
+     */
+    interface Source {
+        String read(Kind kind);
+    }
+
+    /**
+     * One loaded rule set with its indexes
+     */
+    private static final class Snapshot {
+        private final String hash;
+        private final List<AccessRule> rules;
+        private final Map<String, AccessRule> byId = new HashMap<>();
+        private final Map<String, List<AccessRule>> byIdentifier = new HashMap<>();
+
+        Snapshot(String hash, List<AccessRule> rules) {
+            this.hash = hash;
+            this.rules = List.copyOf(rules);
+
+            for (AccessRule rule : this.rules) {
+                if (rule.getId() != null) {
+                    byId.put(rule.getId(), rule);
+                }
+                index(rule, rule.getLEI());
+                index(rule, rule.getOENB_ID());
+                index(rule, rule.getISIN_SEGMENT());
+                index(rule, rule.getISIN_SHARECLASS());
+            }
+        }
+
+        private void index(AccessRule rule, List<String> identifiers) {
+            if (identifiers == null) {
+                return;
+            }
+            for (String identifier : identifiers) {
+                List<AccessRule> rules = byIdentifier.computeIfAbsent(identifier, key -> new ArrayList<>());
+                if (!rules.contains(rule)) {
+                    rules.add(rule);
+                }
+            }
+        }
+    }
+
+    private final Source source;
+    private final Map<Kind, Snapshot> snapshots = Collections.synchronizedMap(new EnumMap<>(Kind.class));
+    private final Map<Kind, Object> loadLocks = new EnumMap<>(Kind.class);
+
+    /** increased by every invalidation, a load started before an invalidation is not cached */
+    private volatile long generation;
+
+    private ScheduledExecutorService scheduler;
+
+    AccessRulesCache(Source source) {
+        this.source = source;
+        for (Kind kind : Kind.values()) {
+            loadLocks.put(kind, new Object());
+        }
+    }
+
+    public static synchronized AccessRulesCache getInstance() {
+        if (instance == null) {
+            AccesRights accesRights = new AccesRights();
+            instance = new AccessRulesCache(accesRights::readAccessRules);
+            ApplicationSettings.getInstance().addChangeListener(instance::settingsChanged);
+        }
+        return instance;
+    }
+
+    /**
+     * Loads both rule sets in the background and refreshes them periodically from then on
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "access-rules-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        scheduler = executor;
+        scheduler.scheduleWithFixedDelay(this::refreshAll, 0, REFRESH_INTERVAL.toSeconds(), TimeUnit.SECONDS);
+        log.debug("access rules are refreshed every {}", REFRESH_INTERVAL);
+    }
+
+    public synchronized void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * @return copies of all rules of the set, loaded first if the cache does not hold it
+     */
+    public List<AccessRule> getRules(Kind kind) {
+        List<AccessRule> rules = new ArrayList<>();
+        for (AccessRule rule : snapshot(kind).rules) {
+            rules.add(new AccessRule(rule));
+        }
+        return rules;
+    }
+
+    /**
+     * @return copy of the rule with this ID
+     */
+    public Optional<AccessRule> findById(Kind kind, String id) {
+        return Optional.ofNullable(snapshot(kind).byId.get(id)).map(AccessRule::new);
+    }
+
+    /**
+     * @param identifier LEI, OeNB-ID, segment or share class ISIN
+     * @return copies of all rules containing the identifier
+     */
+    public List<AccessRule> findByIdentifier(Kind kind, String identifier) {
+        List<AccessRule> rules = new ArrayList<>();
+        for (AccessRule rule : snapshot(kind).byIdentifier.getOrDefault(identifier, List.of())) {
+            rules.add(new AccessRule(rule));
+        }
+        return rules;
+    }
+
+    /**
+     * Drops both rule sets, e.g. after an access rule was uploaded. If the cache was started,
+     * they are loaded again in the background right away.
+     */
+    public void invalidate() {
+        generation++;
+        snapshots.clear();
+        log.debug("access rule cache invalidated");
+
+        synchronized (this) {
+            if (scheduler != null) {
+                scheduler.execute(this::refreshAll);
+            }
+        }
+    }
+
+    private void settingsChanged(ApplicationSettings.Snapshot oldSettings, ApplicationSettings.Snapshot newSettings) {
+        if (!Objects.equals(connectionKey(oldSettings), connectionKey(newSettings))) {
+            log.info("server, user or data supplier changed, reloading access rules");
+            invalidate();
+        }
+    }
+
+    private static List<Object> connectionKey(ApplicationSettings.Snapshot settings) {
+        return List.of(settings.isUseProdServer(), settings.isFileSystem(),
+                String.valueOf(settings.getOekbUserName()), String.valueOf(settings.getDataSupplierList()),
+                String.valueOf(settings.getBackupDirectory()));
+    }
+
+    private void refreshAll() {
+        for (Kind kind : Kind.values()) {
+            try {
+                refresh(kind);
+            } catch (RuntimeException e) {
+                log.error("Error refreshing access rules {}", kind, e);
+            }
+        }
+    }
+
+    /**
+     * @return the cached rule set, loaded first if there is none
+     */
+    private Snapshot snapshot(Kind kind) {
+        Snapshot snapshot = snapshots.get(kind);
+        if (snapshot != null) {
+            return snapshot;
+        }
+        synchronized (loadLocks.get(kind)) {
+            // a background refresh may have loaded it in the meantime
+            snapshot = snapshots.get(kind);
+            return snapshot != null ? snapshot : load(kind);
+        }
+    }
+
+    /**
+     * Reads the rule set again, even if it is cached
+     */
+    public void refresh(Kind kind) {
+        synchronized (loadLocks.get(kind)) {
+            load(kind);
+        }
+    }
+
+    private Snapshot load(Kind kind) {
+        long startGeneration = generation;
+        Snapshot current = snapshots.get(kind);
+
+        String xml = source.read(kind);
+        if (xml == null || !xml.trim().startsWith("<")) {
+            // the server sent an error, keep what we have
+            log.warn("no access rules {} received, keeping {} cached rules", kind,
+                    current != null ? current.rules.size() : 0);
+            return current != null ? current : new Snapshot(null, List.of());
+        }
+
+        String hash = hash(xml);
+        if (current != null && hash.equals(current.hash)) {
+            log.debug("access rules {} unverändert", kind);
+            return current;
+        }
+
+        Snapshot snapshot = new Snapshot(hash, new AccesRights().parseAccessRules(xml, kind == Kind.GIVEN));
+        if (startGeneration == generation) {
+            snapshots.put(kind, snapshot);
+        }
+        log.debug("{} access rules {} geladen", snapshot.rules.size(), kind);
+        return snapshot;
+    }
+
+    private static String hash(String xml) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(xml.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,438 @@
+/*
+ * Copyright 2018 Karl Kauc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dao;
+
+import model.ApplicationSettings;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Repository for the backups of all requests and responses.
+ * <p>
+ * Files are stored gzip compressed as {@code <backupDirectory>/<yyyy-MM-dd>/<MODE>/<PROD|DEV>_<hash>.xml.gz}
+ * and are addressed by the SHA-256 of their uncompressed content: storing content that is already in the
+ * repository does not write a second file, only a new index line pointing to the existing one. The index
+ * ({@code backup-index.tsv}, one tab separated line per stored backup: time, server, mode, data supplier,
+ * hash, size, path) is append-only and answers "latest backup of mode X" without listing directories.
+ * <p>
+ * Files of older versions directly in the backup directory are still found by name. Read backups with
+ * {@link #open(Path)}, which decompresses compressed files and passes plain XML through.
+ */
+public class BackupStore {
+    private static final Logger log = LogManager.getLogger(BackupStore.class);
+
+    static final String INDEX_FILE = "backup-index.tsv";
+    static final String TMP_DIR = ".tmp";
+
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ISO_LOCAL_DATE;
+    private static final int FIELD_COUNT = 7;
+    // characters of the hash in the file name, the full hash is in the index
+    private static final int HASH_NAME_LENGTH = 16;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static BackupStore instance;
+
+    /**
+     * One line of the index
+     */
+    public static class Entry {
+        private final LocalDateTime time;
+        private final String server;
+        private final String mode;
+        private final String dataSupplier;
+        private final String hash;
+        private final long size;
+        private final String path;
+
+        Entry(LocalDateTime time, String server, String mode, String dataSupplier, String hash, long size, String path) {
+            this.time = time;
+            this.server = server;
+            this.mode = mode;
+            this.dataSupplier = dataSupplier;
+            this.hash = hash;
+            this.size = size;
+            this.path = path;
+        }
+
+        public LocalDateTime getTime() {
+            return time;
+        }
+
+        public String getServer() {
+            return server;
+        }
+
+        public String getMode() {
+            return mode;
+        }
+
+        public String getDataSupplier() {
+            return dataSupplier;
+        }
+
+        public String getHash() {
+            return hash;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * Path relative to the backup directory, with '/' as separator
+         */
+        public String getPath() {
+            return path;
+        }
+    }
+
+    private final Path root;
+    private final List<Entry> entries = new ArrayList<>();
+    private final Map<String, Entry> byHash = new HashMap<>();
+    private final Map<String, Entry> latestByMode = new HashMap<>();
+    private boolean loaded;
+
+    BackupStore(Path root) {
+        this.root = root;
+    }
+
+    /**
+     * Store in the backup directory of the current settings
+     */
+    public static synchronized BackupStore getInstance() {
+        Path root = Path.of(ApplicationSettings.getInstance().getBackupDirectory());
+        if (instance == null || !instance.root.equals(root)) {
+            instance = new BackupStore(root);
+        }
+        return instance;
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    /**
+     * Empty temporary file for content that is written by streaming; hand it to {@link #commit(Path, String)}
+     * when it is complete.
+     */
+    public Path newTempFile() throws IOException {
+        Path tmp = root.resolve(TMP_DIR);
+        Files.createDirectories(tmp);
+        return Files.createTempFile(tmp, "backup_", ".part");
+    }
+
+    /**
+     * Stores the content as backup of the given mode
+     *
+     * @return the backup file
+     */
+    public Path store(byte[] content, String mode) throws IOException {
+        Path temp = newTempFile();
+        Files.write(temp, content);
+        return commit(temp, mode);
+    }
+
+    /**
+     * Moves a completed temporary file into the repository, or deletes it if the same content is stored already.
+     *
+     * @return the backup file holding the content
+     */
+    public Path commit(Path temp, String mode) throws IOException {
+        ApplicationSettings.Snapshot settings = ApplicationSettings.getInstance().getSnapshot();
+        return commit(temp, mode, settings.isUseProdServer() ? "PROD" : "DEV", settings.getDataSupplierList(), LocalDateTime.now());
+    }
+
+    Path commit(Path temp, String mode, String server, String dataSupplier, LocalDateTime time) throws IOException {
+        long size = Files.size(temp);
+
+        // hash and compress in one pass over the content, outside the lock so parallel downloads do not wait
+        Path compressed = temp.resolveSibling(temp.getFileName() + ".gz");
+        String hash;
+        try {
+            hash = compress(temp, compressed);
+        } catch (IOException e) {
+            Files.deleteIfExists(compressed);
+            throw e;
+        }
+        Files.delete(temp);
+
+        return moveIntoRepository(compressed, hash, size, sanitize(mode), server, dataSupplier, time);
+    }
+
+    /**
+     * Moves a compressed file into the repository and appends it to the index
+     */
+    private synchronized Path moveIntoRepository(Path compressed, String hash, long size, String mode, String server,
+                                                 String dataSupplier, LocalDateTime time) throws IOException {
+        load();
+        Entry existing = byHash.get(hash);
+        Path file;
+        if (existing != null && Files.isRegularFile(root.resolve(existing.path))) {
+            Files.delete(compressed);
+            file = root.resolve(existing.path);
+            log.debug("Backup already stored as " + file);
+        } else {
+            Path directory = root.resolve(time.format(DAY_FORMAT)).resolve(mode);
+            Files.createDirectories(directory);
+            file = directory.resolve(server + "_" + hash.substring(0, HASH_NAME_LENGTH) + ".xml.gz");
+            try {
+                Files.move(compressed, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(compressed, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+
+        String path = root.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+        Entry entry = new Entry(time, server, mode, dataSupplier != null ? dataSupplier : "", hash, size, path);
+        try (BufferedWriter writer = Files.newBufferedWriter(root.resolve(INDEX_FILE), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            writer.write(toLine(entry));
+            writer.newLine();
+        }
+        add(entry);
+        return file;
+    }
+
+    /**
+     * Syncs the given backup files and the index to disk
+     */
+    public void force(Collection<Path> files) throws IOException {
+        if (files.isEmpty()) {
+            return;
+        }
+        for (Path file : files) {
+            force(file);
+        }
+        synchronized (this) {
+            force(root.resolve(INDEX_FILE));
+        }
+    }
+
+    private static void force(Path file) throws IOException {
+        // opened for writing, Windows does not flush read-only handles
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * The most recent backup of one of the modes. Without an entry in the index, the files of older versions
+     * directly in the backup directory ("..._MODE.xml") are searched and the last one by name is taken.
+     */
+    public synchronized Optional<Path> findLatest(String... modes) {
+        try {
+            load();
+        } catch (IOException e) {
+            log.error("Error reading backup index", e);
+        }
+
+        Entry latest = null;
+        for (String mode : modes) {
+            Entry entry = latestByMode.get(mode);
+            if (entry != null && (latest == null || entry.time.isAfter(latest.time))) {
+                latest = entry;
+            }
+        }
+        if (latest != null && Files.isRegularFile(root.resolve(latest.path))) {
+            return Optional.of(root.resolve(latest.path));
+        }
+        return findLegacy(modes);
+    }
+
+    private Optional<Path> findLegacy(String... modes) {
+        try (Stream<Path> files = Files.list(root)) {
+            Optional<Path> latest = files
+                    .filter(Files::isRegularFile)
+                    .filter(file -> {
+                        String name = file.getFileName().toString();
+                        for (String mode : modes) {
+                            if (name.contains(mode + ".xml")) {
+                                return true;
+                            }
+                        }
+                        return false;
+                    })
+                    .max(Comparator.comparing(file -> file.getFileName().toString()));
+            log.debug("Legacy backup file for " + String.join(", ", modes) + ": " + latest.orElse(null));
+            return latest;
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            log.error("Error listing backup directory " + root, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Opens a backup for reading. Gzip compressed files (recognised by their magic bytes, not the name) are
+     * decompressed while reading. The stream supports {@link InputStream#mark(int)}.
+     */
+    public static InputStream open(Path file) throws IOException {
+        InputStream in = new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE);
+        try {
+            in.mark(2);
+            int first = in.read();
+            int second = in.read();
+            in.reset();
+            if (first == 0x1f && second == 0x8b) {
+                return new BufferedInputStream(new GZIPInputStream(in, BUFFER_SIZE), BUFFER_SIZE);
+            }
+            return in;
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * The whole (decompressed) backup as UTF-8 string
+     */
+    public static String readString(Path file) throws IOException {
+        try (InputStream in = open(file)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * All index entries in the order they were stored
+     */
+    public synchronized List<Entry> getEntries() throws IOException {
+        load();
+        return new ArrayList<>(entries);
+    }
+
+    private void load() throws IOException {
+        if (loaded) {
+            return;
+        }
+        Path index = root.resolve(INDEX_FILE);
+        if (Files.exists(index)) {
+            try (BufferedReader reader = Files.newBufferedReader(index, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    Entry entry = fromLine(line);
+                    if (entry != null) {
+                        add(entry);
+                    } else if (!line.isEmpty()) {
+                        log.warn("Ignoring invalid line in " + index + ": " + line);
+                    }
+                }
+            }
+            log.debug("backup index loaded, " + entries.size() + " entries");
+        }
+        loaded = true;
+    }
+
+    private void add(Entry entry) {
+        entries.add(entry);
+        byHash.putIfAbsent(entry.hash, entry);
+        latestByMode.merge(entry.mode, entry, (old, add) -> add.time.isBefore(old.time) ? old : add);
+    }
+
+    static String toLine(Entry entry) {
+        return String.join("\t", entry.time.toString(), entry.server, entry.mode, sanitizeField(entry.dataSupplier),
+                entry.hash, Long.toString(entry.size), entry.path);
+    }
+
+    static Entry fromLine(String line) {
+        String[] fields = line.split("\t", -1);
+        if (fields.length != FIELD_COUNT) {
+            return null;
+        }
+        try {
+            return new Entry(LocalDateTime.parse(fields[0]), fields[1], fields[2], fields[3], fields[4],
+                    Long.parseLong(fields[5]), fields[6]);
+        } catch (DateTimeParseException | NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Mode as directory name: "DOWNLOAD_FUND" stays, a file name like "fund.v2.xml" becomes "fund_v2"
+     */
+    static String sanitize(String mode) {
+        if (mode == null || mode.isBlank()) {
+            return "UNKNOWN";
+        }
+        if (mode.toLowerCase().endsWith(".xml")) {
+            mode = mode.substring(0, mode.length() - 4);
+        }
+        mode = mode.replaceAll("[^A-Za-z0-9_-]", "_");
+        return mode.isEmpty() ? "UNKNOWN" : mode;
+    }
+
+    private static String sanitizeField(String value) {
+        return value.replace('\t', ' ').replace('\r', ' ').replace('\n', ' ');
+    }
+
+    /**
+     * Writes the gzip compressed content of {@code source} to {@code target}
+     *
+     * @return SHA-256 of the uncompressed content
+     */
+    static String compress(Path source, Path target) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream in = Files.newInputStream(source);
+             OutputStream out = new GZIPOutputStream(Files.newOutputStream(target), BUFFER_SIZE)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+                out.write(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
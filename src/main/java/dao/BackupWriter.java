@@ -0,0 +1,321 @@
+/*
+ * Copyright 2018 Karl Kauc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dao;
+
+import model.ApplicationSettings;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind queue for backups. Request threads hand over the content and continue, a single writer
+ * thread stores it in the {@link BackupStore}.
+ * <p>
+ * The queue is bounded: if the writer falls {@link #QUEUE_CAPACITY} backups behind, callers wait up to
+ * {@link #BACKPRESSURE_TIMEOUT} for a free slot and then write the backup themselves, so nothing is lost
+ * and memory stays bounded. The writer takes up to {@link #MAX_BATCH} backups at once and syncs the
+ * files and the index to disk once per batch. {@link #shutdown(Duration)} writes what is left when the
+ * application stops.
+ */
+public class BackupWriter {
+    private static final Logger log = LogManager.getLogger(BackupWriter.class);
+
+    static final int QUEUE_CAPACITY = 64;
+    static final int MAX_BATCH = 16;
+    static final Duration BACKPRESSURE_TIMEOUT = Duration.ofSeconds(30);
+
+    private static BackupWriter instance;
+
+    /**
+     * One backup, with the store and settings of the time it was submitted
+     */
+    private static final class Job {
+        private final BackupStore store;
+        private final String mode;
+        private final String server;
+        private final String dataSupplier;
+        private final LocalDateTime time;
+        private final byte[] content;
+        private final Path file;
+        private final long submitted = System.nanoTime();
+
+        private Job(BackupStore store, String mode, String server, String dataSupplier, byte[] content, Path file) {
+            this.store = store;
+            this.mode = mode;
+            this.server = server;
+            this.dataSupplier = dataSupplier;
+            this.time = LocalDateTime.now();
+            this.content = content;
+            this.file = file;
+        }
+    }
+
+    private final BlockingQueue<Job> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Thread writerThread;
+    private final Object idle = new Object();
+    private int pending;
+    private volatile boolean running = true;
+
+    // submit time of the job the writer is working on, 0 if idle
+    private volatile long currentJobSubmitted;
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong writtenByCaller = new AtomicLong();
+
+    BackupWriter() {
+        writerThread = new Thread(this::run, "backup-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    public static synchronized BackupWriter getInstance() {
+        if (instance == null) {
+            instance = new BackupWriter();
+        }
+        return instance;
+    }
+
+    /**
+     * Queues the content as backup of the mode
+     */
+    public void submit(byte[] content, String mode) {
+        submit(mode, content, null);
+    }
+
+    /**
+     * Queues a completed temporary file of the {@link BackupStore}; the writer commits (and thereby removes) it
+     */
+    public void submit(Path tempFile, String mode) {
+        submit(mode, null, tempFile);
+    }
+
+    private void submit(String mode, byte[] content, Path tempFile) {
+        ApplicationSettings.Snapshot settings = ApplicationSettings.getInstance().getSnapshot();
+        submit(BackupStore.getInstance(), mode, settings.isUseProdServer() ? "PROD" : "DEV",
+                settings.getDataSupplierList(), content, tempFile);
+    }
+
+    void submit(BackupStore store, String mode, String server, String dataSupplier, byte[] content, Path tempFile) {
+        Job job = new Job(store, mode, server, dataSupplier, content, tempFile);
+        synchronized (idle) {
+            pending++;
+        }
+        boolean queued = false;
+        try {
+            if (running) {
+                queued = queue.offer(job) || offerWithBackpressure(job);
+            }
+        } finally {
+            if (!queued) {
+                writtenByCaller.incrementAndGet();
+                List<Path> stored = new ArrayList<>(1);
+                write(job, stored);
+                force(job.store, stored);
+                done(1);
+            }
+        }
+    }
+
+    private boolean offerWithBackpressure(Job job) {
+        log.info("backup queue is full ({} backups, oldest waiting {} ms), waiting for the writer",
+                getQueueDepth(), getLagMillis());
+        try {
+            if (queue.offer(job, BACKPRESSURE_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+            log.warn("backup writer is " + BACKPRESSURE_TIMEOUT.toSeconds() + "s behind, writing backup in the calling thread");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    private void run() {
+        List<Job> batch = new ArrayList<>(MAX_BATCH);
+        while (running || !queue.isEmpty()) {
+            try {
+                Job first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH - 1);
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                if (!running) {
+                    break;
+                }
+            } catch (RuntimeException e) {
+                log.error("Error in backup writer", e);
+            } finally {
+                done(batch.size());
+                batch.clear();
+            }
+        }
+        log.debug("backup writer stopped");
+    }
+
+    private void writeBatch(List<Job> batch) {
+        long start = System.nanoTime();
+        List<Path> stored = new ArrayList<>(batch.size());
+        BackupStore store = batch.get(0).store;
+        for (Job job : batch) {
+            currentJobSubmitted = job.submitted;
+            if (job.store != store) {
+                force(store, stored);
+                stored.clear();
+                store = job.store;
+            }
+            write(job, stored);
+        }
+        force(store, stored);
+        currentJobSubmitted = 0;
+        log.debug("backup batch of " + batch.size() + " written in " + (System.nanoTime() - start) / 1_000_000 +
+                " ms, queue depth " + getQueueDepth());
+    }
+
+    private void write(Job job, List<Path> stored) {
+        try {
+            Path temp = job.file;
+            if (temp == null) {
+                temp = job.store.newTempFile();
+                Files.write(temp, job.content);
+            }
+            Path file = job.store.commit(temp, job.mode, job.server, job.dataSupplier, job.time);
+            stored.add(file);
+            written.incrementAndGet();
+            log.info("Saving Backup File: " + file);
+        } catch (IOException | RuntimeException e) {
+            failed.incrementAndGet();
+            log.error("Error saving backup file for " + job.mode, e);
+        }
+    }
+
+    private static void force(BackupStore store, List<Path> files) {
+        try {
+            store.force(files);
+        } catch (IOException e) {
+            log.warn("Could not sync backups to disk: " + e.getMessage());
+        }
+    }
+
+    private void done(int count) {
+        synchronized (idle) {
+            pending -= count;
+            if (pending <= 0) {
+                idle.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Waits until all submitted backups are written
+     *
+     * @return false if the timeout elapsed first
+     */
+    public boolean flush(Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        synchronized (idle) {
+            while (pending > 0) {
+                long wait = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (wait <= 0) {
+                    return false;
+                }
+                idle.wait(wait);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes the queued backups and stops the writer thread. Backups submitted afterwards are written
+     * by the caller.
+     */
+    public void shutdown(Duration timeout) {
+        running = false;
+        try {
+            if (!flush(timeout)) {
+                log.warn(queue.size() + " backups could not be written before shutdown");
+            }
+            writerThread.join(timeout.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // submitted while the writer was stopping
+        List<Job> left = new ArrayList<>();
+        queue.drainTo(left);
+        for (Job job : left) {
+            List<Path> stored = new ArrayList<>(1);
+            write(job, stored);
+            force(job.store, stored);
+            done(1);
+        }
+        log.info("backup writer: " + getWrittenCount() + " written, " + getFailedCount() + " failed, " +
+                writtenByCaller.get() + " written by the calling thread");
+    }
+
+    /**
+     * Shuts down the writer of the application, if one was started
+     */
+    public static void shutdownInstance(Duration timeout) {
+        BackupWriter writer;
+        synchronized (BackupWriter.class) {
+            writer = instance;
+        }
+        if (writer != null) {
+            writer.shutdown(timeout);
+        }
+    }
+
+    /**
+     * Backups waiting for the writer
+     */
+    int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * How long the oldest backup not yet written has been waiting, 0 if the writer is idle
+     */
+    long getLagMillis() {
+        long oldest = currentJobSubmitted;
+        Job head = queue.peek();
+        if (oldest == 0 && head != null) {
+            oldest = head.submitted;
+        }
+        return oldest == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - oldest);
+    }
+
+    long getWrittenCount() {
+        return written.get();
+    }
+
+    long getFailedCount() {
+        return failed.get();
+    }
+}
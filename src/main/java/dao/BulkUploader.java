@@ -0,0 +1,165 @@
+/*
+ * Copyright 2018 Karl Kauc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dao;
+
+import common.XMLHelper;
+import common.XmlFileInfo;
+import common.XsdValidator;
+import model.UploadFileStatus;
+import model.UploadReply;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Uploads many data files with bounded parallelism.
+ * <p>
+ * Every file is read once, classified once, uploaded, and its reply is parsed into an
+ * {@link UploadReply}. Request and reply are backed up by {@link OeKBHTTP#uploadDataFile(XmlFileInfo)}.
+ * Only {@code parallelism} files are held in memory at the same time.
+ */
+public class BulkUploader {
+    private static final Logger log = LogManager.getLogger(BulkUploader.class);
+
+    /** Number of files uploaded at the same time */
+    private static final int DEFAULT_PARALLELISM = 4;
+
+    private final OeKBHTTP oekbHttp;
+    private final int parallelism;
+
+    /**
+     * Called from the upload threads whenever the status of a file changes.
+     */
+    public interface Listener {
+        void statusChanged(UploadFileStatus status);
+    }
+
+    public BulkUploader() {
+        this(new OeKBHTTP());
+    }
+
+    BulkUploader(OeKBHTTP oekbHttp) {
+        this(oekbHttp, DEFAULT_PARALLELISM);
+    }
+
+    BulkUploader(OeKBHTTP oekbHttp, int parallelism) {
+        this.oekbHttp = oekbHttp;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    public List<UploadFileStatus> upload(List<File> files, Listener listener) throws InterruptedException {
+        List<UploadFileStatus> statuses = new ArrayList<>();
+        for (File file : files) {
+            statuses.add(new UploadFileStatus(file));
+        }
+        uploadAll(statuses, listener);
+        return statuses;
+    }
+
+    /**
+     * Uploads the files of the given status objects and blocks until all are finished.
+     */
+    public void uploadAll(List<UploadFileStatus> statuses, Listener listener) throws InterruptedException {
+        if (statuses.isEmpty()) {
+            return;
+        }
+        log.info("Uploading {} files ({} in parallel)", statuses.size(), parallelism);
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, statuses.size()), r -> {
+            Thread t = new Thread(r, "bulk-upload");
+            t.setDaemon(true);
+            return t;
+        });
+
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (UploadFileStatus status : statuses) {
+                futures.add(executor.submit(() -> process(status, listener)));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    log.error("Upload task failed", e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        long failed = statuses.stream().filter(s -> s.getState() == UploadFileStatus.State.FAILED).count();
+        log.info("Bulk upload finished: {} files, {} failed", statuses.size(), failed);
+    }
+
+    private void process(UploadFileStatus status, Listener listener) {
+        File file = status.getFile();
+        status.setState(UploadFileStatus.State.UPLOADING);
+        fireStatusChanged(listener, status);
+
+        try {
+            XmlFileInfo fileInfo = XmlFileInfo.read(file);
+            status.setFileType(fileInfo.getFileType());
+
+            // reject files the server would refuse anyway, before any HTTP traffic
+            List<String> schemaErrors = XsdValidator.validate(fileInfo);
+            if (!schemaErrors.isEmpty()) {
+                status.setMessage("Not uploaded, file does not match "
+                        + XsdValidator.getSchemaName(fileInfo.getRootElement()) + ": " + schemaErrors.get(0));
+                status.setState(UploadFileStatus.State.FAILED);
+                fireStatusChanged(listener, status);
+                return;
+            }
+
+            log.info("Uploading file: " + file.getName());
+            String reply = oekbHttp.uploadDataFile(fileInfo);
+            status.setReply(reply);
+
+            if (reply == null || reply.isEmpty() || reply.startsWith("ERROR:")) {
+                status.setMessage(reply == null || reply.isEmpty() ? "No response from server" : reply);
+                status.setState(UploadFileStatus.State.FAILED);
+            } else {
+                UploadReply uploadReply = UploadReplyParser.parse(reply, UploadReplyParser.Mode.FIRST_N_ERRORS,
+                        UploadReplyParser.DEFAULT_MAX_ERRORS);
+                status.setUploadReply(uploadReply);
+                if (status.getFileType() == XMLHelper.FileTypes.OFI) {
+                    status.setOfiSumsOk(XMLHelper.isOfiResponseOk(reply));
+                }
+                status.setMessage(uploadReply != null && uploadReply.getOverallStatus() != null ?
+                        uploadReply.getOverallStatus().getDescription() : "Reply received");
+                status.setState(UploadFileStatus.State.DONE);
+            }
+        } catch (Exception e) {
+            log.error("Error uploading file {}", file, e);
+            status.setMessage("Error: " + e.getMessage());
+            status.setState(UploadFileStatus.State.FAILED);
+        }
+
+        fireStatusChanged(listener, status);
+    }
+
+    private static void fireStatusChanged(Listener listener, UploadFileStatus status) {
+        if (listener != null) {
+            listener.statusChanged(status);
+        }
+    }
+}
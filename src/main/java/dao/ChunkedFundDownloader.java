@@ -0,0 +1,460 @@
+/*
+ * Copyright 2018 Karl Kauc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dao;
+
+import common.XMLHelper;
+import model.DownloadParameters;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Splits a DOWNLOAD_FUND request for many LEI/OeNB-IDs into blocks of
+ * {@link DownloadParameters#getRequestBlockSize()} IDs, downloads the blocks in parallel
+ * and merges the FundsXML responses into one document.
+ * <p>
+ * Block responses are streamed to backup files and merged with StAX, so neither the single
+ * responses nor the merged document have to fit into memory.
+ */
+public class ChunkedFundDownloader {
+    private static final Logger log = LogManager.getLogger(ChunkedFundDownloader.class);
+
+    /** Number of blocks downloaded at the same time */
+    private static final int DEFAULT_PARALLELISM = 4;
+
+    /** Elements directly below the root which only describe the single response and are not merged */
+    private static final Set<String> NOT_MERGED = Set.of("ControlData");
+
+    private final OeKBHTTP oekbHttp;
+    private final int parallelism;
+
+    /**
+     * Callback for progress reporting. Called from the download threads.
+     */
+    public interface ProgressListener {
+        void chunkFinished(int finishedChunks, int totalChunks, int failedChunks);
+    }
+
+    /**
+     * Result of a chunked download
+     */
+    public static class Result {
+        private final Path file;
+        private final int chunkCount;
+        private final List<String> failedIds;
+
+        Result(Path file, int chunkCount, List<String> failedIds) {
+            this.file = file;
+            this.chunkCount = chunkCount;
+            this.failedIds = failedIds;
+        }
+
+        /** File with the merged FundsXML document of all successful blocks, null if nothing was downloaded */
+        public Path getFile() {
+            return file;
+        }
+
+        public int getChunkCount() {
+            return chunkCount;
+        }
+
+        /** IDs of blocks that failed or could not be merged; can be passed to a new download */
+        public List<String> getFailedIds() {
+            return failedIds;
+        }
+
+        public boolean isComplete() {
+            return failedIds.isEmpty();
+        }
+    }
+
+    public ChunkedFundDownloader() {
+        this(new OeKBHTTP(), DEFAULT_PARALLELISM);
+    }
+
+    ChunkedFundDownloader(OeKBHTTP oekbHttp, int parallelism) {
+        this.oekbHttp = oekbHttp;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    public Result download(DownloadParameters params, ProgressListener listener) throws InterruptedException {
+        int blockSize = params.getRequestBlockSize() != null && params.getRequestBlockSize() > 0 ?
+                params.getRequestBlockSize() : 10;
+        List<List<String>> chunks = partition(params.getLeiOenIds(), blockSize);
+
+        if (chunks.size() <= 1) {
+            Path file = downloadChunk(params, params.getLeiOenIds());
+            boolean ok = isValidResponse(file);
+            fireProgress(listener, 1, 1, ok ? 0 : 1);
+            return new Result(file, 1, ok ? new ArrayList<>() : new ArrayList<>(params.getLeiOenIds()));
+        }
+
+        log.info("Downloading {} IDs in {} blocks of max. {} IDs ({} in parallel)",
+                params.getLeiOenIds().size(), chunks.size(), blockSize, parallelism);
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, chunks.size()), r -> {
+            Thread t = new Thread(r, "fund-download");
+            t.setDaemon(true);
+            return t;
+        });
+
+        AtomicInteger finished = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        List<Future<Path>> futures = new ArrayList<>();
+        try {
+            for (List<String> chunk : chunks) {
+                futures.add(executor.submit(() -> {
+                    Path file = downloadChunk(params, chunk);
+                    boolean ok = isValidResponse(file);
+                    fireProgress(listener, finished.incrementAndGet(), chunks.size(), ok ? failed.get() : failed.incrementAndGet());
+                    return ok ? file : null;
+                }));
+            }
+
+            List<Path> responses = new ArrayList<>();
+            List<List<String>> responseIds = new ArrayList<>();
+            List<String> failedIds = new ArrayList<>();
+            for (int i = 0; i < futures.size(); i++) {
+                Path file = null;
+                try {
+                    file = futures.get(i).get();
+                } catch (ExecutionException e) {
+                    log.error("Block {} failed", i + 1, e.getCause());
+                }
+                if (file != null) {
+                    responses.add(file);
+                    responseIds.add(chunks.get(i));
+                } else {
+                    failedIds.addAll(chunks.get(i));
+                }
+            }
+
+            Path merged = merge(BackupStore.getInstance(), responses, responseIds, failedIds);
+            if (!failedIds.isEmpty()) {
+                log.warn("{} of {} IDs could not be downloaded", failedIds.size(), params.getLeiOenIds().size());
+            }
+            return new Result(merged, chunks.size(), failedIds);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Downloads one block. Transport errors are already retried by the {@link ResilientHttpExecutor};
+     * a reply that is no XML (e.g. "ERROR: ...") would be the same again, so the block is reported
+     * as failed and can be repeated by the user.
+     * @return the file of the response, which may be invalid or null
+     */
+    private Path downloadChunk(DownloadParameters params, List<String> ids) {
+        Path file = oekbHttp.downloadFundToFile(params.copyWithLeiOenIds(ids));
+        if (!isValidResponse(file)) {
+            log.warn("Block with {} IDs failed", ids.size());
+        }
+        return file;
+    }
+
+    /**
+     * A response is valid if its first non-whitespace character (after an optional BOM) is '<'.
+     */
+    static boolean isValidResponse(Path file) {
+        if (file == null) {
+            return false;
+        }
+        try (InputStream in = BackupStore.open(file)) {
+            int b;
+            while ((b = in.read()) != -1) {
+                if (b == 0xEF || b == 0xBB || b == 0xBF || Character.isWhitespace(b)) {
+                    continue;
+                }
+                return b == '<';
+            }
+        } catch (IOException e) {
+            log.error("Error reading " + file, e);
+        }
+        return false;
+    }
+
+    private static void fireProgress(ProgressListener listener, int finished, int total, int failed) {
+        if (listener != null) {
+            listener.chunkFinished(finished, total, failed);
+        }
+    }
+
+    static List<List<String>> partition(List<String> ids, int blockSize) {
+        List<List<String>> chunks = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += blockSize) {
+            chunks.add(new ArrayList<>(ids.subList(i, Math.min(i + blockSize, ids.size()))));
+        }
+        return chunks;
+    }
+
+    /**
+     * Merges the block responses into one backup file. Blocks that are no well-formed XML can not
+     * be merged; their IDs are added to {@code failedIds} and the other blocks are merged without them.
+     * @param responseIds the IDs of each response
+     * @return the merged file, null if no block could be merged
+     */
+    static Path merge(BackupStore backupStore, List<Path> responses, List<List<String>> responseIds,
+                      List<String> failedIds) {
+        if (responses.size() <= 1) {
+            return responses.isEmpty() ? null : responses.get(0);
+        }
+
+        try {
+            return mergeToBackup(backupStore, responses);
+        } catch (IOException | XMLStreamException e) {
+            log.error("Error merging FundsXML responses, checking the blocks", e);
+        }
+
+        List<Path> mergeable = new ArrayList<>();
+        List<String> mergeableIds = new ArrayList<>();
+        for (int i = 0; i < responses.size(); i++) {
+            if (isWellFormed(responses.get(i))) {
+                mergeable.add(responses.get(i));
+                mergeableIds.addAll(responseIds.get(i));
+            } else {
+                log.warn("Block with {} IDs is no well-formed XML: {}", responseIds.get(i).size(), responses.get(i));
+                failedIds.addAll(responseIds.get(i));
+            }
+        }
+
+        if (mergeable.size() == 1) {
+            return mergeable.get(0);
+        }
+        if (mergeable.size() > 1 && mergeable.size() < responses.size()) {
+            try {
+                return mergeToBackup(backupStore, mergeable);
+            } catch (IOException | XMLStreamException e) {
+                log.error("Error merging FundsXML responses", e);
+            }
+        }
+        // the blocks are well-formed but still can not be merged
+        failedIds.addAll(mergeableIds);
+        return null;
+    }
+
+    private static Path mergeToBackup(BackupStore backupStore, List<Path> responses) throws IOException, XMLStreamException {
+        Path target = backupStore.newTempFile();
+        try {
+            mergeFiles(responses, target);
+        } catch (IOException | XMLStreamException | RuntimeException e) {
+            Files.deleteIfExists(target);
+            throw e;
+        }
+        log.info("Merged {} blocks", responses.size());
+
+        try {
+            return backupStore.commit(target, "DOWNLOAD_FUND_MERGED");
+        } catch (IOException e) {
+            log.error("Error storing merged file " + target, e);
+            return target;
+        }
+    }
+
+    /**
+     * Reads the whole file with StAX
+     */
+    static boolean isWellFormed(Path file) {
+        try (InputStream in = BackupStore.open(file)) {
+            XMLStreamReader reader = XMLHelper.getInputFactory().createXMLStreamReader(in);
+            try {
+                while (reader.hasNext()) {
+                    reader.next();
+                }
+            } finally {
+                reader.close();
+            }
+            return true;
+        } catch (IOException | XMLStreamException e) {
+            log.debug("{} is no well-formed XML: {}", file, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Merges FundsXML responses. The root element and the ControlData of the first response are
+     * taken over; the children of every other container below the root (Funds, AssetMasterData, ...)
+     * of all responses are streamed into one container of the same name. Assets are only added once
+     * per UniqueID.
+     */
+    static void mergeFiles(List<Path> files, Path target) throws IOException, XMLStreamException {
+        Map<String, StartElement> containers = new LinkedHashMap<>();
+        StartElement root = null;
+        for (Path file : files) {
+            StartElement fileRoot = collectContainers(file, containers);
+            if (root == null) {
+                root = fileRoot;
+            }
+        }
+        if (root == null) {
+            throw new XMLStreamException("No root element found in " + files.get(0));
+        }
+
+        XMLEventFactory eventFactory = XMLEventFactory.newInstance();
+        Set<String> knownAssets = new HashSet<>();
+
+        try (OutputStream out = Files.newOutputStream(target)) {
+            XMLEventWriter writer = XMLOutputFactory.newInstance().createXMLEventWriter(out, "UTF-8");
+            writer.add(eventFactory.createStartDocument("UTF-8", "1.0"));
+            writer.add(root);
+
+            for (Map.Entry<String, StartElement> container : containers.entrySet()) {
+                writer.add(container.getValue());
+                for (Path file : files) {
+                    if (copyContainerContent(file, container.getKey(), writer, knownAssets)
+                            && NOT_MERGED.contains(container.getKey())) {
+                        break;
+                    }
+                }
+                writer.add(eventFactory.createEndElement(container.getValue().getName(), null));
+            }
+
+            writer.add(eventFactory.createEndElement(root.getName(), null));
+            writer.add(eventFactory.createEndDocument());
+            writer.close();
+        }
+    }
+
+    /**
+     * Adds the containers below the root of the file in document order and returns the root element.
+     */
+    private static StartElement collectContainers(Path file, Map<String, StartElement> containers)
+            throws IOException, XMLStreamException {
+        try (InputStream in = BackupStore.open(file)) {
+            XMLEventReader reader = XMLHelper.getInputFactory().createXMLEventReader(in);
+            StartElement root = null;
+            int depth = 0;
+            try {
+                while (reader.hasNext()) {
+                    XMLEvent event = reader.nextEvent();
+                    if (event.isStartElement()) {
+                        depth++;
+                        if (depth == 1) {
+                            root = event.asStartElement();
+                        } else if (depth == 2) {
+                            containers.putIfAbsent(event.asStartElement().getName().getLocalPart(), event.asStartElement());
+                        }
+                    } else if (event.isEndElement()) {
+                        depth--;
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+            return root;
+        }
+    }
+
+    /**
+     * Streams the children of the container {@code name} of one file to the writer.
+     * @return true if the file contains the container
+     */
+    private static boolean copyContainerContent(Path file, String name, XMLEventWriter writer, Set<String> knownAssets)
+            throws IOException, XMLStreamException {
+        boolean found = false;
+        try (InputStream in = BackupStore.open(file)) {
+            XMLEventReader reader = XMLHelper.getInputFactory().createXMLEventReader(in);
+            try {
+                int depth = 0;
+                boolean inContainer = false;
+                List<XMLEvent> asset = null;
+                String assetId = null;
+                boolean inAssetId = false;
+
+                while (reader.hasNext()) {
+                    XMLEvent event = reader.nextEvent();
+
+                    if (event.isStartElement()) {
+                        depth++;
+                        String localName = event.asStartElement().getName().getLocalPart();
+                        if (depth == 2 && name.equals(localName)) {
+                            inContainer = true;
+                            found = true;
+                            continue;
+                        }
+                        if (inContainer && depth == 3 && "Asset".equals(localName)) {
+                            asset = new ArrayList<>();
+                            assetId = null;
+                        } else if (asset != null && depth == 4 && "UniqueID".equals(localName)) {
+                            inAssetId = true;
+                            assetId = "";
+                        }
+                    } else if (event.isEndElement()) {
+                        depth--;
+                        if (inContainer && depth == 1) {
+                            inContainer = false;
+                            continue;
+                        }
+                        if (asset != null && depth == 2) {
+                            asset.add(event);
+                            if (assetId == null || knownAssets.add(assetId.trim())) {
+                                for (XMLEvent assetEvent : asset) {
+                                    writer.add(assetEvent);
+                                }
+                            }
+                            asset = null;
+                            continue;
+                        }
+                        inAssetId = false;
+                    } else if (event.isCharacters() && inContainer) {
+                        if (depth == 2 && event.asCharacters().isWhiteSpace()) {
+                            continue;
+                        }
+                        if (inAssetId) {
+                            assetId += event.asCharacters().getData();
+                        }
+                    }
+
+                    if (!inContainer) {
+                        continue;
+                    }
+                    if (asset != null) {
+                        asset.add(event);
+                    } else {
+                        writer.add(event);
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+        return found;
+    }
+}
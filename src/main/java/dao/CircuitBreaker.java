@@ -0,0 +1,109 @@
+/*
+ * Copyright 2018 Karl Kauc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dao;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Circuit breaker for one FDP server (prod or QAS).
+ * <p>
+ * After {@code failureThreshold} consecutive failures the circuit opens and requests fail
+ * immediately with a {@link CircuitOpenException} instead of waiting for timeouts. When the
+ * open duration has passed a single trial request is let through; its result closes the
+ * circuit again or keeps it open for another period.
+ */
+public class CircuitBreaker {
+    private static final Logger log = LogManager.getLogger(CircuitBreaker.class);
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /**
+     * Thrown instead of sending a request while the circuit of the server is open.
+     */
+    public static class CircuitOpenException extends IOException {
+        public CircuitOpenException(String message) {
+            super(message);
+        }
+    }
+
+    private final String server;
+    private final int failureThreshold;
+    private final long openDurationMillis;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialRunning;
+
+    public CircuitBreaker(String server, int failureThreshold, Duration openDuration) {
+        this.server = server;
+        this.failureThreshold = failureThreshold;
+        this.openDurationMillis = openDuration.toMillis();
+    }
+
+    /**
+     * Must be called before each request.
+     * @throws CircuitOpenException if the server is currently considered unavailable
+     */
+    public synchronized void acquirePermission() throws CircuitOpenException {
+        if (state == State.OPEN) {
+            long remaining = openedAt + openDurationMillis - System.currentTimeMillis();
+            if (remaining > 0) {
+                throw new CircuitOpenException("Server " + server + " is unavailable, next try in " +
+                        (remaining / 1000 + 1) + " s");
+            }
+            state = State.HALF_OPEN;
+            log.info("circuit for {} half open, sending trial request", server);
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialRunning) {
+                throw new CircuitOpenException("Server " + server + " is unavailable, waiting for trial request");
+            }
+            trialRunning = true;
+        }
+    }
+
+    public synchronized void recordSuccess() {
+        if (state != State.CLOSED) {
+            log.info("circuit for {} closed again", server);
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        trialRunning = false;
+    }
+
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            if (state != State.OPEN) {
+                log.warn("circuit for {} opened after {} consecutive failures", server, consecutiveFailures);
+            }
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+        }
+        trialRunning = false;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+}
@@ -29,14 +29,13 @@ import org.w3c.dom.NodeList;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import java.io.ByteArrayInputStream;
-import java.io.File;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -65,21 +64,13 @@ public class DownloadedInformation {
 
         if (applicationSettings.isFileSystem()) {
             // Read from filesystem backup
-            File backupDir = new File(applicationSettings.getBackupDirectory());
-            File[] potentialFiles = backupDir.listFiles((dir, name) ->
-                    name.contains("DOWNLOAD_OWN_DATA_DOWNLOADED.xml") ||
-                    name.contains("DOWNLOADED_INFORMATION.xml"));
+            Path latestFile = BackupStore.getInstance().findLatest("DOWNLOAD_OWN_DATA_DOWNLOADED", "DOWNLOADED_INFORMATION").orElse(null);
 
-            log.debug("Potential downloaded information files: " + (potentialFiles != null ? Arrays.toString(potentialFiles) : "none"));
-
-            if (potentialFiles != null && potentialFiles.length > 0) {
-                File latestFile = Arrays.stream(potentialFiles)
-                        .max((f1, f2) -> f1.getName().compareTo(f2.getName()))
-                        .orElse(potentialFiles[0]);
+            if (latestFile != null) {
                 log.debug("Reading downloaded information from file: " + latestFile);
 
                 try {
-                    xmlString = new String(java.nio.file.Files.readAllBytes(latestFile.toPath()), StandardCharsets.UTF_8);
+                    xmlString = BackupStore.readString(latestFile);
                 } catch (Exception e) {
                     log.error("Error reading downloaded information file", e);
                     return new ArrayList<>();
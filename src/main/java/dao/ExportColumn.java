@@ -0,0 +1,45 @@
+/*
+ * Copyright 2024 Karl Kauc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dao;
+
+import java.util.function.Function;
+
+/**
+ * One column of a table export: the header and how the cell value is taken from a row
+ *
+ * @param <T> the row type
+ */
+public class ExportColumn<T> {
+    private final String header;
+    private final Function<T, ?> value;
+
+    private ExportColumn(String header, Function<T, ?> value) {
+        this.header = header;
+        this.value = value;
+    }
+
+    public static <T> ExportColumn<T> of(String header, Function<T, ?> value) {
+        return new ExportColumn<>(header, value);
+    }
+
+    public String getHeader() {
+        return header;
+    }
+
+    public Object getValue(T row) {
+        return value.apply(row);
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2018 Karl Kauc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dao;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads isinlei.csv into a heap buffer and scans its bytes for ';' and line ends.
+ * <p>
+ * No line strings and no regex splits are created, only the field values themselves. Rows follow the
+ * rules of the former {@code String.split(";")} parser: trailing empty fields do not count and a row
+ * needs at least 8 fields. The file is read as UTF-8 if it is valid UTF-8, otherwise as windows-1252
+ * (the export of the master data is not UTF-8).
+ */
+public final class FundDataLoader {
+    private static final Logger log = LogManager.getLogger(FundDataLoader.class);
+
+    static final Charset LEGACY_CHARSET = Charset.forName("windows-1252");
+
+    private static final int FIELD_COUNT = 8;
+
+    private FundDataLoader() {
+    }
+
+    public static List<FundEnhancerData> load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("ISIN-LEI file too large: " + size + " bytes");
+            }
+            // read, not mapped: a mapping keeps the file locked on Windows and breaks the hot reload
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    break;
+                }
+            }
+            buffer.flip();
+            List<FundEnhancerData> rows = parse(buffer);
+            log.debug("Loaded {} records from {}", rows.size(), file);
+            return rows;
+        }
+    }
+
+    static List<FundEnhancerData> parse(ByteBuffer buffer) {
+        Charset charset = isUtf8(buffer) ? StandardCharsets.UTF_8 : LEGACY_CHARSET;
+        List<FundEnhancerData> rows = new ArrayList<>(buffer.limit() / 120);
+
+        int[] starts = new int[FIELD_COUNT + 1];
+        int[] ends = new int[FIELD_COUNT + 1];
+        byte[] scratch = new byte[256];
+
+        int limit = buffer.limit();
+        int pos = 0;
+        while (pos < limit) {
+            // fields of one line, positions are absolute in the buffer
+            int fields = 0;
+            int lastNonEmpty = 0;
+            int fieldStart = pos;
+            int b = 0;
+            while (pos < limit) {
+                b = buffer.get(pos);
+                if (b == ';' || b == '\n' || b == '\r') {
+                    if (fields < starts.length) {
+                        starts[fields] = fieldStart;
+                        ends[fields] = pos;
+                    }
+                    fields++;
+                    if (pos > fieldStart) {
+                        lastNonEmpty = fields;
+                    }
+                    pos++;
+                    fieldStart = pos;
+                    if (b != ';') {
+                        break;
+                    }
+                } else {
+                    pos++;
+                }
+            }
+            if (pos == limit && b != '\n' && b != '\r') {
+                // last line without line end
+                if (fields < starts.length) {
+                    starts[fields] = fieldStart;
+                    ends[fields] = limit;
+                }
+                fields++;
+                if (limit > fieldStart) {
+                    lastNonEmpty = fields;
+                }
+            }
+            if (b == '\r' && pos < limit && buffer.get(pos) == '\n') {
+                pos++;
+            }
+
+            if (lastNonEmpty >= FIELD_COUNT) {
+                FundEnhancerData fed = new FundEnhancerData();
+                fed.setISIN(decode(buffer, starts[0], ends[0], false, charset, scratch));
+                fed.setFondsbezeichnung(FundEnhancer.normalizeFundName(decode(buffer, starts[1], ends[1], true, charset, scratch)));
+                fed.setKAG(decode(buffer, starts[2], ends[2], true, charset, scratch));
+                fed.setOENB_ID(decode(buffer, starts[3], ends[3], true, charset, scratch));
+                fed.setLEI(decode(buffer, starts[4], ends[4], true, charset, scratch));
+                fed.setLEIStatus(decode(buffer, starts[5], ends[5], true, charset, scratch));
+                fed.setWRAPPER(decode(buffer, starts[6], ends[6], true, charset, scratch));
+                fed.setISINStatus(decode(buffer, starts[7], ends[7], true, charset, scratch));
+                rows.add(fed);
+            }
+        }
+        return rows;
+    }
+
+    private static String decode(ByteBuffer buffer, int start, int end, boolean trim, Charset charset, byte[] scratch) {
+        if (trim) {
+            // bytes up to ' ' are the same characters in UTF-8 and windows-1252, so this equals String.trim()
+            while (start < end && (buffer.get(start) & 0xFF) <= ' ') {
+                start++;
+            }
+            while (end > start && (buffer.get(end - 1) & 0xFF) <= ' ') {
+                end--;
+            }
+        }
+        int length = end - start;
+        byte[] bytes = length <= scratch.length ? scratch : new byte[length];
+        buffer.get(start, bytes, 0, length);
+        return new String(bytes, 0, length, charset);
+    }
+
+    /**
+     * Checks the byte sequences only, which is enough to tell UTF-8 from a single byte charset
+     */
+    static boolean isUtf8(ByteBuffer buffer) {
+        int limit = buffer.limit();
+        int pos = 0;
+        while (pos < limit) {
+            int b = buffer.get(pos++) & 0xFF;
+            int continuation;
+            if (b < 0x80) {
+                continue;
+            } else if (b >= 0xC2 && b <= 0xDF) {
+                continuation = 1;
+            } else if (b >= 0xE0 && b <= 0xEF) {
+                continuation = 2;
+            } else if (b >= 0xF0 && b <= 0xF4) {
+                continuation = 3;
+            } else {
+                return false;
+            }
+            for (int i = 0; i < continuation; i++) {
+                if (pos >= limit || (buffer.get(pos++) & 0xC0) != 0x80) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -19,32 +19,37 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
 
+/**
+ * Fund names and IDs from resources/isinlei.csv.
+ * <p>
+ * The data is held in an immutable {@link FundIndex} that is published through a volatile field once it is
+ * completely built. Lookups only read that field and need no lock, only loading is synchronized.
+ * Changes of the file are picked up by a {@link FundDataWatcher}; the new index is built in the background
+ * and replaces the old one in a single write. Startup reads the index from a {@link FundSnapshot} as long
+ * as the CSV has not changed.
+ */
 public class FundEnhancer {
     private static final Logger log = LogManager.getLogger(FundEnhancer.class);
-    private static FundEnhancer instance;
+    private static final FundEnhancer instance = new FundEnhancer();
+
+    // fund name suffixes of share classes, removed once while loading
+    private static final List<String> IGNORED_NAME_SUFFIXES = List.of("(A)", "(T)", "(VT)", "(V)", "(VA)", "(R)", "(I)", "(S)", "(VS)", "(RT)", "(VI)", "(IT)");
 
-    private List<FundEnhancerData> data = new ArrayList<>();
-    private Map<String, String> fundNameCache = new HashMap<>();
-    private boolean dataLoaded = false;
+    // null until the first load attempt
+    private volatile FundIndex index;
+    private FundDataWatcher watcher;
 
     private FundEnhancer() {
         // Private constructor for singleton
     }
 
-    public static synchronized FundEnhancer getInstance() {
-        if (instance == null) {
-            instance = new FundEnhancer();
-        }
+    public static FundEnhancer getInstance() {
         return instance;
     }
 
@@ -58,119 +63,142 @@ public class FundEnhancer {
         log.debug("Fund name by LEI: {}", getInstance().getAllFundDataByID("529900S56OD7UE7H1V04").get(0).getFondsbezeichnung());
     }
 
-    public synchronized void readData() {
-        if (dataLoaded) {
+    public void readData() {
+        if (index != null) {
             return;
         }
+        synchronized (this) {
+            if (index != null) {
+                return;
+            }
+
+            Path file = Path.of("resources", "isinlei.csv");
 
-        String filePath = "resources" + File.separator + "isinlei.csv";
-        File file = new File(filePath);
+            if (Files.exists(file)) {
+                log.debug("ISIN-LEI File [{}] will be loaded", file.toAbsolutePath());
+                try {
+                    index = FundSnapshot.load(file);
+                } catch (IOException e) {
+                    log.error("Error reading ISIN LEI file", e);
+                }
+            } else {
+                log.info("ISIN-LEI CSV File not found under 'resources' folder: {}", file.toAbsolutePath());
+            }
 
-        if (file.exists()) {
-            log.debug("ISIN-LEI File [{}] will be loaded", file.getAbsolutePath());
-            try (FileReader fileReader = new FileReader(file);
-                 BufferedReader br = new BufferedReader(fileReader)) {
-                loadDataFromReader(br);
-            } catch (IOException e) {
-                log.error("Error reading ISIN LEI file", e);
+            if (index == null) {
+                // do not retry on every lookup, the watcher picks the file up once it is there
+                index = FundIndex.EMPTY;
             }
-        } else {
-            log.info("ISIN-LEI CSV File not found under 'resources' folder: {}", file.getAbsolutePath());
+            startWatching(file);
+        }
+    }
+
+    private void startWatching(Path file) {
+        if (watcher != null || !Files.isDirectory(file.toAbsolutePath().getParent())) {
+            return;
+        }
+        try {
+            watcher = new FundDataWatcher(file, () -> reload(file));
+        } catch (IOException e) {
+            log.warn("ISIN-LEI file cannot be watched, changes need a restart", e);
         }
     }
 
+    /**
+     * Loads the file again and swaps the new index in. Lookups keep using the old index until then,
+     * and keep it if the file cannot be read.
+     */
+    void reload(Path file) {
+        FundIndex reloaded;
+        try {
+            reloaded = FundSnapshot.load(file);
+        } catch (IOException e) {
+            log.warn("ISIN-LEI file could not be reloaded, keeping {} records", getIndex().size(), e);
+            return;
+        }
+        synchronized (this) {
+            index = reloaded;
+        }
+        log.info("ISIN-LEI file reloaded with {} records", reloaded.size());
+    }
+
     // Made public for testing purposes
     public synchronized void loadDataFromReader(BufferedReader br) throws IOException {
-        if (dataLoaded) {
+        if (index != null) {
             return;
         }
-        
+
+        List<FundEnhancerData> rows = new ArrayList<>();
         String line;
-        int recordCount = 0;
         while ((line = br.readLine()) != null) {
             String[] parts = line.split(";");
             if (parts.length >= 8) {
                 FundEnhancerData fed = new FundEnhancerData();
                 fed.setISIN(parts[0]);
-                fed.setFondsbezeichnung(parts[1].trim());
+                fed.setFondsbezeichnung(normalizeFundName(parts[1].trim()));
                 fed.setKAG(parts[2].trim());
                 fed.setOENB_ID(parts[3].trim());
                 fed.setLEI(parts[4].trim());
                 fed.setLEIStatus(parts[5].trim());
                 fed.setWRAPPER(parts[6].trim());
                 fed.setISINStatus(parts[7].trim());
-                data.add(fed);
-                recordCount++;
+                rows.add(fed);
             }
         }
-        log.debug("Loaded {} records from reader", recordCount);
-        dataLoaded = true;
+        index = FundIndex.of(rows);
+        log.debug("Loaded {} records from reader", rows.size());
+    }
+
+    /**
+     * Removes share class suffixes, also combined ones like "(T) (IT)"
+     */
+    static String normalizeFundName(String name) {
+        String previous;
+        do {
+            previous = name;
+            for (String suffix : IGNORED_NAME_SUFFIXES) {
+                if (name.endsWith(suffix)) {
+                    name = name.replace(suffix, "").trim();
+                }
+            }
+        } while (!name.equals(previous));
+        return name;
     }
 
     /**
      * Resets the singleton instance. Used for testing.
      */
-    public static synchronized void reset() {
-        if (instance != null) {
-            instance.data.clear();
-            instance.fundNameCache.clear();
-            instance.dataLoaded = false;
+    public static void reset() {
+        synchronized (instance) {
+            instance.index = null;
         }
     }
 
+    /**
+     * All rows whose LEI, OeNB-ID or ISIN equals the given ID, in this order
+     */
     public List<FundEnhancerData> getAllFundDataByID(String id) {
-        if (data.size() == 0) {
-            readData();
-        }
-
-        List<FundEnhancerData> leiReturn = data.stream()
-                .filter(row -> id.equals(row.getLEI()))
-                .collect(Collectors.toList());
-
-        List<FundEnhancerData> oenbReturn = data.stream()
-                .filter(row -> id.equals(row.getOENB_ID()))
-                .collect(Collectors.toList());
-
-        List<FundEnhancerData> isinReturn = data.stream()
-                .filter(row -> id.equals(row.getISIN()))
-                .collect(Collectors.toList());
-
-        List<String> ignore = List.of("(A)", "(T)", "(VT)", "(V)", "(VA)", "(R)", "(I)", "(S)", "(VS)", "(RT)", "(VI)", "(IT)");
-
-        List<FundEnhancerData> combine = new ArrayList<>();
-        combine.addAll(leiReturn);
-        combine.addAll(oenbReturn);
-        combine.addAll(isinReturn);
+        return getIndex().lookup(id);
+    }
 
-        for (FundEnhancerData fundData : combine) {
-            for (String suffix : ignore) {
-                if (fundData.getFondsbezeichnung() != null && fundData.getFondsbezeichnung().endsWith(suffix)) {
-                    fundData.setFondsbezeichnung(fundData.getFondsbezeichnung().replace(suffix, "").trim());
-                }
-            }
+    /**
+     * The current index, loaded on first use
+     */
+    public FundIndex getIndex() {
+        FundIndex current = index;
+        if (current == null) {
+            readData();
+            current = index;
         }
-
-        return combine;
+        return current != null ? current : FundIndex.EMPTY;
     }
 
     public static String getFundNameByID(String id) {
-        // Check cache first
-        FundEnhancer instance = getInstance();
-        if (instance.fundNameCache.containsKey(id)) {
-            return instance.fundNameCache.get(id);
-        }
-
-        List<FundEnhancerData> temp = instance.getAllFundDataByID(id);
-        String result;
+        List<FundEnhancerData> temp = getInstance().getAllFundDataByID(id);
 
         if (temp != null && !temp.isEmpty()) {
-            result = temp.get(0).getFondsbezeichnung();
-        } else {
-            result = "not found";
+            return temp.get(0).getFondsbezeichnung();
         }
-
-        // Cache the result
-        instance.fundNameCache.put(id, result);
-        return result;
+        return "not found";
     }
 }
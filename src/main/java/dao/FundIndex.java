@@ -0,0 +1,128 @@
+/*
+ * Copyright 2018 Karl Kauc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dao;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable lookup tables over the rows of isinlei.csv.
+ * <p>
+ * A FundIndex is built completely before it is published and never changed afterwards, so it can be
+ * read from any thread without locking. A reload builds a new index and replaces the old one as a whole.
+ */
+public final class FundIndex {
+    static final FundIndex EMPTY = new FundIndex(List.of(), Map.of(), Map.of(), Map.of());
+
+    private final List<FundEnhancerData> rows;
+    // one LEI or OeNB-ID belongs to several ISINs, so every index holds all rows of an ID in file order
+    private final Map<String, List<FundEnhancerData>> byLei;
+    private final Map<String, List<FundEnhancerData>> byOenbId;
+    private final Map<String, List<FundEnhancerData>> byIsin;
+    // built on first use; building it twice in a race does no harm
+    private volatile FundSearchIndex searchIndex;
+
+    private FundIndex(List<FundEnhancerData> rows, Map<String, List<FundEnhancerData>> byLei,
+                      Map<String, List<FundEnhancerData>> byOenbId, Map<String, List<FundEnhancerData>> byIsin) {
+        this.rows = rows;
+        this.byLei = byLei;
+        this.byOenbId = byOenbId;
+        this.byIsin = byIsin;
+    }
+
+    public static FundIndex of(List<FundEnhancerData> rows) {
+        Map<String, List<FundEnhancerData>> byLei = new HashMap<>();
+        Map<String, List<FundEnhancerData>> byOenbId = new HashMap<>();
+        Map<String, List<FundEnhancerData>> byIsin = new HashMap<>();
+        for (FundEnhancerData row : rows) {
+            addToIndex(byLei, row.getLEI(), row);
+            addToIndex(byOenbId, row.getOENB_ID(), row);
+            addToIndex(byIsin, row.getISIN(), row);
+        }
+        return of(rows, byLei, byOenbId, byIsin);
+    }
+
+    /**
+     * Index from rows that are already grouped by ID, e.g. read from a {@link FundSnapshot}
+     */
+    static FundIndex of(List<FundEnhancerData> rows, Map<String, List<FundEnhancerData>> byLei,
+                        Map<String, List<FundEnhancerData>> byOenbId, Map<String, List<FundEnhancerData>> byIsin) {
+        return new FundIndex(List.copyOf(rows), freeze(byLei), freeze(byOenbId), freeze(byIsin));
+    }
+
+    private static void addToIndex(Map<String, List<FundEnhancerData>> index, String id, FundEnhancerData row) {
+        if (id != null) {
+            index.computeIfAbsent(id, key -> new ArrayList<>(1)).add(row);
+        }
+    }
+
+    private static Map<String, List<FundEnhancerData>> freeze(Map<String, List<FundEnhancerData>> index) {
+        index.replaceAll((id, rows) -> List.copyOf(rows));
+        return Map.copyOf(index);
+    }
+
+    /**
+     * All rows whose LEI, OeNB-ID or ISIN equals the given ID, in this order
+     */
+    public List<FundEnhancerData> lookup(String id) {
+        if (id == null) {
+            return List.of();
+        }
+        List<FundEnhancerData> lei = byLei.getOrDefault(id, List.of());
+        List<FundEnhancerData> oenb = byOenbId.getOrDefault(id, List.of());
+        List<FundEnhancerData> isin = byIsin.getOrDefault(id, List.of());
+
+        List<FundEnhancerData> combine = new ArrayList<>(lei.size() + oenb.size() + isin.size());
+        combine.addAll(lei);
+        combine.addAll(oenb);
+        combine.addAll(isin);
+        return combine;
+    }
+
+    Map<String, List<FundEnhancerData>> getLeiIndex() {
+        return byLei;
+    }
+
+    Map<String, List<FundEnhancerData>> getOenbIdIndex() {
+        return byOenbId;
+    }
+
+    Map<String, List<FundEnhancerData>> getIsinIndex() {
+        return byIsin;
+    }
+
+    /**
+     * Type-ahead search over the rows of this index
+     */
+    public FundSearchIndex getSearchIndex() {
+        FundSearchIndex current = searchIndex;
+        if (current == null) {
+            current = FundSearchIndex.build(rows);
+            searchIndex = current;
+        }
+        return current;
+    }
+
+    public List<FundEnhancerData> getRows() {
+        return rows;
+    }
+
+    public int size() {
+        return rows.size();
+    }
+}
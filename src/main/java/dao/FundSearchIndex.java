@@ -0,0 +1,423 @@
+/*
+ * Copyright 2018 Karl Kauc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dao;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Type-ahead search over ISIN, LEI, OeNB-ID, fund name and KAG of the fund master data.
+ * <p>
+ * Queries shorter than three characters are answered from a sorted array of all IDs and name words
+ * (prefix search by binary search), longer queries from a trigram index whose posting lists are
+ * intersected and then checked for the actual substring. Matches are ranked (exact ID, ID prefix,
+ * name prefix, word prefix, KAG prefix, anywhere) and the best {@code limit} are returned.
+ * <p>
+ * The index is immutable and built once per {@link FundIndex}, see {@link FundIndex#getSearchIndex()}.
+ */
+public final class FundSearchIndex {
+
+    /**
+     * The identifier a search is for. Results of ISIN, LEI and OENB_ID searches have that identifier
+     * and contain every identifier only once.
+     */
+    public enum Field {
+        ANY(row -> null),
+        ISIN(FundEnhancerData::getISIN),
+        LEI(FundEnhancerData::getLEI),
+        OENB_ID(FundEnhancerData::getOENB_ID);
+
+        private final Function<FundEnhancerData, String> value;
+
+        Field(Function<FundEnhancerData, String> value) {
+            this.value = value;
+        }
+
+        public String valueOf(FundEnhancerData row) {
+            return value.apply(row);
+        }
+    }
+
+    private static final int SCORE_EXACT_ID = 1000;
+    private static final int SCORE_ID_PREFIX = 800;
+    private static final int SCORE_NAME_PREFIX = 600;
+    private static final int SCORE_WORD_PREFIX = 500;
+    private static final int SCORE_KAG_PREFIX = 300;
+    private static final int SCORE_CONTAINS = 100;
+
+    private static final byte TERM_ID = 0;
+    private static final byte TERM_NAME_START = 1;
+    private static final byte TERM_WORD = 2;
+
+    // sorted by ISIN, so equal scores are ranked by row number
+    private final FundEnhancerData[] rows;
+    // upper case values per row: ISIN, LEI, OeNB-ID, name, KAG
+    private final String[][] values;
+    // per Field: number of the distinct identifier of every row, -1 if the row has none
+    private final int[][] groups;
+    private final int[] groupCounts;
+
+    // prefix search: all IDs and name words, sorted, with the row they belong to and what they are
+    private final String[] terms;
+    private final int[] termRows;
+    private final byte[] termKinds;
+
+    // trigram of the upper case text -> ascending row numbers
+    private final Map<Long, int[]> trigrams;
+
+    private FundSearchIndex(FundEnhancerData[] rows, String[][] values, int[][] groups, int[] groupCounts,
+                            String[] terms, int[] termRows, byte[] termKinds, Map<Long, int[]> trigrams) {
+        this.rows = rows;
+        this.values = values;
+        this.groups = groups;
+        this.groupCounts = groupCounts;
+        this.terms = terms;
+        this.termRows = termRows;
+        this.termKinds = termKinds;
+        this.trigrams = trigrams;
+    }
+
+    public static FundSearchIndex build(List<FundEnhancerData> data) {
+        FundEnhancerData[] rows = data.toArray(new FundEnhancerData[0]);
+        Arrays.sort(rows, Comparator.comparing(row -> normalize(row.getISIN())));
+
+        String[][] values = new String[rows.length][];
+        List<String> termList = new ArrayList<>();
+        List<Integer> termRowList = new ArrayList<>();
+        List<Byte> termKindList = new ArrayList<>();
+        Map<Long, IntList> postings = new HashMap<>();
+
+        Field[] fields = Field.values();
+        int[][] groups = new int[fields.length][rows.length];
+        int[] groupCounts = new int[fields.length];
+        List<Map<String, Integer>> groupNumbers = new ArrayList<>();
+        for (int i = 0; i < fields.length; i++) {
+            groupNumbers.add(new HashMap<>());
+        }
+
+        for (int row = 0; row < rows.length; row++) {
+            FundEnhancerData fund = rows[row];
+            String[] rowValues = {normalize(fund.getISIN()), normalize(fund.getLEI()), normalize(fund.getOENB_ID()),
+                    normalize(fund.getFondsbezeichnung()), normalize(fund.getKAG())};
+            values[row] = rowValues;
+
+            groups[Field.ANY.ordinal()][row] = row;
+            groupCounts[Field.ANY.ordinal()] = rows.length;
+            for (Field field : fields) {
+                if (field == Field.ANY) {
+                    continue;
+                }
+                int f = field.ordinal();
+                String id = field.valueOf(fund);
+                if (id == null || id.isBlank()) {
+                    groups[f][row] = -1;
+                } else {
+                    Map<String, Integer> numbers = groupNumbers.get(f);
+                    Integer number = numbers.get(id);
+                    if (number == null) {
+                        number = numbers.size();
+                        numbers.put(id, number);
+                    }
+                    groups[f][row] = number;
+                    groupCounts[f] = numbers.size();
+                }
+            }
+
+            for (int i = 0; i < 3; i++) {
+                if (!rowValues[i].isEmpty()) {
+                    termList.add(rowValues[i]);
+                    termRowList.add(row);
+                    termKindList.add(TERM_ID);
+                }
+            }
+            String name = rowValues[3];
+            int wordStart = -1;
+            for (int i = 0; i <= name.length(); i++) {
+                boolean letter = i < name.length() && Character.isLetterOrDigit(name.charAt(i));
+                if (letter && wordStart < 0) {
+                    wordStart = i;
+                } else if (!letter && wordStart >= 0) {
+                    termList.add(name.substring(wordStart, i));
+                    termRowList.add(row);
+                    termKindList.add(wordStart == 0 ? TERM_NAME_START : TERM_WORD);
+                    wordStart = -1;
+                }
+            }
+
+            for (String value : rowValues) {
+                for (int i = 0; i + 3 <= value.length(); i++) {
+                    postings.computeIfAbsent(trigram(value, i), key -> new IntList()).addOnce(row);
+                }
+            }
+        }
+
+        Integer[] order = new Integer[termList.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing(termList::get));
+        String[] terms = new String[order.length];
+        int[] termRows = new int[order.length];
+        byte[] termKinds = new byte[order.length];
+        for (int i = 0; i < order.length; i++) {
+            terms[i] = termList.get(order[i]);
+            termRows[i] = termRowList.get(order[i]);
+            termKinds[i] = termKindList.get(order[i]);
+        }
+
+        Map<Long, int[]> trigrams = new HashMap<>(postings.size() * 4 / 3 + 1);
+        postings.forEach((key, list) -> trigrams.put(key, list.toArray()));
+        return new FundSearchIndex(rows, values, groups, groupCounts, terms, termRows, termKinds, trigrams);
+    }
+
+    /**
+     * Best matches for the query, best first
+     *
+     * @param query part of an ISIN, LEI, OeNB-ID, fund name or KAG, case is ignored
+     * @param limit maximum number of results
+     * @param field identifier the caller needs, rows without it are skipped
+     */
+    public List<FundEnhancerData> search(String query, int limit, Field field) {
+        String q = normalize(query);
+        if (q.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        Selection selection = new Selection(groups[field.ordinal()], groupCounts[field.ordinal()], limit);
+        if (q.length() < 3) {
+            for (int i = lowerBound(q); i < terms.length && terms[i].startsWith(q); i++) {
+                selection.offer(termRows[i], termScore(i, q));
+            }
+        } else {
+            for (int row : candidates(q)) {
+                selection.offer(row, score(values[row], q));
+            }
+        }
+
+        int[] best = selection.result();
+        List<FundEnhancerData> result = new ArrayList<>(best.length);
+        for (int row : best) {
+            result.add(rows[row]);
+        }
+        return result;
+    }
+
+    public int size() {
+        return rows.length;
+    }
+
+    private int termScore(int term, String q) {
+        switch (termKinds[term]) {
+            case TERM_ID:
+                return terms[term].length() == q.length() ? SCORE_EXACT_ID : SCORE_ID_PREFIX;
+            case TERM_NAME_START:
+                return SCORE_NAME_PREFIX;
+            default:
+                return SCORE_WORD_PREFIX;
+        }
+    }
+
+    private static int score(String[] rowValues, String q) {
+        for (int i = 0; i < 3; i++) {
+            if (rowValues[i].equals(q)) {
+                return SCORE_EXACT_ID;
+            }
+        }
+        for (int i = 0; i < 3; i++) {
+            if (rowValues[i].startsWith(q)) {
+                return SCORE_ID_PREFIX;
+            }
+        }
+        String name = rowValues[3];
+        if (name.startsWith(q)) {
+            return SCORE_NAME_PREFIX;
+        }
+        int at = name.indexOf(q);
+        while (at > 0) {
+            if (!Character.isLetterOrDigit(name.charAt(at - 1))) {
+                return SCORE_WORD_PREFIX;
+            }
+            at = name.indexOf(q, at + 1);
+        }
+        if (rowValues[4].startsWith(q)) {
+            return SCORE_KAG_PREFIX;
+        }
+        for (String value : rowValues) {
+            if (value.contains(q)) {
+                return SCORE_CONTAINS;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Rows containing all trigrams of the query (still to be checked for the whole query)
+     */
+    private int[] candidates(String q) {
+        List<int[]> lists = new ArrayList<>();
+        for (int i = 0; i + 3 <= q.length(); i++) {
+            int[] list = trigrams.get(trigram(q, i));
+            if (list == null) {
+                return new int[0];
+            }
+            lists.add(list);
+        }
+        lists.sort(Comparator.comparingInt(list -> list.length));
+
+        int[] result = lists.get(0);
+        for (int i = 1; i < lists.size() && result.length > 0; i++) {
+            result = intersect(result, lists.get(i));
+        }
+        return result;
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[count++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private int lowerBound(String q) {
+        int low = 0;
+        int high = terms.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (terms[mid].compareTo(q) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * The three chars packed into one long. The multiplication by an odd constant keeps keys unique and
+     * spreads them, Long.hashCode of the plain packed value collides for most trigrams.
+     */
+    private static long trigram(String value, int index) {
+        long packed = ((long) value.charAt(index) << 32) | ((long) value.charAt(index + 1) << 16) | value.charAt(index + 2);
+        return packed * 0x9E3779B97F4A7C15L;
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Keeps the best row per identifier and the best {@code limit} identifiers.
+     * Ranking is by score, then by row number (that is by ISIN).
+     */
+    private static final class Selection {
+        private final int[] groupOfRow;
+        private final int[] bestRow;
+        private final int[] bestScore;
+        private final int[] touched;
+        private int touchedCount;
+        private final int limit;
+
+        Selection(int[] groupOfRow, int groupCount, int limit) {
+            this.groupOfRow = groupOfRow;
+            this.bestRow = new int[groupCount];
+            this.bestScore = new int[groupCount];
+            this.touched = new int[groupCount];
+            this.limit = limit;
+        }
+
+        void offer(int row, int score) {
+            int group = groupOfRow[row];
+            if (group < 0 || score == 0) {
+                return;
+            }
+            if (bestScore[group] == 0) {
+                touched[touchedCount++] = group;
+            } else if (!better(score, row, bestScore[group], bestRow[group])) {
+                return;
+            }
+            bestScore[group] = score;
+            bestRow[group] = row;
+        }
+
+        int[] result() {
+            // insertion into a small sorted array, limit is the size of a suggestion list
+            int[] topRows = new int[Math.min(limit, touchedCount)];
+            int[] topScores = new int[topRows.length];
+            int size = 0;
+            for (int i = 0; i < touchedCount; i++) {
+                int group = touched[i];
+                int row = bestRow[group];
+                int score = bestScore[group];
+                if (size == topRows.length && !better(score, row, topScores[size - 1], topRows[size - 1])) {
+                    continue;
+                }
+                int at = size == topRows.length ? size - 1 : size++;
+                while (at > 0 && better(score, row, topScores[at - 1], topRows[at - 1])) {
+                    topRows[at] = topRows[at - 1];
+                    topScores[at] = topScores[at - 1];
+                    at--;
+                }
+                topRows[at] = row;
+                topScores[at] = score;
+            }
+            return topRows;
+        }
+
+        private static boolean better(int score, int row, int otherScore, int otherRow) {
+            return score > otherScore || score == otherScore && row < otherRow;
+        }
+    }
+
+    /**
+     * Growable list of ascending row numbers
+     */
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void addOnce(int value) {
+            if (size > 0 && values[size - 1] == value) {
+                return;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,310 @@
+/*
+ * Copyright 2018 Karl Kauc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dao;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Binary copy of a {@link FundIndex}, stored as isinlei.bin next to isinlei.csv.
+ * <p>
+ * Layout (big endian):
+ * <pre>
+ * int    magic "FEBS", int version
+ * long   size and long modification time (epoch millis) of the CSV the snapshot was built from
+ * int    string count, then per string: int length, UTF-8 bytes
+ * int    row count, then per row: byte flags, 12 bytes ISIN, 20 bytes LEI,
+ *        6 int string references (name, KAG, OeNB-ID, LEI status, wrapper, ISIN status)
+ * 3x     index (LEI, OeNB-ID, ISIN): int key count, then per key: int row count, int row numbers
+ * </pre>
+ * ISIN and LEI are stored as fixed-width ASCII, padded with 0. Values that do not fit (like the header
+ * row) are stored in the dictionary instead, which is marked in the flags. Names are stored normalized,
+ * and equal KAG names and status values share one dictionary entry and one String after loading.
+ * The snapshot is only used while size and modification time match the CSV, otherwise it is rebuilt.
+ * It is read into the heap, not mapped, so it stays replaceable on Windows while the index is in use.
+ */
+public final class FundSnapshot {
+    private static final Logger log = LogManager.getLogger(FundSnapshot.class);
+
+    static final int MAGIC = 0x46454253;
+    static final int VERSION = 2;
+
+    private static final int ISIN_WIDTH = 12;
+    private static final int LEI_WIDTH = 20;
+    private static final int FLAG_ISIN_IN_DICTIONARY = 1;
+    private static final int FLAG_LEI_IN_DICTIONARY = 2;
+
+    private FundSnapshot() {
+    }
+
+    /**
+     * Index of the CSV, taken from the snapshot if it is up to date, otherwise parsed from the CSV
+     * and written to a new snapshot.
+     */
+    public static FundIndex load(Path csv) throws IOException {
+        Path snapshot = snapshotFor(csv);
+        long size = Files.size(csv);
+        long modified = lastModified(csv);
+
+        if (Files.exists(snapshot)) {
+            try {
+                FundIndex index = read(snapshot, size, modified);
+                if (index != null) {
+                    log.debug("Loaded {} records from snapshot {}", index.size(), snapshot);
+                    return index;
+                }
+                log.debug("snapshot {} is outdated", snapshot);
+            } catch (IOException | RuntimeException e) {
+                log.warn("snapshot {} cannot be read, it will be rebuilt", snapshot, e);
+            }
+        }
+
+        FundIndex index = FundIndex.of(FundDataLoader.load(csv));
+        try {
+            write(snapshot, index, size, modified);
+        } catch (IOException e) {
+            log.warn("snapshot {} cannot be written", snapshot, e);
+        }
+        return index;
+    }
+
+    static Path snapshotFor(Path csv) {
+        String name = csv.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return csv.resolveSibling((dot > 0 ? name.substring(0, dot) : name) + ".bin");
+    }
+
+    static long lastModified(Path file) throws IOException {
+        return Files.getLastModifiedTime(file).toMillis();
+    }
+
+    /**
+     * @return the index, or null if the snapshot was built from another version of the CSV
+     */
+    static FundIndex read(Path snapshot, long csvSize, long csvModified) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(snapshot));
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return null;
+            }
+            if (buffer.getLong() != csvSize || buffer.getLong() != csvModified) {
+                return null;
+            }
+
+            String[] strings = new String[buffer.getInt()];
+            byte[] scratch = new byte[256];
+            for (int i = 0; i < strings.length; i++) {
+                int length = buffer.getInt();
+                byte[] bytes = length <= scratch.length ? scratch : new byte[length];
+                buffer.get(bytes, 0, length);
+                strings[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+            }
+
+            int rowCount = buffer.getInt();
+            List<FundEnhancerData> rows = new ArrayList<>(rowCount);
+            for (int i = 0; i < rowCount; i++) {
+                int flags = buffer.get();
+                FundEnhancerData row = new FundEnhancerData();
+                row.setISIN(readFixed(buffer, ISIN_WIDTH, (flags & FLAG_ISIN_IN_DICTIONARY) != 0, strings));
+                row.setLEI(readFixed(buffer, LEI_WIDTH, (flags & FLAG_LEI_IN_DICTIONARY) != 0, strings));
+                row.setFondsbezeichnung(strings[buffer.getInt()]);
+                row.setKAG(strings[buffer.getInt()]);
+                row.setOENB_ID(strings[buffer.getInt()]);
+                row.setLEIStatus(strings[buffer.getInt()]);
+                row.setWRAPPER(strings[buffer.getInt()]);
+                row.setISINStatus(strings[buffer.getInt()]);
+                rows.add(row);
+            }
+
+            Map<String, List<FundEnhancerData>> byLei = readIndex(buffer, rows, FundEnhancerData::getLEI);
+            Map<String, List<FundEnhancerData>> byOenbId = readIndex(buffer, rows, FundEnhancerData::getOENB_ID);
+            Map<String, List<FundEnhancerData>> byIsin = readIndex(buffer, rows, FundEnhancerData::getISIN);
+            return FundIndex.of(rows, byLei, byOenbId, byIsin);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("snapshot " + snapshot + " is truncated or corrupt", e);
+        }
+    }
+
+    private static String readFixed(ByteBuffer buffer, int width, boolean inDictionary, String[] strings) {
+        int start = buffer.position();
+        String value;
+        if (inDictionary) {
+            value = strings[buffer.getInt()];
+        } else {
+            int length = 0;
+            while (length < width && buffer.get(start + length) != 0) {
+                length++;
+            }
+            byte[] bytes = new byte[length];
+            buffer.get(start, bytes, 0, length);
+            value = new String(bytes, StandardCharsets.US_ASCII);
+        }
+        buffer.position(start + width);
+        return value;
+    }
+
+    private static Map<String, List<FundEnhancerData>> readIndex(ByteBuffer buffer, List<FundEnhancerData> rows,
+                                                               Function<FundEnhancerData, String> key) {
+        int keys = buffer.getInt();
+        Map<String, List<FundEnhancerData>> index = new HashMap<>(keys * 4 / 3 + 1);
+        for (int i = 0; i < keys; i++) {
+            int count = buffer.getInt();
+            List<FundEnhancerData> group = new ArrayList<>(count);
+            for (int j = 0; j < count; j++) {
+                group.add(rows.get(buffer.getInt()));
+            }
+            // the key is the ID of the rows, so it is not stored a second time
+            index.put(key.apply(group.get(0)), group);
+        }
+        return index;
+    }
+
+    static void write(Path snapshot, FundIndex index, long csvSize, long csvModified) throws IOException {
+        List<FundEnhancerData> rows = index.getRows();
+        Map<String, Integer> dictionary = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        Map<FundEnhancerData, Integer> rowNumbers = new IdentityHashMap<>();
+
+        int[][] refs = new int[rows.size()][];
+        for (int i = 0; i < rows.size(); i++) {
+            FundEnhancerData row = rows.get(i);
+            rowNumbers.put(row, i);
+            refs[i] = new int[]{
+                    fitsFixed(row.getISIN(), ISIN_WIDTH) ? -1 : intern(row.getISIN(), dictionary, strings),
+                    fitsFixed(row.getLEI(), LEI_WIDTH) ? -1 : intern(row.getLEI(), dictionary, strings),
+                    intern(row.getFondsbezeichnung(), dictionary, strings),
+                    intern(row.getKAG(), dictionary, strings),
+                    intern(row.getOENB_ID(), dictionary, strings),
+                    intern(row.getLEIStatus(), dictionary, strings),
+                    intern(row.getWRAPPER(), dictionary, strings),
+                    intern(row.getISINStatus(), dictionary, strings)};
+        }
+
+        List<byte[]> encoded = new ArrayList<>(strings.size());
+        long size = 4 + 4 + 8 + 8 + 4 + 4;
+        for (String value : strings) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            encoded.add(bytes);
+            size += 4 + bytes.length;
+        }
+        size += (long) rows.size() * (1 + ISIN_WIDTH + LEI_WIDTH + 6 * 4);
+        size += indexSize(index.getLeiIndex()) + indexSize(index.getOenbIdIndex()) + indexSize(index.getIsinIndex());
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("snapshot too large: " + size + " bytes");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(csvSize).putLong(csvModified);
+        buffer.putInt(encoded.size());
+        for (byte[] bytes : encoded) {
+            buffer.putInt(bytes.length).put(bytes);
+        }
+
+        buffer.putInt(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            FundEnhancerData row = rows.get(i);
+            int[] ref = refs[i];
+            buffer.put((byte) ((ref[0] >= 0 ? FLAG_ISIN_IN_DICTIONARY : 0) | (ref[1] >= 0 ? FLAG_LEI_IN_DICTIONARY : 0)));
+            writeFixed(buffer, row.getISIN(), ref[0], ISIN_WIDTH);
+            writeFixed(buffer, row.getLEI(), ref[1], LEI_WIDTH);
+            for (int j = 2; j < ref.length; j++) {
+                buffer.putInt(ref[j]);
+            }
+        }
+
+        writeIndex(buffer, index.getLeiIndex(), rowNumbers);
+        writeIndex(buffer, index.getOenbIdIndex(), rowNumbers);
+        writeIndex(buffer, index.getIsinIndex(), rowNumbers);
+        buffer.flip();
+
+        Path tmp = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        Files.move(tmp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.debug("snapshot {} written with {} records and {} strings", snapshot, rows.size(), strings.size());
+    }
+
+    private static int intern(String value, Map<String, Integer> dictionary, List<String> strings) {
+        return dictionary.computeIfAbsent(value != null ? value : "", key -> {
+            strings.add(key);
+            return strings.size() - 1;
+        });
+    }
+
+    private static boolean fitsFixed(String value, int width) {
+        if (value == null || value.length() > width) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == 0 || c > 0x7F) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeFixed(ByteBuffer buffer, String value, int dictionaryRef, int width) {
+        int start = buffer.position();
+        if (dictionaryRef >= 0) {
+            buffer.putInt(dictionaryRef);
+        } else {
+            buffer.put(value.getBytes(StandardCharsets.US_ASCII));
+        }
+        while (buffer.position() < start + width) {
+            buffer.put((byte) 0);
+        }
+    }
+
+    private static long indexSize(Map<String, List<FundEnhancerData>> index) {
+        long size = 4;
+        for (List<FundEnhancerData> group : index.values()) {
+            size += 4 + 4L * group.size();
+        }
+        return size;
+    }
+
+    private static void writeIndex(ByteBuffer buffer, Map<String, List<FundEnhancerData>> index,
+                                   Map<FundEnhancerData, Integer> rowNumbers) {
+        buffer.putInt(index.size());
+        for (List<FundEnhancerData> group : index.values()) {
+            buffer.putInt(group.size());
+            for (FundEnhancerData row : group) {
+                buffer.putInt(rowNumbers.get(row));
+            }
+        }
+    }
+}
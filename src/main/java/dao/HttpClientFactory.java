@@ -0,0 +1,215 @@
+/*
+ * Copyright 2018 Karl Kauc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dao;
+
+import model.ApplicationSettings;
+import model.IApplicationSettings;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.DefaultConnectionKeepAliveStrategy;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.impl.routing.DefaultProxyRoutePlanner;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Objects;
+
+/**
+ * Process-wide factory for the HTTP client used to talk to the OeKB FDP.
+ * <p>
+ * All {@link OeKBHTTP} instances share one pooled client, so TLS sessions and
+ * keep-alive connections are reused between downloads. The client is only rebuilt
+ * when the proxy configuration changes and is closed from {@code StartApp.stop()}.
+ */
+public class HttpClientFactory {
+    private static final Logger log = LogManager.getLogger(HttpClientFactory.class);
+    private static HttpClientFactory instance;
+
+    /** Upper bound for all pooled connections */
+    private static final int MAX_CONNECTIONS_TOTAL = 20;
+
+    /** Both FDP servers (prod/QAS) are single routes, so this limits parallel requests per server */
+    private static final int MAX_CONNECTIONS_PER_ROUTE = 8;
+
+    private static final Timeout CONNECT_TIMEOUT = Timeout.ofSeconds(30);
+    private static final Timeout SOCKET_TIMEOUT = Timeout.ofMinutes(10);
+    private static final Timeout CONNECTION_REQUEST_TIMEOUT = Timeout.ofMinutes(2);
+    private static final TimeValue VALIDATE_AFTER_INACTIVITY = TimeValue.ofSeconds(10);
+    private static final TimeValue IDLE_EVICTION = TimeValue.ofMinutes(1);
+
+    private CloseableHttpClient httpClient;
+    private ProxyKey currentProxyKey;
+
+    private HttpClientFactory() {
+        // Private constructor for singleton
+        ApplicationSettings.getInstance().addChangeListener((oldSettings, newSettings) -> settingsChanged(newSettings));
+    }
+
+    public static synchronized HttpClientFactory getInstance() {
+        if (instance == null) {
+            instance = new HttpClientFactory();
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the shared client, rebuilding it if the proxy settings changed since it was created.
+     */
+    public CloseableHttpClient getClient() {
+        return getClient(ApplicationSettings.getInstance());
+    }
+
+    public synchronized CloseableHttpClient getClient(IApplicationSettings applicationSettings) {
+        ProxyKey proxyKey = ProxyKey.of(applicationSettings);
+
+        if (httpClient != null && proxyKey.equals(currentProxyKey)) {
+            return httpClient;
+        }
+
+        if (httpClient != null) {
+            log.info("proxy settings changed, rebuilding HTTP client");
+            closeClient(CloseMode.GRACEFUL);
+        }
+
+        httpClient = createClient(proxyKey);
+        currentProxyKey = proxyKey;
+        return httpClient;
+    }
+
+    /**
+     * Drops the client as soon as new settings with a different proxy are published,
+     * so the next request already uses the new route.
+     */
+    private synchronized void settingsChanged(ApplicationSettings.Snapshot settings) {
+        ProxyKey proxyKey = ProxyKey.of(settings.isConnectionUseSystemSettings(),
+                settings.getConnectionProxyHost(), settings.getConnectionProxyPort());
+        if (httpClient != null && !proxyKey.equals(currentProxyKey)) {
+            log.info("proxy settings changed, closing HTTP client");
+            closeClient(CloseMode.GRACEFUL);
+            currentProxyKey = null;
+        }
+    }
+
+    /**
+     * Closes the shared client and its connection pool. A later {@link #getClient()} creates a new one.
+     */
+    public synchronized void shutdown() {
+        if (httpClient != null) {
+            log.debug("closing shared HTTP client");
+            closeClient(CloseMode.GRACEFUL);
+            currentProxyKey = null;
+        }
+    }
+
+    private CloseableHttpClient createClient(ProxyKey proxyKey) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(MAX_CONNECTIONS_TOTAL)
+                .setMaxConnPerRoute(MAX_CONNECTIONS_PER_ROUTE)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(CONNECT_TIMEOUT)
+                        .setSocketTimeout(SOCKET_TIMEOUT)
+                        .setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY)
+                        .build())
+                .build();
+
+        HttpClientBuilder builder = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setKeepAliveStrategy(DefaultConnectionKeepAliveStrategy.INSTANCE)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(CONNECTION_REQUEST_TIMEOUT)
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(IDLE_EVICTION)
+                // retries are done by ResilientHttpExecutor, which knows whether a request is an upload
+                .disableAutomaticRetries();
+
+        if (proxyKey.useSystemSettings) {
+            log.debug("using system proxy Settings");
+            System.setProperty("java.net.useSystemProxies", "true");
+        } else if (proxyKey.hasCustomProxy()) {
+            log.debug("proxy settings: " + proxyKey.host + ":" + proxyKey.port);
+            builder.setRoutePlanner(new DefaultProxyRoutePlanner(new HttpHost(proxyKey.host, proxyKey.port)));
+        } else {
+            log.info("no valid proxy settings found!");
+        }
+
+        log.debug("created pooled HTTP client (max {} connections, {} per route)",
+                MAX_CONNECTIONS_TOTAL, MAX_CONNECTIONS_PER_ROUTE);
+        return builder.build();
+    }
+
+    private void closeClient(CloseMode closeMode) {
+        try {
+            httpClient.close(closeMode);
+        } catch (Exception e) {
+            log.warn("Error closing HTTP client", e);
+        }
+        httpClient = null;
+    }
+
+    /**
+     * The part of the settings that requires a new client when it changes.
+     */
+    private static final class ProxyKey {
+        private final boolean useSystemSettings;
+        private final String host;
+        private final int port;
+
+        private ProxyKey(boolean useSystemSettings, String host, int port) {
+            this.useSystemSettings = useSystemSettings;
+            this.host = host;
+            this.port = port;
+        }
+
+        static ProxyKey of(IApplicationSettings settings) {
+            return of(settings.isConnectionUseSystemSettings(), settings.getConnectionProxyHost(),
+                    settings.getConnectionProxyPort());
+        }
+
+        static ProxyKey of(boolean useSystemSettings, String proxyHost, Integer proxyPort) {
+            if (useSystemSettings) {
+                return new ProxyKey(true, "", 0);
+            }
+            String host = proxyHost != null ? proxyHost.trim() : "";
+            return new ProxyKey(false, host, proxyPort != null ? proxyPort : 0);
+        }
+
+        boolean hasCustomProxy() {
+            return host.length() > 1 && port > 1;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof ProxyKey)) return false;
+            ProxyKey other = (ProxyKey) o;
+            return useSystemSettings == other.useSystemSettings && port == other.port && host.equals(other.host);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(useSystemSettings, host, port);
+        }
+    }
+}
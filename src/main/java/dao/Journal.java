@@ -17,26 +17,16 @@ package dao;
 
 import model.ApplicationSettings;
 import model.JournalEntry;
-import model.JournalEntry.ActionType;
-import model.JournalEntry.JournalType;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import java.io.ByteArrayInputStream;
-import java.io.File;
-import java.nio.charset.StandardCharsets;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * DAO for retrieving and parsing Journal data from OeKB FDP.
@@ -59,173 +49,102 @@ public class Journal {
     public List<JournalEntry> getJournalEntries(LocalDateTime timeFrom, LocalDateTime timeTo,
                                                 String action, String type,
                                                 boolean excludeEmptyDownloads) {
-        String xmlString;
-
-        if (applicationSettings.isFileSystem()) {
-            // Read from filesystem backup
-            File backupDir = new File(applicationSettings.getBackupDirectory());
-            File[] potentialFiles = backupDir.listFiles((dir, name) ->
-                    name.contains("DOWNLOAD_JOURNAL.xml"));
-
-            log.debug("Potential journal files: " + (potentialFiles != null ? Arrays.toString(potentialFiles) : "none"));
-
-            if (potentialFiles != null && potentialFiles.length > 0) {
-                File latestFile = Arrays.stream(potentialFiles)
-                        .max((f1, f2) -> f1.getName().compareTo(f2.getName()))
-                        .orElse(potentialFiles[0]);
-                log.debug("Reading journal from file: " + latestFile);
-
-                try {
-                    xmlString = new String(java.nio.file.Files.readAllBytes(latestFile.toPath()), StandardCharsets.UTF_8);
-                } catch (Exception e) {
-                    log.error("Error reading journal file", e);
-                    return new ArrayList<>();
-                }
-            } else {
-                log.warn("No journal backup files found");
-                return new ArrayList<>();
-            }
-        } else {
-            log.debug("Downloading journal from OeKB server");
-            xmlString = new OeKBHTTP().downloadJournal(timeFrom, timeTo, action, type, null, null, excludeEmptyDownloads);
-        }
-
-        return parseJournalXml(xmlString);
+        List<JournalEntry> entries = new ArrayList<>();
+        readJournalEntries(timeFrom, timeTo, action, type, excludeEmptyDownloads, entries::add);
+        return entries;
     }
 
     /**
-     * Parse FundsXMLJournal XML string into list of JournalEntry objects
+     * Same as {@link #getJournalEntries}, but hands every entry to the consumer as soon as it is available,
+     * so callers can show entries while the rest of the journal is still being read.
+     *
+     * @return number of entries read
      */
-    private List<JournalEntry> parseJournalXml(String xmlString) {
-        List<JournalEntry> entries = new ArrayList<>();
-
-        if (xmlString == null || xmlString.isEmpty()) {
-            log.warn("Empty XML string for journal parsing");
-            return entries;
-        }
-
-        try {
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            DocumentBuilder builder = factory.newDocumentBuilder();
-            Document doc = builder.parse(new ByteArrayInputStream(xmlString.getBytes(StandardCharsets.UTF_8)));
-
-            doc.getDocumentElement().normalize();
-
-            // Get all JournalEntry elements
-            NodeList journalEntryNodes = doc.getElementsByTagName("JournalEntry");
-            log.debug("Found " + journalEntryNodes.getLength() + " journal entries");
-
-            for (int i = 0; i < journalEntryNodes.getLength(); i++) {
-                Node node = journalEntryNodes.item(i);
-
-                if (node.getNodeType() == Node.ELEMENT_NODE) {
-                    Element element = (Element) node;
-                    JournalEntry entry = parseJournalEntry(element);
-                    entries.add(entry);
-                }
-            }
-
-        } catch (Exception e) {
-            log.error("Error parsing journal XML", e);
-        }
-
-        return entries;
+    public int readJournalEntries(LocalDateTime timeFrom, LocalDateTime timeTo,
+                                  String action, String type,
+                                  boolean excludeEmptyDownloads, Consumer<JournalEntry> consumer) {
+        return readJournalEntries(timeFrom, timeTo, action, type, excludeEmptyDownloads, false, consumer);
     }
 
     /**
-     * Parse a single JournalEntry element
+     * Read journal entries. Against the server only the part of the journal missing in the local
+     * {@link JournalStore} is downloaded, the filter itself is answered locally.
+     *
+     * @param refresh ask the server for new entries even if the store was synchronised a moment ago
+     * @return number of entries read
      */
-    private JournalEntry parseJournalEntry(Element element) {
-        JournalEntry entry = new JournalEntry();
-
-        // Action (UL/DL)
-        String actionStr = getElementText(element, "Action");
-        try {
-            entry.setAction(ActionType.valueOf(actionStr));
-        } catch (Exception e) {
-            log.warn("Unknown action type: " + actionStr);
+    public int readJournalEntries(LocalDateTime timeFrom, LocalDateTime timeTo,
+                                  String action, String type,
+                                  boolean excludeEmptyDownloads, boolean refresh,
+                                  Consumer<JournalEntry> consumer) {
+        if (!applicationSettings.isFileSystem()) {
+            return readFromStore(timeFrom, timeTo, action, type, excludeEmptyDownloads, refresh, consumer);
         }
 
-        // Type
-        String typeStr = getElementText(element, "Type");
-        try {
-            entry.setType(JournalType.valueOf(typeStr));
-        } catch (Exception e) {
-            log.warn("Unknown journal type: " + typeStr);
+        // Read from filesystem backup
+        Path latestFile = BackupStore.getInstance().findLatest("DOWNLOAD_JOURNAL").orElse(null);
+        if (latestFile != null) {
+            log.debug("Reading journal from file: " + latestFile);
+            return parseJournalFile(latestFile, consumer);
         }
+        log.warn("No journal backup files found");
+        return 0;
+    }
 
-        // DataSupplier
-        NodeList dataSupplierNodes = element.getElementsByTagName("DataSupplier");
-        if (dataSupplierNodes.getLength() > 0) {
-            Element dataSupplierElement = (Element) dataSupplierNodes.item(0);
-            String dataSupplierShort = getElementText(dataSupplierElement, "Short");
-            entry.setDataSupplier(dataSupplierShort);
-        }
-
-        // User
-        String user = getElementText(element, "User");
-        entry.setUserName(user);
-
-        // ActionTime
-        String actionTimeStr = getElementText(element, "ActionTime");
-        if (actionTimeStr != null && !actionTimeStr.isEmpty()) {
-            try {
-                LocalDateTime actionTime = LocalDateTime.parse(actionTimeStr, DateTimeFormatter.ISO_DATE_TIME);
-                entry.setTimestamp(actionTime);
-            } catch (DateTimeParseException e) {
-                log.warn("Could not parse action time: " + actionTimeStr, e);
-            }
+    private int readFromStore(LocalDateTime timeFrom, LocalDateTime timeTo, String action, String type,
+                              boolean excludeEmptyDownloads, boolean refresh, Consumer<JournalEntry> consumer) {
+        JournalStore store = JournalStore.getInstance();
+        try {
+            store.sync(timeFrom != null ? timeFrom.toLocalDate() : null, refresh, (from, to) -> {
+                log.debug("Downloading journal from OeKB server");
+                // everything is stored, empty downloads are filtered locally
+                return new OeKBHTTP().downloadJournalToFile(from, to, null, null, null, null, false);
+            });
+        } catch (IOException e) {
+            log.warn("Journal sync failed, showing locally stored entries", e);
         }
 
-        // For uploads: check if data was processed or errors occurred
-        NodeList uploadNodes = element.getElementsByTagName("Upload");
-        if (uploadNodes.getLength() > 0) {
-            Element uploadElement = (Element) uploadNodes.item(0);
-
-            // Get status
-            String status = getElementText(uploadElement, "Status");
-            if (status != null && !status.isEmpty()) {
-                entry.setDetails("Status: " + status);
-            }
-
-            // Get UniqueDocumentID
-            String uniqueDocId = getElementText(uploadElement, "UniqueDocumentID");
-            if (uniqueDocId != null && !uniqueDocId.isEmpty()) {
-                entry.setUniqueId(uniqueDocId);
-            }
+        try {
+            List<JournalEntry> entries = store.query(timeFrom, timeTo, action, type, excludeEmptyDownloads);
+            entries.forEach(consumer);
+            return entries.size();
+        } catch (IOException e) {
+            log.error("Error reading local journal store", e);
+            return 0;
         }
+    }
 
-        // For downloads: check what was downloaded
-        NodeList downloadNodes = element.getElementsByTagName("Download");
-        if (downloadNodes.getLength() > 0) {
-            Element downloadElement = (Element) downloadNodes.item(0);
-
-            // Check if it was an empty download
-            NodeList dataNodes = downloadElement.getElementsByTagName("Data");
-            if (dataNodes.getLength() > 0) {
-                Element dataElement = (Element) dataNodes.item(0);
-                String isEmpty = dataElement.getAttribute("IsEmpty");
-                if ("true".equals(isEmpty)) {
-                    entry.setEmpty(true);
-                    entry.setDetails("Empty download (no data available)");
-                }
+    /**
+     * Stream the FundsXMLJournal file into the consumer, entry by entry
+     */
+    private int parseJournalFile(Path journalFile, Consumer<JournalEntry> consumer) {
+        int count = 0;
+        try (InputStream in = BackupStore.open(journalFile)) {
+            if (!startsWithXml(in)) {
+                log.warn("Journal response is not XML: " + journalFile);
+                return 0;
             }
+            count = JournalParser.parse(in, consumer);
+            log.debug("Found " + count + " journal entries");
+        } catch (Exception e) {
+            log.error("Error parsing journal XML", e);
         }
-
-        return entry;
+        return count;
     }
 
     /**
-     * Helper method to get text content of an element by tag name
+     * The server answers errors with plain text ("ERROR: ..."), which is not worth a parser exception
      */
-    private String getElementText(Element parent, String tagName) {
-        NodeList nodeList = parent.getElementsByTagName(tagName);
-        if (nodeList.getLength() > 0) {
-            Node node = nodeList.item(0);
-            if (node != null) {
-                return node.getTextContent();
-            }
+    private static boolean startsWithXml(InputStream in) throws IOException {
+        in.mark(64);
+        try {
+            int c;
+            do {
+                c = in.read();
+            } while (c == 0xEF || c == 0xBB || c == 0xBF || c >= 0 && Character.isWhitespace(c));
+            return c == '<';
+        } finally {
+            in.reset();
         }
-        return "";
     }
 }
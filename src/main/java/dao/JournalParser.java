@@ -0,0 +1,275 @@
+/*
+ * Copyright 2024 Karl Kauc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dao;
+
+import common.XMLHelper;
+import model.JournalEntry;
+import model.JournalEntry.ActionType;
+import model.JournalEntry.JournalType;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * Single-pass StAX reader for FundsXML_Journal documents (FundsXML_Journal_1.0.3.xsd).
+ * <p>
+ * Entries are read one after the other, so a journal is never held in memory as a whole
+ * and callers can show the first entries while the rest is still being parsed.
+ * Like the former DOM parser, the first matching element inside a JournalEntry wins.
+ */
+public class JournalParser implements Iterator<JournalEntry>, Closeable {
+    private static final Logger log = LogManager.getLogger(JournalParser.class);
+
+    private final InputStream in;
+    private final XMLStreamReader reader;
+    private JournalEntry next;
+
+    public JournalParser(InputStream in) throws XMLStreamException {
+        this.in = in;
+        this.reader = XMLHelper.getInputFactory().createXMLStreamReader(in);
+    }
+
+    /**
+     * Calls the consumer for every entry of the journal.
+     * @return number of entries
+     */
+    public static int parse(InputStream in, Consumer<JournalEntry> consumer) throws XMLStreamException {
+        int count = 0;
+        JournalParser parser = new JournalParser(in);
+        try {
+            while (parser.hasNext()) {
+                consumer.accept(parser.next());
+                count++;
+            }
+        } finally {
+            parser.reader.close();
+        }
+        return count;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            try {
+                next = readNextEntry();
+            } catch (XMLStreamException e) {
+                throw new UncheckedIOException(new IOException("Error parsing journal XML", e));
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public JournalEntry next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        JournalEntry entry = next;
+        next = null;
+        return entry;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            reader.close();
+        } catch (XMLStreamException e) {
+            log.debug("error closing journal reader", e);
+        }
+        in.close();
+    }
+
+    private JournalEntry readNextEntry() throws XMLStreamException {
+        while (reader.hasNext()) {
+            if (reader.next() == XMLStreamConstants.START_ELEMENT && "JournalEntry".equals(reader.getLocalName())) {
+                return readEntry();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads the current JournalEntry element up to its end tag.
+     */
+    private JournalEntry readEntry() throws XMLStreamException {
+        String action = null;
+        String type = null;
+        String user = null;
+        String actionTime = null;
+        String dataSupplierShort = null;
+        String uploadStatus = null;
+        String uploadDocumentId = null;
+        String isEmpty = null;
+
+        // state of the first DataSupplier, Upload and Download element: 0 = not seen, 1 = inside, 2 = done
+        int dataSupplier = 0;
+        int upload = 0;
+        int download = 0;
+        boolean dataSeen = false;
+
+        int depth = 1;
+        while (depth > 0 && reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+                switch (reader.getLocalName()) {
+                    case "DataSupplier" -> dataSupplier = dataSupplier == 1 ? 2 : dataSupplier;
+                    case "Upload" -> upload = upload == 1 ? 2 : upload;
+                    case "Download" -> download = download == 1 ? 2 : download;
+                    default -> {
+                        // nothing to do
+                    }
+                }
+                continue;
+            }
+            if (event != XMLStreamConstants.START_ELEMENT) {
+                continue;
+            }
+
+            depth++;
+            String name = reader.getLocalName();
+            switch (name) {
+                case "DataSupplier" -> dataSupplier = dataSupplier == 0 ? 1 : dataSupplier;
+                case "Upload" -> upload = upload == 0 ? 1 : upload;
+                case "Download" -> download = download == 0 ? 1 : download;
+                case "Data" -> {
+                    if (download == 1 && !dataSeen) {
+                        dataSeen = true;
+                        isEmpty = reader.getAttributeValue(null, "IsEmpty");
+                    }
+                }
+                default -> {
+                    // text elements, read below
+                }
+            }
+
+            String text = null;
+            if ("Action".equals(name) && action == null
+                    || "Type".equals(name) && type == null
+                    || "User".equals(name) && user == null
+                    || "ActionTime".equals(name) && actionTime == null
+                    || "Short".equals(name) && dataSupplier == 1 && dataSupplierShort == null
+                    || "Status".equals(name) && upload == 1 && uploadStatus == null
+                    || "UniqueDocumentID".equals(name) && upload == 1 && uploadDocumentId == null) {
+                text = readText();
+                depth--;
+            }
+            if (text == null) {
+                continue;
+            }
+
+            switch (name) {
+                case "Action" -> action = text;
+                case "Type" -> type = text;
+                case "User" -> user = text;
+                case "ActionTime" -> actionTime = text;
+                case "Short" -> dataSupplierShort = text;
+                case "Status" -> uploadStatus = text;
+                case "UniqueDocumentID" -> uploadDocumentId = text;
+                default -> {
+                    // not reached
+                }
+            }
+        }
+
+        if (dataSupplier != 0 && dataSupplierShort == null) {
+            dataSupplierShort = "";
+        }
+        return createEntry(action, type, user, actionTime, dataSupplierShort, uploadStatus, uploadDocumentId, isEmpty);
+    }
+
+    /**
+     * Text content of the current element including nested elements, ends on its end tag.
+     */
+    private String readText() throws XMLStreamException {
+        StringBuilder text = new StringBuilder();
+        int depth = 1;
+        while (depth > 0 && reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            } else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA) {
+                text.append(reader.getText());
+            }
+        }
+        return text.toString();
+    }
+
+    private static JournalEntry createEntry(String action, String type, String user, String actionTime,
+                                            String dataSupplierShort, String uploadStatus, String uploadDocumentId,
+                                            String isEmpty) {
+        JournalEntry entry = new JournalEntry();
+        action = action != null ? action : "";
+        type = type != null ? type : "";
+
+        try {
+            entry.setAction(ActionType.valueOf(action));
+        } catch (Exception e) {
+            log.warn("Unknown action type: " + action);
+        }
+
+        try {
+            entry.setType(JournalType.valueOf(type));
+        } catch (Exception e) {
+            log.warn("Unknown journal type: " + type);
+        }
+
+        if (dataSupplierShort != null) {
+            entry.setDataSupplier(dataSupplierShort);
+        }
+
+        entry.setUserName(user != null ? user : "");
+
+        if (actionTime != null && !actionTime.isEmpty()) {
+            try {
+                entry.setTimestamp(LocalDateTime.parse(actionTime, DateTimeFormatter.ISO_DATE_TIME));
+            } catch (DateTimeParseException e) {
+                log.warn("Could not parse action time: " + actionTime, e);
+            }
+        }
+
+        // For uploads: check if data was processed or errors occurred
+        if (uploadStatus != null && !uploadStatus.isEmpty()) {
+            entry.setDetails("Status: " + uploadStatus);
+        }
+        if (uploadDocumentId != null && !uploadDocumentId.isEmpty()) {
+            entry.setUniqueId(uploadDocumentId);
+        }
+
+        // For downloads: check if it was an empty download
+        if ("true".equals(isEmpty)) {
+            entry.setEmpty(true);
+            entry.setDetails("Empty download (no data available)");
+        }
+
+        return entry;
+    }
+}
@@ -0,0 +1,371 @@
+/*
+ * Copyright 2024 Karl Kauc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dao;
+
+import model.ApplicationSettings;
+import model.JournalEntry;
+import model.JournalEntry.ActionType;
+import model.JournalEntry.JournalType;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Local, append-only copy of the FDP journal.
+ * <p>
+ * Entries are kept in {@code journal.log} (one tab separated line per entry, never rewritten) and are
+ * keyed by ActionTime and UniqueDocumentID, so overlapping downloads do not create duplicates.
+ * {@code journal.properties} remembers from which date on the journal is complete and when it was
+ * last synchronised. A sync only downloads the days the store does not cover yet plus everything
+ * since the last synced ActionTime; filter queries are answered from memory.
+ * <p>
+ * There is one store per server (PROD/DEV), user and data supplier list below
+ * {@code <backupDirectory>/journal}.
+ */
+public class JournalStore {
+    private static final Logger log = LogManager.getLogger(JournalStore.class);
+
+    static final String LOG_FILE = "journal.log";
+    static final String META_FILE = "journal.properties";
+
+    /** a filter change within this time does not ask the server for new entries */
+    static final Duration DELTA_SYNC_INTERVAL = Duration.ofMinutes(5);
+
+    private static final String NULL = "\\N";
+    private static final DateTimeFormatter KEY_TIME_FORMAT = DateTimeFormatter.ofPattern("uuuu-MM-dd'T'HH:mm:ss.SSSSSSSSS");
+    private static final int FIELD_COUNT = 8;
+
+    private static JournalStore instance;
+
+    /**
+     * Downloads the journal between two points in time (both optional) and returns the response file
+     */
+    public interface JournalSource {
+        Path download(LocalDateTime timeFrom, LocalDateTime timeTo) throws IOException;
+    }
+
+    private final Path directory;
+    private final TreeMap<String, JournalEntry> entries = new TreeMap<>();
+    private boolean loaded;
+
+    // first day from which on the store holds the complete journal, LocalDate.MIN = everything
+    private LocalDate coveredFrom;
+    private LocalDateTime lastActionTime;
+    private Instant lastSync;
+
+    JournalStore(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Store for the server, user and data suppliers of the current settings
+     */
+    public static synchronized JournalStore getInstance() {
+        Path directory = directoryFor(ApplicationSettings.getInstance().getSnapshot());
+        if (instance == null || !instance.directory.equals(directory)) {
+            instance = new JournalStore(directory);
+        }
+        return instance;
+    }
+
+    private static Path directoryFor(ApplicationSettings.Snapshot settings) {
+        String scope = (settings.isUseProdServer() ? "PROD" : "DEV") + "_" +
+                settings.getOekbUserName() + "_" + settings.getDataSupplierList();
+        return Path.of(settings.getBackupDirectory(), "journal", scope.replaceAll("[^A-Za-z0-9._-]", "_"));
+    }
+
+    /**
+     * Brings the store up to date for queries starting at {@code from}.
+     * Days before the covered range are downloaded once; newer entries are requested starting with the day
+     * of the last synced ActionTime, unless the last sync is younger than {@link #DELTA_SYNC_INTERVAL}
+     * and {@code force} is not set.
+     *
+     * @param from first day the caller is interested in, null for the whole journal
+     */
+    public synchronized void sync(LocalDate from, boolean force, JournalSource source) throws IOException {
+        load();
+        LocalDate wanted = from != null ? from : LocalDate.MIN;
+
+        if (coveredFrom == null) {
+            log.debug("journal store is empty, downloading journal from " + from);
+            fetch(source, wanted, null);
+            coveredFrom = wanted;
+            lastSync = Instant.now();
+            saveMeta();
+            return;
+        }
+
+        if (wanted.isBefore(coveredFrom)) {
+            log.debug("journal store covers " + coveredFrom + ", downloading older entries from " + from);
+            fetch(source, wanted, coveredFrom);
+            coveredFrom = wanted;
+            saveMeta();
+        }
+
+        if (force || lastSync == null || lastSync.plus(DELTA_SYNC_INTERVAL).isBefore(Instant.now())) {
+            LocalDate deltaFrom = lastActionTime != null ? lastActionTime.toLocalDate() : coveredFrom;
+            log.debug("journal delta sync from " + deltaFrom);
+            fetch(source, deltaFrom, null);
+            lastSync = Instant.now();
+            saveMeta();
+        }
+    }
+
+    /**
+     * Entries of the store matching the filter, ordered by ActionTime
+     *
+     * @param timeFrom Start date/time filter (optional)
+     * @param timeTo End date/time filter (optional)
+     * @param action UL or DL (optional)
+     * @param type journal type (optional)
+     */
+    public synchronized List<JournalEntry> query(LocalDateTime timeFrom, LocalDateTime timeTo,
+                                                 String action, String type, boolean excludeEmptyDownloads)
+            throws IOException {
+        load();
+        Collection<JournalEntry> range;
+        if (timeFrom == null && timeTo == null) {
+            range = entries.values();
+        } else {
+            // keys start with the ISO ActionTime, entries without ActionTime sort first and are left out
+            String fromKey = timeFrom != null ? KEY_TIME_FORMAT.format(timeFrom) : "0";
+            String toKey = (timeTo != null ? KEY_TIME_FORMAT.format(timeTo) : "") + '\uffff';
+            range = entries.subMap(fromKey, true, toKey, true).values();
+        }
+
+        List<JournalEntry> result = new ArrayList<>();
+        for (JournalEntry entry : range) {
+            if (action != null && (entry.getAction() == null || !action.equals(entry.getAction().name()))) {
+                continue;
+            }
+            if (type != null && (entry.getType() == null || !type.equals(entry.getType().name()))) {
+                continue;
+            }
+            if (excludeEmptyDownloads && entry.isEmpty()) {
+                continue;
+            }
+            result.add(entry);
+        }
+        return result;
+    }
+
+    public synchronized int size() throws IOException {
+        load();
+        return entries.size();
+    }
+
+    /**
+     * Downloads the journal for [from, to] and appends all entries not yet stored
+     */
+    private void fetch(JournalSource source, LocalDate from, LocalDate to) throws IOException {
+        Path file = source.download(from.equals(LocalDate.MIN) ? null : from.atStartOfDay(),
+                to != null ? to.atTime(LocalTime.MAX) : null);
+        if (file == null) {
+            throw new IOException("Journal download failed");
+        }
+
+        List<JournalEntry> downloaded = new ArrayList<>();
+        try (InputStream in = BackupStore.open(file)) {
+            JournalParser.parse(in, downloaded::add);
+        } catch (javax.xml.stream.XMLStreamException e) {
+            throw new IOException("Error parsing journal download " + file, e);
+        }
+
+        List<String> newLines = new ArrayList<>();
+        for (JournalEntry entry : downloaded) {
+            if (entries.putIfAbsent(key(entry), entry) == null) {
+                newLines.add(toLine(entry));
+                if (entry.getTimestamp() != null
+                        && (lastActionTime == null || entry.getTimestamp().isAfter(lastActionTime))) {
+                    lastActionTime = entry.getTimestamp();
+                }
+            }
+        }
+        append(newLines);
+        log.debug("journal sync: " + downloaded.size() + " entries downloaded, " + newLines.size() + " new");
+    }
+
+    private void append(List<String> lines) throws IOException {
+        if (lines.isEmpty()) {
+            return;
+        }
+        Files.createDirectories(directory);
+        try (BufferedWriter writer = Files.newBufferedWriter(directory.resolve(LOG_FILE), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE)) {
+            for (String line : lines) {
+                writer.write(line);
+                writer.write('\n');
+            }
+        }
+    }
+
+    private void load() throws IOException {
+        if (loaded) {
+            return;
+        }
+        Path logFile = directory.resolve(LOG_FILE);
+        if (Files.exists(logFile)) {
+            try (BufferedReader reader = Files.newBufferedReader(logFile, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    JournalEntry entry = fromLine(line);
+                    if (entry == null) {
+                        // e.g. the last line of an interrupted append
+                        log.warn("skipping invalid journal store line: " + line);
+                        continue;
+                    }
+                    entries.putIfAbsent(key(entry), entry);
+                    if (entry.getTimestamp() != null
+                            && (lastActionTime == null || entry.getTimestamp().isAfter(lastActionTime))) {
+                        lastActionTime = entry.getTimestamp();
+                    }
+                }
+            }
+        }
+
+        Path metaFile = directory.resolve(META_FILE);
+        if (Files.exists(metaFile)) {
+            Properties meta = new Properties();
+            try (Reader reader = Files.newBufferedReader(metaFile, StandardCharsets.UTF_8)) {
+                meta.load(reader);
+            }
+            try {
+                String from = meta.getProperty("coveredFrom");
+                coveredFrom = from == null ? null : from.isEmpty() ? LocalDate.MIN : LocalDate.parse(from);
+                String sync = meta.getProperty("lastSync");
+                lastSync = sync != null ? Instant.parse(sync) : null;
+            } catch (DateTimeParseException e) {
+                log.warn("invalid journal store metadata, journal will be synchronised again", e);
+                coveredFrom = null;
+                lastSync = null;
+            }
+        }
+        loaded = true;
+        log.debug("journal store " + directory + " loaded with " + entries.size() + " entries");
+    }
+
+    private void saveMeta() throws IOException {
+        Properties meta = new Properties();
+        meta.setProperty("coveredFrom", coveredFrom.equals(LocalDate.MIN) ? "" : coveredFrom.toString());
+        if (lastSync != null) {
+            meta.setProperty("lastSync", lastSync.toString());
+        }
+        Files.createDirectories(directory);
+        Path tmp = directory.resolve(META_FILE + ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            meta.store(out, "FDP journal store");
+        }
+        Files.move(tmp, directory.resolve(META_FILE), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * ActionTime first, so the natural order of the keys is the time order of the journal
+     */
+    static String key(JournalEntry entry) {
+        return (entry.getTimestamp() != null ? KEY_TIME_FORMAT.format(entry.getTimestamp()) : "") + '\t' +
+                entry.getUniqueId() + '\t' + entry.getAction() + '\t' + entry.getType() + '\t' +
+                entry.getDataSupplier() + '\t' + entry.getUserName() + '\t' + entry.getDetails();
+    }
+
+    static String toLine(JournalEntry entry) {
+        return String.join("\t",
+                escape(entry.getTimestamp() != null ? entry.getTimestamp().toString() : null),
+                escape(entry.getAction() != null ? entry.getAction().name() : null),
+                escape(entry.getType() != null ? entry.getType().name() : null),
+                escape(entry.getDataSupplier()),
+                escape(entry.getUserName()),
+                escape(entry.getUniqueId()),
+                escape(entry.getDetails()),
+                Boolean.toString(entry.isEmpty()));
+    }
+
+    static JournalEntry fromLine(String line) {
+        String[] fields = line.split("\t", -1);
+        if (fields.length != FIELD_COUNT) {
+            return null;
+        }
+        try {
+            JournalEntry entry = new JournalEntry();
+            String timestamp = unescape(fields[0]);
+            entry.setTimestamp(timestamp != null ? LocalDateTime.parse(timestamp) : null);
+            String action = unescape(fields[1]);
+            entry.setAction(action != null ? ActionType.valueOf(action) : null);
+            String type = unescape(fields[2]);
+            entry.setType(type != null ? JournalType.valueOf(type) : null);
+            entry.setDataSupplier(unescape(fields[3]));
+            entry.setUserName(unescape(fields[4]));
+            entry.setUniqueId(unescape(fields[5]));
+            entry.setDetails(unescape(fields[6]));
+            entry.setEmpty(Boolean.parseBoolean(fields[7]));
+            return entry;
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static String escape(String value) {
+        if (value == null) {
+            return NULL;
+        }
+        return value.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    private static String unescape(String value) {
+        if (NULL.equals(value)) {
+            return null;
+        }
+        StringBuilder result = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                switch (next) {
+                    case 't' -> result.append('\t');
+                    case 'n' -> result.append('\n');
+                    case 'r' -> result.append('\r');
+                    default -> result.append(next);
+                }
+            } else {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+}
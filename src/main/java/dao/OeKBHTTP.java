@@ -15,37 +15,30 @@
  */
 package dao;
 
+import common.XMLHelper;
+import common.XmlFileInfo;
 import model.ApplicationSettings;
 import model.IApplicationSettings;
 import model.DownloadParameters;
 import org.apache.hc.client5.http.classic.methods.HttpPost;
-import org.apache.hc.client5.http.config.RequestConfig;
 import org.apache.hc.client5.http.entity.UrlEncodedFormEntity;
 import org.apache.hc.client5.http.entity.mime.MultipartEntityBuilder;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
-import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
-import org.apache.hc.client5.http.impl.classic.HttpClients;
-import org.apache.hc.client5.http.impl.routing.DefaultProxyRoutePlanner;
+import org.apache.hc.core5.http.ContentType;
 import org.apache.hc.core5.http.HttpEntity;
-import org.apache.hc.core5.http.HttpHost;
 import org.apache.hc.core5.http.NameValuePair;
 import org.apache.hc.core5.http.io.entity.EntityUtils;
 import org.apache.hc.core5.http.message.BasicNameValuePair;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.w3c.dom.Document;
-
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
-import java.io.ByteArrayInputStream;
+
 import java.io.File;
-import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -61,8 +54,11 @@ public class OeKBHTTP {
     /** Client version sent to OeKB server */
     private static final String CLIENT_VERSION = "4.4.0";
 
+    /** client injected by tests, null to use the shared client of the {@link HttpClientFactory} */
     private final CloseableHttpClient httpClient;
     private final IApplicationSettings applicationSettings;
+    private final ResilientHttpExecutor resilientExecutor;
+    private final UploadDeduplicator uploadDeduplicator;
 
     /**
      * Get the server parameter based on settings (prod or test).
@@ -72,11 +68,14 @@ public class OeKBHTTP {
     }
 
     /**
-     * Public constructor for application use. Creates a real HTTP client.
+     * Public constructor for application use. Uses the shared pooled HTTP client.
      */
     public OeKBHTTP() {
         this.applicationSettings = ApplicationSettings.getInstance();
-        this.httpClient = getOekbConnection();
+        this.applicationSettings.readSettingsFromFile();
+        this.httpClient = null;
+        this.resilientExecutor = ResilientHttpExecutor.getInstance();
+        this.uploadDeduplicator = UploadDeduplicator.getInstance();
     }
 
     /**
@@ -85,45 +84,50 @@ public class OeKBHTTP {
      * @param applicationSettings The application settings to use (real or mock).
      */
     OeKBHTTP(CloseableHttpClient httpClient, IApplicationSettings applicationSettings) {
+        this(httpClient, applicationSettings, new RetryPolicy());
+    }
+
+    /**
+     * Package-private constructor for testing against a stub server with a short retry policy.
+     */
+    OeKBHTTP(CloseableHttpClient httpClient, IApplicationSettings applicationSettings, RetryPolicy retryPolicy) {
         this.applicationSettings = applicationSettings;
         this.httpClient = httpClient;
+        this.resilientExecutor = new ResilientHttpExecutor(retryPolicy);
+        this.uploadDeduplicator = new UploadDeduplicator();
     }
 
-    private CloseableHttpClient getOekbConnection() {
-        applicationSettings.readSettingsFromFile();
+    /**
+     * Status and body of a server reply
+     */
+    private static final class ServerReply {
+        private final int statusCode;
+        private final String body;
 
-        String proxyHost = "";
-        Integer proxyPort = 0;
-        boolean useCustomProxy = false;
-
-        if (applicationSettings.isConnectionUseSystemSettings()) {
-            log.debug("using system proxy Settings");
-            System.setProperty("java.net.useSystemProxies", "true");
-            useCustomProxy = false;
-        } else {
-            if (applicationSettings.getConnectionProxyHost() != null &&
-                !applicationSettings.getConnectionProxyHost().isEmpty()) {
-                proxyHost = applicationSettings.getConnectionProxyHost();
-                proxyPort = applicationSettings.getConnectionProxyPort();
-            }
+        private ServerReply(int statusCode, String body) {
+            this.statusCode = statusCode;
+            this.body = body;
         }
+    }
 
-        if (proxyHost != null && proxyHost.length() > 1 && proxyPort != null && proxyPort > 1) {
-            useCustomProxy = true;
-            log.debug("proxy settings: " + proxyHost + ":" + proxyPort);
-        } else {
-            log.info("no valid proxy settings found!");
-        }
+    /**
+     * The shared client is asked for on every request: it is closed and rebuilt when the proxy
+     * settings change, and instances of this class may live longer than that (e.g. in a bulk upload).
+     */
+    private CloseableHttpClient client() {
+        return httpClient != null ? httpClient : HttpClientFactory.getInstance().getClient(applicationSettings);
+    }
 
-        if (useCustomProxy) {
-            HttpHost proxy = new HttpHost(proxyHost, proxyPort);
-            DefaultProxyRoutePlanner routePlanner = new DefaultProxyRoutePlanner(proxy);
-            return HttpClients.custom()
-                    .setRoutePlanner(routePlanner)
-                    .build();
-        } else {
-            return HttpClients.createDefault();
-        }
+    /**
+     * Sends the request through the retry/circuit breaker layer and reads the reply as string.
+     * The body is null if the server sent no entity.
+     */
+    private ServerReply post(HttpPost httpPost, ResilientHttpExecutor.RequestType type) throws IOException {
+        return resilientExecutor.execute(this::client, httpPost, type, response -> {
+            HttpEntity responseEntity = response.getEntity();
+            String body = responseEntity != null ? EntityUtils.toString(responseEntity, StandardCharsets.UTF_8) : null;
+            return new ServerReply(response.getCode(), body);
+        });
     }
 
     public String uploadAccessRule(File file) {
@@ -133,8 +137,7 @@ public class OeKBHTTP {
         // Check if in FileSystem mode (offline mode)
         if (applicationSettings.isFileSystem()) {
             try {
-                String fileContent = new String(java.nio.file.Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
-                saveToBackup(fileContent, "ACCESS_RULE_UPLOAD_OFFLINE");
+                saveToBackup(file.toPath(), "ACCESS_RULE_UPLOAD_OFFLINE");
                 log.info("OFFLINE MODE: Access rule saved to backup instead of uploading to server");
                 return "SUCCESS (OFFLINE MODE)\n\nAccess rule saved to backup directory.\nNo actual upload to server performed.";
             } catch (Exception e) {
@@ -144,6 +147,11 @@ public class OeKBHTTP {
         }
 
         // Real mode: HTTP POST to server
+        String documentId = UploadDeduplicator.readDocumentId(file);
+        if (!uploadDeduplicator.begin(documentId)) {
+            return "ERROR: Upload of document " + documentId + " is already running";
+        }
+
         try {
             HttpPost httpPost = new HttpPost(applicationSettings.getServerURL());
 
@@ -168,30 +176,27 @@ public class OeKBHTTP {
 
             log.info("Uploading access rule to server: {}", file.getName());
 
-            try (CloseableHttpResponse response = this.httpClient.execute(httpPost)) {
-                int statusCode = response.getCode();
-                log.debug("Server response status: {}", statusCode);
+            ServerReply reply = post(httpPost, ResilientHttpExecutor.RequestType.UPLOAD);
+            int statusCode = reply.statusCode;
+            log.debug("Server response status: {}", statusCode);
 
-                HttpEntity responseEntity = response.getEntity();
-                if (responseEntity != null) {
-                    outputString = EntityUtils.toString(responseEntity, StandardCharsets.UTF_8);
-
-                    if (statusCode != 200) {
-                        log.warn("Server returned non-OK status code: {}. Response: {}",
-                            statusCode,
-                            outputString.length() > 200 ? outputString.substring(0, 200) + "..." : outputString);
-                    } else {
-                        log.info("Access rule uploaded successfully");
-                    }
+            if (reply.body != null) {
+                outputString = reply.body;
+
+                if (statusCode != 200) {
+                    log.warn("Server returned non-OK status code: {}. Response: {}",
+                        statusCode,
+                        outputString.length() > 200 ? outputString.substring(0, 200) + "..." : outputString);
                 } else {
-                    log.warn("No response entity received from server");
-                    outputString = "ERROR: No response from server";
+                    log.info("Access rule uploaded successfully");
                 }
+            } else {
+                log.warn("No response entity received from server");
+                outputString = "ERROR: No response from server";
             }
 
             // Save backup of both request and response
-            String fileContent = new String(java.nio.file.Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
-            saveToBackup(fileContent, "ACCESS_RULE_UPLOAD_REQUEST");
+            saveToBackup(file.toPath(), "ACCESS_RULE_UPLOAD_REQUEST");
             if (!outputString.isEmpty()) {
                 saveToBackup(outputString, "ACCESS_RULE_UPLOAD_RESPONSE");
             }
@@ -213,15 +218,53 @@ public class OeKBHTTP {
                 e.getMessage());
             log.debug("Full exception details", e);
             outputString = "ERROR: " + e.getMessage();
+        } finally {
+            uploadDeduplicator.finish(documentId);
         }
 
         return outputString;
     }
 
     public String uploadDataFile(File file) {
+        byte[] content;
+        try {
+            content = Files.readAllBytes(file.toPath());
+        } catch (IOException e) {
+            log.error("Error reading data file {}", file, e);
+            return "ERROR: " + e.getMessage();
+        }
+        return uploadDataFile(file, content);
+    }
+
+    /**
+     * Uploads a data file whose content was already read, so bulk uploads read every file only once.
+     * @param file the file, used for its name
+     * @param content the content of the file
+     */
+    public String uploadDataFile(File file, byte[] content) {
+        return uploadDataFile(file, content, UploadDeduplicator.readDocumentId(content));
+    }
+
+    /**
+     * Uploads a data file that was read and classified by {@link XmlFileInfo}, without parsing it again.
+     * Access rules uploaded this way invalidate the {@link AccessRulesCache}, like those of the editor.
+     */
+    public String uploadDataFile(XmlFileInfo fileInfo) {
+        String reply = uploadDataFile(fileInfo.getFile(), fileInfo.getContent(), fileInfo.getDocumentId());
+        if (fileInfo.getFileType() == XMLHelper.FileTypes.ACCESS_RIGHTS && !reply.startsWith("ERROR:")) {
+            AccessRulesCache.getInstance().invalidate();
+        }
+        return reply;
+    }
+
+    private String uploadDataFile(File file, byte[] content, String documentId) {
         applicationSettings.readSettingsFromFile();
         String outputString = "";
 
+        if (!uploadDeduplicator.begin(documentId)) {
+            return "ERROR: Upload of document " + documentId + " is already running";
+        }
+
         try {
             HttpPost httpPost = new HttpPost(applicationSettings.getServerURL());
 
@@ -240,29 +283,27 @@ public class OeKBHTTP {
             builder.addTextBody("clientversion", CLIENT_VERSION);
             builder.addTextBody("fileToUploadName", file.getName());
             builder.addTextBody("upload_xml", file.getName());
-            builder.addBinaryBody("fileToUpload", file);
+            builder.addBinaryBody("fileToUpload", content, ContentType.DEFAULT_BINARY, file.getName());
 
             HttpEntity multipart = builder.build();
             httpPost.setEntity(multipart);
 
-            try (CloseableHttpResponse response = this.httpClient.execute(httpPost)) {
-                int statusCode = response.getCode();
-                log.debug("Server response status: {}", statusCode);
+            ServerReply reply = post(httpPost, ResilientHttpExecutor.RequestType.UPLOAD);
+            int statusCode = reply.statusCode;
+            log.debug("Server response status: {}", statusCode);
 
-                HttpEntity responseEntity = response.getEntity();
-                if (responseEntity != null) {
-                    outputString = EntityUtils.toString(responseEntity, StandardCharsets.UTF_8);
-                }
+            if (reply.body != null) {
+                outputString = reply.body;
+            }
 
-                if (statusCode >= 400) {
-                    log.error("Server returned error status: {}. Response: {}", statusCode,
-                        outputString.length() > 200 ? outputString.substring(0, 200) : outputString);
-                    return "ERROR: Server returned status " + statusCode;
-                }
+            if (statusCode >= 400) {
+                log.error("Server returned error status: {}. Response: {}", statusCode,
+                    outputString.length() > 200 ? outputString.substring(0, 200) : outputString);
+                return "ERROR: Server returned status " + statusCode;
             }
 
-            String fileContent = new String(java.nio.file.Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
-            saveToBackup(fileContent, file.getName());
+            log.debug("Backup of upload request {}", file.getName());
+            saveToBackup(content, "UPLOAD_DATA_REQUEST");
             saveToBackup(outputString, "UPLOAD_DATA_REPLY");
 
         } catch (java.net.UnknownHostException e) {
@@ -281,6 +322,8 @@ public class OeKBHTTP {
             log.error("Error uploading data file: {}. Check credentials, proxy settings, and network connection.", e.getMessage());
             log.debug("Full exception details", e);
             outputString = "ERROR: " + e.getMessage();
+        } finally {
+            uploadDeduplicator.finish(documentId);
         }
 
         return outputString;
@@ -311,26 +354,24 @@ public class OeKBHTTP {
 
             log.debug("Requesting access rules from: {}", applicationSettings.getServerURL());
 
-            try (CloseableHttpResponse response = this.httpClient.execute(httpPost)) {
-                int statusCode = response.getCode();
-                log.debug("Server response status: {}", statusCode);
+            ServerReply reply = post(httpPost, ResilientHttpExecutor.RequestType.DOWNLOAD);
+            int statusCode = reply.statusCode;
+            log.debug("Server response status: {}", statusCode);
 
-                HttpEntity responseEntity = response.getEntity();
-                if (responseEntity != null) {
-                    outputString = EntityUtils.toString(responseEntity, StandardCharsets.UTF_8);
-
-                    if (outputString == null || outputString.trim().isEmpty()) {
-                        log.warn("Server returned empty response. Check credentials and server availability.");
-                    } else if (statusCode != 200) {
-                        log.warn("Server returned non-OK status code: {}. Response: {}",
-                            statusCode,
-                            outputString.length() > 200 ? outputString.substring(0, 200) + "..." : outputString);
-                    } else {
-                        log.debug("Received {} bytes from server", outputString.length());
-                    }
+            if (reply.body != null) {
+                outputString = reply.body;
+
+                if (outputString.trim().isEmpty()) {
+                    log.warn("Server returned empty response. Check credentials and server availability.");
+                } else if (statusCode != 200) {
+                    log.warn("Server returned non-OK status code: {}. Response: {}",
+                        statusCode,
+                        outputString.length() > 200 ? outputString.substring(0, 200) + "..." : outputString);
                 } else {
-                    log.warn("No response entity received from server");
+                    log.debug("Received {} bytes from server", outputString.length());
                 }
+            } else {
+                log.warn("No response entity received from server");
             }
 
             if (outputString != null && !outputString.trim().isEmpty()) {
@@ -379,26 +420,24 @@ public class OeKBHTTP {
 
             log.debug("Requesting access rules from: {}", applicationSettings.getServerURL());
 
-            try (CloseableHttpResponse response = this.httpClient.execute(httpPost)) {
-                int statusCode = response.getCode();
-                log.debug("Server response status: {}", statusCode);
+            ServerReply reply = post(httpPost, ResilientHttpExecutor.RequestType.DOWNLOAD);
+            int statusCode = reply.statusCode;
+            log.debug("Server response status: {}", statusCode);
 
-                HttpEntity responseEntity = response.getEntity();
-                if (responseEntity != null) {
-                    outputString = EntityUtils.toString(responseEntity, StandardCharsets.UTF_8);
-
-                    if (outputString == null || outputString.trim().isEmpty()) {
-                        log.warn("Server returned empty response. Check credentials and server availability.");
-                    } else if (statusCode != 200) {
-                        log.warn("Server returned non-OK status code: {}. Response: {}",
-                            statusCode,
-                            outputString.length() > 200 ? outputString.substring(0, 200) + "..." : outputString);
-                    } else {
-                        log.debug("Received {} bytes from server", outputString.length());
-                    }
+            if (reply.body != null) {
+                outputString = reply.body;
+
+                if (outputString.trim().isEmpty()) {
+                    log.warn("Server returned empty response. Check credentials and server availability.");
+                } else if (statusCode != 200) {
+                    log.warn("Server returned non-OK status code: {}. Response: {}",
+                        statusCode,
+                        outputString.length() > 200 ? outputString.substring(0, 200) + "..." : outputString);
                 } else {
-                    log.warn("No response entity received from server");
+                    log.debug("Received {} bytes from server", outputString.length());
                 }
+            } else {
+                log.warn("No response entity received from server");
             }
 
             if (outputString != null && !outputString.trim().isEmpty()) {
@@ -422,51 +461,93 @@ public class OeKBHTTP {
         return outputString;
     }
 
-    public static void saveToBackup(String xml, String fileName) {
-        try {
-            ApplicationSettings settings = ApplicationSettings.getInstance();
-            String filePraefix = settings.isUseProdServer() ? "PROD" : "DEV";
-            filePraefix += "_" + settings.getDataSupplierList();
-
-            new File(settings.getBackupDirectory()).mkdirs();
-
-            String filePath = settings.getBackupDirectory() + File.separator +
-                    LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy_MM_dd_H_m_s")) +
-                    "__" + filePraefix + "_" + fileName + ".xml";
-
-            // Fix double .xml.xml extension
-            filePath = filePath.replace(".xml.xml", ".xml");
-
-            // Parse and pretty print XML
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            DocumentBuilder builder = factory.newDocumentBuilder();
-            Document doc = builder.parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
-
-            TransformerFactory transformerFactory = TransformerFactory.newInstance();
-            Transformer transformer = transformerFactory.newTransformer();
-            transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-            transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
-
-            File outputFile = new File(filePath);
-            try (FileWriter writer = new FileWriter(outputFile)) {
-                transformer.transform(new DOMSource(doc), new StreamResult(writer));
-            }
+    /**
+     * Stores a request or reply as it was sent or received. Nothing is parsed or re-formatted, the XML is
+     * only indented when it is shown (see {@link common.XmlIndenter}), and replies that are no XML,
+     * like "ERROR: ..." texts, are kept as well. The backup is written in the background by the
+     * {@link BackupWriter}, the caller does not wait for the disk.
+     */
+    public static void saveToBackup(String content, String mode) {
+        if (content != null) {
+            saveToBackup(content.getBytes(StandardCharsets.UTF_8), mode);
+        }
+    }
 
-            log.info("Saving Backup File: " + filePath);
+    public static void saveToBackup(byte[] content, String mode) {
+        BackupWriter.getInstance().submit(content, mode);
+    }
 
-        } catch (Exception e) {
+    /**
+     * Stores a copy of the file. The copy is taken right away, as the file may be removed after the upload.
+     */
+    public static void saveToBackup(Path file, String mode) {
+        try {
+            Path temp = BackupStore.getInstance().newTempFile();
+            Files.copy(file, temp, StandardCopyOption.REPLACE_EXISTING);
+            BackupWriter.getInstance().submit(temp, mode);
+        } catch (IOException e) {
             log.error("Error saving backup file", e);
         }
     }
 
     /**
-     * Generic download method for all download modes
+     * Generic download method for all download modes. The response is returned as soon as it is read,
+     * it is stored as backup in the background by the {@link BackupWriter}.
      * @param params Download parameters
      * @return XML response as string
      */
     private String genericDownload(Map<String, String> params) {
+        Path responseFile = downloadToTempFile(params);
+        if (responseFile == null) {
+            return "";
+        }
+
+        try {
+            return BackupStore.readString(responseFile);
+        } catch (IOException e) {
+            log.error("Error reading downloaded file " + responseFile, e);
+            return "";
+        } finally {
+            BackupWriter.getInstance().submit(responseFile, modeOf(params));
+        }
+    }
+
+    /**
+     * Generic streaming download into the backup store. Callers get the stored file, so the backup is
+     * written before this method returns.
+     * @param params Download parameters
+     * @return the backup file containing the response, or null if the download failed
+     */
+    private Path genericDownloadToFile(Map<String, String> params) {
+        Path responseFile = downloadToTempFile(params);
+        if (responseFile == null) {
+            return null;
+        }
+
+        try {
+            long size = Files.size(responseFile);
+            Path backupFile = BackupStore.getInstance().commit(responseFile, modeOf(params));
+            log.info("Saving Backup File: " + backupFile + " (" + size + " bytes)");
+            return backupFile;
+        } catch (IOException e) {
+            log.error("Error saving backup of download", e);
+            // the response is still usable from the temporary file
+            return Files.exists(responseFile) ? responseFile : null;
+        }
+    }
+
+    private static String modeOf(Map<String, String> params) {
+        return params.get("mode") != null ? params.get("mode") : "DOWNLOAD";
+    }
+
+    /**
+     * Streams the (already gzip-decoded) response body into a temporary file of the backup store,
+     * so the response is never held in memory.
+     * @return the temporary file, or null if the download failed
+     */
+    private Path downloadToTempFile(Map<String, String> params) {
         applicationSettings.readSettingsFromFile();
-        String outputString = "";
+        Path responseFile = null;
 
         try {
             HttpPost httpPost = new HttpPost(applicationSettings.getServerURL());
@@ -487,30 +568,40 @@ public class OeKBHTTP {
 
             httpPost.setEntity(new UrlEncodedFormEntity(formParams, StandardCharsets.UTF_8));
 
-            try (CloseableHttpResponse response = this.httpClient.execute(httpPost)) {
+            responseFile = BackupStore.getInstance().newTempFile();
+
+            Path target = responseFile;
+            resilientExecutor.execute(this::client, httpPost, ResilientHttpExecutor.RequestType.DOWNLOAD, response -> {
+                log.debug("Server response status: {}", response.getCode());
+
                 HttpEntity responseEntity = response.getEntity();
                 if (responseEntity != null) {
-                    outputString = EntityUtils.toString(responseEntity, StandardCharsets.UTF_8);
+                    try (InputStream in = responseEntity.getContent()) {
+                        Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+                    }
                 }
-            }
-
-            // Save backup if mode is available
-            String mode = params.get("mode");
-            if (mode != null) {
-                saveToBackup(outputString, mode + "_RESPONSE");
-            }
+                return target;
+            });
+            return responseFile;
 
         } catch (Exception e) {
             log.error("Error in generic download", e);
+            if (responseFile != null) {
+                try {
+                    Files.deleteIfExists(responseFile);
+                } catch (IOException ex) {
+                    log.warn("Could not delete incomplete download " + responseFile);
+                }
+            }
         }
 
-        return outputString;
+        return null;
     }
 
     /**
      * DOWNLOAD_FUND - Download fund data by LEI or OeNB-ID
      */
-    public String downloadFund(DownloadParameters params) {
+    private Map<String, String> fundRequestParams(DownloadParameters params) {
         Map<String, String> requestParams = new HashMap<>();
         requestParams.put("mode", "DOWNLOAD_FUND");
         requestParams.put("server", getServerParam());
@@ -535,13 +626,17 @@ public class OeKBHTTP {
             requestParams.put("requestblock-size", params.getRequestBlockSize().toString());
         }
 
-        return genericDownload(requestParams);
+        return requestParams;
+    }
+
+    public Path downloadFundToFile(DownloadParameters params) {
+        return genericDownloadToFile(fundRequestParams(params));
     }
 
     /**
      * DOWNLOAD_SHARECLASS_SEGMENT - Download shareclass/segment data by ISIN
      */
-    public String downloadShareClass(DownloadParameters params) {
+    private Map<String, String> shareClassRequestParams(DownloadParameters params) {
         Map<String, String> requestParams = new HashMap<>();
         requestParams.put("mode", "DOWNLOAD_SHARECLASS_SEGMENT");
         requestParams.put("server", getServerParam());
@@ -566,13 +661,17 @@ public class OeKBHTTP {
             requestParams.put("requestblock-size", params.getRequestBlockSize().toString());
         }
 
-        return genericDownload(requestParams);
+        return requestParams;
+    }
+
+    public Path downloadShareClassToFile(DownloadParameters params) {
+        return genericDownloadToFile(shareClassRequestParams(params));
     }
 
     /**
      * DOWNLOAD_OENB_AGGREGIERUNG - Download OeNB aggregated data
      */
-    public String downloadOeNBAggregierung(DownloadParameters params) {
+    private Map<String, String> oenbAggregierungRequestParams(DownloadParameters params) {
         Map<String, String> requestParams = new HashMap<>();
         requestParams.put("mode", "DOWNLOAD_OENB_AGGREGIERUNG");
         requestParams.put("server", getServerParam());
@@ -593,13 +692,21 @@ public class OeKBHTTP {
             requestParams.put("excludeinvalid", "true");
         }
 
-        return genericDownload(requestParams);
+        return requestParams;
+    }
+
+    public String downloadOeNBAggregierung(DownloadParameters params) {
+        return genericDownload(oenbAggregierungRequestParams(params));
+    }
+
+    public Path downloadOeNBAggregierungToFile(DownloadParameters params) {
+        return genericDownloadToFile(oenbAggregierungRequestParams(params));
     }
 
     /**
      * DOWNLOAD_OENB_SECBYSEC - Download OeNB Security-by-Security data
      */
-    public String downloadOeNBSecBySec(DownloadParameters params) {
+    private Map<String, String> oenbSecBySecRequestParams(DownloadParameters params) {
         Map<String, String> requestParams = new HashMap<>();
         requestParams.put("mode", "DOWNLOAD_OENB_SECBYSEC");
         requestParams.put("server", getServerParam());
@@ -620,13 +727,21 @@ public class OeKBHTTP {
             requestParams.put("excludeinvalid", "true");
         }
 
-        return genericDownload(requestParams);
+        return requestParams;
+    }
+
+    public String downloadOeNBSecBySec(DownloadParameters params) {
+        return genericDownload(oenbSecBySecRequestParams(params));
+    }
+
+    public Path downloadOeNBSecBySecToFile(DownloadParameters params) {
+        return genericDownloadToFile(oenbSecBySecRequestParams(params));
     }
 
     /**
      * DOWNLOAD_OENB_CHECK - Download OeNB aggregation check
      */
-    public String downloadOeNBCheck(LocalDate date, String validFilter) {
+    private Map<String, String> oenbCheckRequestParams(LocalDate date, String validFilter) {
         Map<String, String> requestParams = new HashMap<>();
         requestParams.put("mode", "DOWNLOAD_OENB_CHECK");
         requestParams.put("server", getServerParam());
@@ -642,15 +757,26 @@ public class OeKBHTTP {
             requestParams.put("valid", validFilter); // "true" or "false"
         }
 
-        return genericDownload(requestParams);
+        return requestParams;
+    }
+
+    public Path downloadOeNBCheckToFile(LocalDate date, String validFilter) {
+        return genericDownloadToFile(oenbCheckRequestParams(date, validFilter));
     }
 
     /**
      * DOWNLOAD_JOURNAL - Download journal entries
      */
-    public String downloadJournal(LocalDateTime timeFrom, LocalDateTime timeTo,
-                                        String action, String type, String userJournal,
-                                        String uniqueId, boolean excludeEmptyDownloads) {
+    public Path downloadJournalToFile(LocalDateTime timeFrom, LocalDateTime timeTo,
+                                      String action, String type, String userJournal,
+                                      String uniqueId, boolean excludeEmptyDownloads) {
+        return genericDownloadToFile(journalRequestParams(timeFrom, timeTo, action, type, userJournal, uniqueId,
+                excludeEmptyDownloads));
+    }
+
+    private Map<String, String> journalRequestParams(LocalDateTime timeFrom, LocalDateTime timeTo,
+                                                     String action, String type, String userJournal,
+                                                     String uniqueId, boolean excludeEmptyDownloads) {
         Map<String, String> requestParams = new HashMap<>();
         requestParams.put("mode", "DOWNLOAD_JOURNAL");
         requestParams.put("server", getServerParam());
@@ -686,13 +812,13 @@ public class OeKBHTTP {
             requestParams.put("exclude_empty_dl", "true");
         }
 
-        return genericDownload(requestParams);
+        return requestParams;
     }
 
     /**
      * DOWNLOAD_DOCUMENTS - Download documents
      */
-    public String downloadDocuments(DownloadParameters params, String documentType) {
+    private Map<String, String> documentsRequestParams(DownloadParameters params, String documentType) {
         Map<String, String> requestParams = new HashMap<>();
         requestParams.put("mode", "DOWNLOAD_DOCUMENTS");
         requestParams.put("server", getServerParam());
@@ -726,13 +852,17 @@ public class OeKBHTTP {
             }
         }
 
-        return genericDownload(requestParams);
+        return requestParams;
+    }
+
+    public Path downloadDocumentsToFile(DownloadParameters params, String documentType) {
+        return genericDownloadToFile(documentsRequestParams(params, documentType));
     }
 
     /**
      * DOWNLOAD_REG_REPORTINGS - Download regulatory reportings
      */
-    public String downloadRegulatoryReportings(DownloadParameters params, String reportingType) {
+    private Map<String, String> regulatoryReportingsRequestParams(DownloadParameters params, String reportingType) {
         Map<String, String> requestParams = new HashMap<>();
         requestParams.put("mode", "DOWNLOAD_REG_REPORTINGS");
         requestParams.put("server", getServerParam());
@@ -761,15 +891,19 @@ public class OeKBHTTP {
             requestParams.put("reg_reporting_type", reportingType);
         }
 
-        return genericDownload(requestParams);
+        return requestParams;
+    }
+
+    public Path downloadRegulatoryReportingsToFile(DownloadParameters params, String reportingType) {
+        return genericDownloadToFile(regulatoryReportingsRequestParams(params, reportingType));
     }
 
     /**
      * DOWNLOAD_AVAILABLE_DATA - Download available data information
      */
-    public String downloadAvailableData(LocalDate contentDate, LocalDateTime uploadTimeFrom,
-                                               LocalDateTime uploadTimeTo, String fdpContent,
-                                               DownloadParameters params) {
+    private Map<String, String> availableDataRequestParams(LocalDate contentDate, LocalDateTime uploadTimeFrom,
+                                                           LocalDateTime uploadTimeTo, String fdpContent,
+                                                           DownloadParameters params) {
         Map<String, String> requestParams = new HashMap<>();
         requestParams.put("mode", "DOWNLOAD_AVAILABLE_DATA");
         requestParams.put("server", getServerParam());
@@ -805,7 +939,19 @@ public class OeKBHTTP {
             }
         }
 
-        return genericDownload(requestParams);
+        return requestParams;
+    }
+
+    public String downloadAvailableData(LocalDate contentDate, LocalDateTime uploadTimeFrom,
+                                        LocalDateTime uploadTimeTo, String fdpContent,
+                                        DownloadParameters params) {
+        return genericDownload(availableDataRequestParams(contentDate, uploadTimeFrom, uploadTimeTo, fdpContent, params));
+    }
+
+    public Path downloadAvailableDataToFile(LocalDate contentDate, LocalDateTime uploadTimeFrom,
+                                            LocalDateTime uploadTimeTo, String fdpContent,
+                                            DownloadParameters params) {
+        return genericDownloadToFile(availableDataRequestParams(contentDate, uploadTimeFrom, uploadTimeTo, fdpContent, params));
     }
 
     /**
@@ -854,19 +1000,4 @@ public class OeKBHTTP {
                docType.equals("KID") || docType.equals("Prospectus") ||
                docType.equals("PRIIPS-KID");
     }
-
-    /**
-     * Batch upload multiple files
-     */
-    public List<String> uploadDataFiles(List<File> files) {
-        List<String> results = new ArrayList<>();
-
-        for (File file : files) {
-            log.info("Uploading file: " + file.getName());
-            String result = uploadDataFile(file);
-            results.add(result);
-        }
-
-        return results;
-    }
 }
@@ -0,0 +1,247 @@
+/*
+ * Copyright 2018 Karl Kauc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dao;
+
+import org.apache.hc.client5.http.ConnectTimeoutException;
+import org.apache.hc.client5.http.classic.methods.HttpPost;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
+import org.apache.hc.core5.http.ConnectionClosedException;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.NoHttpResponseException;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Sends FDP requests with retries, exponential backoff and a circuit breaker per server.
+ * <p>
+ * Downloads are idempotent and are repeated on connection problems, timeouts and the
+ * retryable status codes of the {@link RetryPolicy}. Uploads are only repeated if the server
+ * can not have processed them: the connection could not be established, or the server
+ * refused the request with 429/503.
+ */
+public class ResilientHttpExecutor {
+    private static final Logger log = LogManager.getLogger(ResilientHttpExecutor.class);
+    private static ResilientHttpExecutor instance;
+
+    public enum RequestType {
+        DOWNLOAD, UPLOAD
+    }
+
+    /**
+     * Processes the final response. For downloads an {@link IOException} while reading the
+     * body repeats the whole request.
+     */
+    public interface ResponseHandler<T> {
+        T handle(CloseableHttpResponse response) throws IOException;
+    }
+
+    private final RetryPolicy policy;
+    private final Map<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+
+    public ResilientHttpExecutor(RetryPolicy policy) {
+        this.policy = policy;
+    }
+
+    /**
+     * Shared executor, so all OeKBHTTP instances see the same circuit state per server.
+     */
+    public static synchronized ResilientHttpExecutor getInstance() {
+        if (instance == null) {
+            instance = new ResilientHttpExecutor(new RetryPolicy());
+        }
+        return instance;
+    }
+
+    public RetryPolicy getPolicy() {
+        return policy;
+    }
+
+    public CircuitBreaker getCircuitBreaker(String serverUrl) {
+        String key = serverKey(serverUrl);
+        return circuitBreakers.computeIfAbsent(key,
+                k -> new CircuitBreaker(k, policy.getFailureThreshold(), policy.getOpenDuration()));
+    }
+
+    public <T> T execute(CloseableHttpClient httpClient, HttpPost request, RequestType type,
+                         ResponseHandler<T> handler) throws IOException {
+        return execute(() -> httpClient, request, type, handler);
+    }
+
+    /**
+     * @param clientSupplier asked for the client before every attempt, so a retry uses a client that
+     *                       was rebuilt in the meantime
+     */
+    public <T> T execute(Supplier<CloseableHttpClient> clientSupplier, HttpPost request, RequestType type,
+                         ResponseHandler<T> handler) throws IOException {
+        CircuitBreaker circuitBreaker = getCircuitBreaker(serverUrl(request));
+        // the breaker counts requests, not attempts: retries of one request are one failure or success
+        circuitBreaker.acquirePermission();
+        boolean serverFailed = true;
+        try {
+            for (int attempt = 1; ; attempt++) {
+                boolean lastAttempt = attempt >= policy.getMaxAttempts();
+
+                CloseableHttpResponse response;
+                try {
+                    response = clientSupplier.get().execute(request);
+                } catch (IOException e) {
+                    if (lastAttempt || !isRetryable(e, type)) {
+                        throw e;
+                    }
+                    long delay = policy.backoffMillis(attempt);
+                    log.warn("{} request failed ({}), retry {} of {} in {} ms", type, e.toString(),
+                            attempt, policy.getMaxAttempts() - 1, delay);
+                    sleep(delay);
+                    continue;
+                }
+
+                int statusCode = response.getCode();
+                if (isRetryable(statusCode, type) && !lastAttempt) {
+                    long delay = Math.max(policy.backoffMillis(attempt), retryAfterMillis(response));
+                    log.warn("server answered {} to {} request, retry {} of {} in {} ms", statusCode, type,
+                            attempt, policy.getMaxAttempts() - 1, delay);
+                    discard(response);
+                    sleep(delay);
+                    continue;
+                }
+
+                try (response) {
+                    T result = handler.handle(response);
+                    serverFailed = statusCode >= 500 || policy.getRetryableStatusCodes().contains(statusCode);
+                    return result;
+                } catch (IOException e) {
+                    if (lastAttempt || type != RequestType.DOWNLOAD || !isRetryable(e, type)) {
+                        throw e;
+                    }
+                    long delay = policy.backoffMillis(attempt);
+                    log.warn("reading response failed ({}), retry {} of {} in {} ms", e.toString(),
+                            attempt, policy.getMaxAttempts() - 1, delay);
+                    sleep(delay);
+                }
+            }
+        } finally {
+            if (serverFailed) {
+                circuitBreaker.recordFailure();
+            } else {
+                circuitBreaker.recordSuccess();
+            }
+        }
+    }
+
+    boolean isRetryable(int statusCode, RequestType type) {
+        return type == RequestType.UPLOAD ? policy.getUploadRetryableStatusCodes().contains(statusCode) :
+                policy.getRetryableStatusCodes().contains(statusCode);
+    }
+
+    static boolean isRetryable(IOException e, RequestType type) {
+        // connection was never established, so not even an upload reached the server
+        if (e instanceof ConnectException || e instanceof ConnectTimeoutException) {
+            return true;
+        }
+        if (type == RequestType.UPLOAD) {
+            return false;
+        }
+        return e instanceof SocketTimeoutException || e instanceof NoHttpResponseException ||
+                e instanceof ConnectionClosedException || e instanceof SocketException;
+    }
+
+    /**
+     * Delay requested by a Retry-After header (seconds or HTTP date), capped by the policy.
+     */
+    long retryAfterMillis(CloseableHttpResponse response) {
+        Header header = response.getFirstHeader("Retry-After");
+        if (header == null) {
+            return 0;
+        }
+        long millis = parseRetryAfter(header.getValue(), Instant.now());
+        return Math.min(millis, policy.getMaxRetryAfter().toMillis());
+    }
+
+    static long parseRetryAfter(String value, Instant now) {
+        if (value == null || value.isBlank()) {
+            return 0;
+        }
+        String trimmed = value.trim();
+        try {
+            return Math.max(0, Long.parseLong(trimmed) * 1000);
+        } catch (NumberFormatException e) {
+            // not delta-seconds, try HTTP date
+        }
+        try {
+            Instant until = ZonedDateTime.parse(trimmed, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+            return Math.max(0, until.toEpochMilli() - now.toEpochMilli());
+        } catch (DateTimeParseException e) {
+            log.debug("ignoring invalid Retry-After header: {}", trimmed);
+            return 0;
+        }
+    }
+
+    private static void discard(CloseableHttpResponse response) {
+        try (response) {
+            EntityUtils.consume(response.getEntity());
+        } catch (IOException e) {
+            log.debug("error discarding response", e);
+        }
+    }
+
+    private static void sleep(long millis) throws InterruptedIOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("retry interrupted");
+        }
+    }
+
+    private static String serverUrl(HttpPost request) {
+        try {
+            return request.getUri().toString();
+        } catch (Exception e) {
+            return request.getRequestUri();
+        }
+    }
+
+    /**
+     * One circuit per scheme, host and port; prod and QAS are different hosts.
+     */
+    static String serverKey(String serverUrl) {
+        try {
+            URI uri = URI.create(serverUrl);
+            if (uri.getHost() != null) {
+                return uri.getScheme() + "://" + uri.getHost() + (uri.getPort() > 0 ? ":" + uri.getPort() : "");
+            }
+        } catch (IllegalArgumentException e) {
+            // fall through and use the raw value
+        }
+        return serverUrl;
+    }
+}
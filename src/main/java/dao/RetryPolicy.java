@@ -0,0 +1,132 @@
+/*
+ * Copyright 2018 Karl Kauc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dao;
+
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Settings for {@link ResilientHttpExecutor}: how often and how fast failed FDP requests are
+ * repeated and when the circuit breaker of a server opens.
+ */
+public class RetryPolicy {
+
+    /** Attempts per request including the first one */
+    private int maxAttempts = 4;
+
+    private Duration initialBackoff = Duration.ofSeconds(1);
+    private Duration maxBackoff = Duration.ofSeconds(30);
+    private double backoffMultiplier = 2.0;
+
+    /** Upper bound for waiting on a Retry-After header of the server */
+    private Duration maxRetryAfter = Duration.ofMinutes(2);
+
+    /** Status codes that signal a temporary problem of the server or its gateway */
+    private Set<Integer> retryableStatusCodes = Set.of(429, 502, 503, 504);
+
+    /** Status codes an upload may be repeated on, because the server did not process the request */
+    private Set<Integer> uploadRetryableStatusCodes = Set.of(429, 503);
+
+    /** Consecutive failures after which the circuit of a server opens */
+    private int failureThreshold = 5;
+
+    /** Time the circuit stays open before a single trial request is let through */
+    private Duration openDuration = Duration.ofSeconds(60);
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+    }
+
+    public Duration getInitialBackoff() {
+        return initialBackoff;
+    }
+
+    public void setInitialBackoff(Duration initialBackoff) {
+        this.initialBackoff = initialBackoff;
+    }
+
+    public Duration getMaxBackoff() {
+        return maxBackoff;
+    }
+
+    public void setMaxBackoff(Duration maxBackoff) {
+        this.maxBackoff = maxBackoff;
+    }
+
+    public double getBackoffMultiplier() {
+        return backoffMultiplier;
+    }
+
+    public void setBackoffMultiplier(double backoffMultiplier) {
+        this.backoffMultiplier = backoffMultiplier;
+    }
+
+    public Duration getMaxRetryAfter() {
+        return maxRetryAfter;
+    }
+
+    public void setMaxRetryAfter(Duration maxRetryAfter) {
+        this.maxRetryAfter = maxRetryAfter;
+    }
+
+    public Set<Integer> getRetryableStatusCodes() {
+        return retryableStatusCodes;
+    }
+
+    public void setRetryableStatusCodes(Set<Integer> retryableStatusCodes) {
+        this.retryableStatusCodes = retryableStatusCodes;
+    }
+
+    public Set<Integer> getUploadRetryableStatusCodes() {
+        return uploadRetryableStatusCodes;
+    }
+
+    public void setUploadRetryableStatusCodes(Set<Integer> uploadRetryableStatusCodes) {
+        this.uploadRetryableStatusCodes = uploadRetryableStatusCodes;
+    }
+
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    public void setFailureThreshold(int failureThreshold) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+    }
+
+    public Duration getOpenDuration() {
+        return openDuration;
+    }
+
+    public void setOpenDuration(Duration openDuration) {
+        this.openDuration = openDuration;
+    }
+
+    /**
+     * Exponential backoff with "equal jitter": a random delay between half and the full
+     * exponential value, so parallel downloads do not hit the server at the same moment.
+     * @param retry 1 for the first retry
+     */
+    public long backoffMillis(int retry) {
+        double exponential = initialBackoff.toMillis() * Math.pow(backoffMultiplier, retry - 1);
+        long delay = (long) Math.min(maxBackoff.toMillis(), exponential);
+        long half = delay / 2;
+        return half + (long) (Math.random() * (delay - half + 1));
+    }
+}
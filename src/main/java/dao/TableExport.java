@@ -0,0 +1,146 @@
+/*
+ * Copyright 2024 Karl Kauc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dao;
+
+import model.DownloadedInformationEntry;
+import model.JournalEntry;
+import model.NewInformationEntry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Export of table data to xlsx, csv or csv.gz. The format follows the file name (see
+ * {@link TableWriter#open}), the rows are streamed to the file, so exports of any size need constant memory.
+ * The column definitions of the table views are kept here, so all exports of a type look the same.
+ */
+public class TableExport {
+    private static final Logger log = LogManager.getLogger(TableExport.class);
+
+    // rows between two progress updates
+    static final int PROGRESS_STEP = 1000;
+
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    /**
+     * Receives the progress of an export and can stop it
+     */
+    public interface Progress {
+        Progress NONE = new Progress() {
+            @Override
+            public void update(long done, long total) {
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return false;
+            }
+        };
+
+        void update(long done, long total);
+
+        boolean isCancelled();
+    }
+
+    public static final List<ExportColumn<JournalEntry>> JOURNAL = List.of(
+            ExportColumn.of("Timestamp", e -> e.getTimestamp() != null ? e.getTimestamp().format(TIMESTAMP_FORMAT) : null),
+            ExportColumn.of("Action", e -> e.getAction() != null ? e.getAction().getDescription() : null),
+            ExportColumn.of("Type", e -> e.getType() != null ? e.getType().getDescription() : null),
+            ExportColumn.of("Username", JournalEntry::getUserName),
+            ExportColumn.of("Data Supplier", JournalEntry::getDataSupplier),
+            ExportColumn.of("Unique ID", JournalEntry::getUniqueId),
+            ExportColumn.of("Details", JournalEntry::getDetails),
+            ExportColumn.of("Is Empty", e -> String.valueOf(e.isEmpty())));
+
+    public static final List<ExportColumn<NewInformationEntry>> NEW_INFORMATION = List.of(
+            ExportColumn.of("Type", e -> e.getContentType() != null ? e.getContentType().name() : null),
+            ExportColumn.of("Content Date", NewInformationEntry::getContentDate),
+            ExportColumn.of("Upload Time", NewInformationEntry::getUploadDateTime),
+            ExportColumn.of("Data Supplier", NewInformationEntry::getDataSuppliersString),
+            ExportColumn.of("LEI", NewInformationEntry::getLei),
+            ExportColumn.of("ISIN", NewInformationEntry::getIsinsString),
+            ExportColumn.of("Document Type", NewInformationEntry::getDocumentType),
+            ExportColumn.of("Document Language", NewInformationEntry::getDocumentLanguage),
+            ExportColumn.of("Document Format", NewInformationEntry::getDocumentFormat),
+            ExportColumn.of("Reporting Type", NewInformationEntry::getReportingType),
+            ExportColumn.of("Profiles", NewInformationEntry::getProfilesString));
+
+    public static final List<ExportColumn<DownloadedInformationEntry>> DOWNLOADED_INFORMATION = List.of(
+            ExportColumn.of("Type", e -> e.getContentType() != null ? e.getContentType().name() : null),
+            ExportColumn.of("Content Date", DownloadedInformationEntry::getContentDate),
+            ExportColumn.of("Download Time", DownloadedInformationEntry::getDownloadDateTime),
+            ExportColumn.of("Downloaded By", DownloadedInformationEntry::getDataSuppliersString),
+            ExportColumn.of("Access", DownloadedInformationEntry::getAccessInfo),
+            ExportColumn.of("LEI", DownloadedInformationEntry::getLei),
+            ExportColumn.of("OENB_ID", DownloadedInformationEntry::getOenb_identnr),
+            ExportColumn.of("ISIN", DownloadedInformationEntry::getIsinsString),
+            ExportColumn.of("Document Type", DownloadedInformationEntry::getDocumentType),
+            ExportColumn.of("Document Language", DownloadedInformationEntry::getDocumentLanguage),
+            ExportColumn.of("Document Format", DownloadedInformationEntry::getDocumentFormat),
+            ExportColumn.of("Reporting Type", DownloadedInformationEntry::getReportingType),
+            ExportColumn.of("Profiles", DownloadedInformationEntry::getProfilesString));
+
+    /**
+     * Writes the rows to the file. If the rows do not fit into an Excel sheet, a .csv file is written instead.
+     * A cancelled export removes the partly written file and throws a {@link CancellationException}.
+     *
+     * @return the written file
+     */
+    public static <T> File export(File file, String sheetName, List<T> rows, List<ExportColumn<T>> columns, Progress progress) throws IOException {
+        if (progress == null) {
+            progress = Progress.NONE;
+        }
+        File target = WriteXLS.targetFile(file.getPath(), rows.size());
+        log.debug("exporting " + rows.size() + " rows to " + target);
+
+        String[] headers = new String[columns.size()];
+        for (int i = 0; i < headers.length; i++) {
+            headers[i] = columns.get(i).getHeader();
+        }
+
+        boolean completed = false;
+        try (TableWriter writer = TableWriter.open(target, sheetName, headers)) {
+            Object[] values = new Object[headers.length];
+            int done = 0;
+            for (T row : rows) {
+                if (done % PROGRESS_STEP == 0) {
+                    if (progress.isCancelled()) {
+                        throw new CancellationException("Export to " + target + " cancelled");
+                    }
+                    progress.update(done, rows.size());
+                }
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = columns.get(i).getValue(row);
+                }
+                writer.writeRow(values);
+                done++;
+            }
+            completed = true;
+        } finally {
+            if (!completed && target.delete()) {
+                log.debug("unvollstaendiger Export geloescht: " + target);
+            }
+        }
+        progress.update(rows.size(), rows.size());
+        log.debug("export fertig: " + target);
+        return target;
+    }
+}
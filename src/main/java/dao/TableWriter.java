@@ -0,0 +1,51 @@
+/*
+ * Copyright 2018 Karl Kauc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dao;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Row by row writer for table exports. Rows are written out while they are added, so an export needs
+ * the same memory for 100 rows and for 1 million rows.
+ */
+public interface TableWriter extends Closeable {
+
+    /**
+     * Writes one row. Supported values are null, String, Number, Boolean, Date and LocalDateTime,
+     * everything else is written as {@code toString()}.
+     */
+    void writeRow(Object... values) throws IOException;
+
+    /**
+     * Writer for the file type of the file name: gzip compressed CSV for ".csv.gz", CSV for ".csv",
+     * otherwise Excel (xlsx)
+     */
+    static TableWriter open(File file, String sheetName, String... headers) throws IOException {
+        String name = file.getName().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv.gz")) {
+            return new CsvTableWriter(new GZIPOutputStream(Files.newOutputStream(file.toPath()), 64 * 1024), headers);
+        }
+        if (name.endsWith(".csv")) {
+            return new CsvTableWriter(file, headers);
+        }
+        return new XlsxTableWriter(file, sheetName, headers);
+    }
+}
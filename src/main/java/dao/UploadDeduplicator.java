@@ -0,0 +1,106 @@
+/*
+ * Copyright 2018 Karl Kauc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dao;
+
+import common.XMLHelper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Keeps a document (identified by its ControlData/UniqueDocumentID) from being sent twice at the
+ * same time, e.g. by a double click or a file dropped again while its upload is running.
+ * <p>
+ * Finished uploads are not remembered: a corrected file may keep its ID, and the same document may
+ * be sent to another server or for another data supplier.
+ */
+public class UploadDeduplicator {
+    private static final Logger log = LogManager.getLogger(UploadDeduplicator.class);
+    private static UploadDeduplicator instance;
+
+    private final Set<String> inFlight = new HashSet<>();
+
+    UploadDeduplicator() {
+    }
+
+    public static synchronized UploadDeduplicator getInstance() {
+        if (instance == null) {
+            instance = new UploadDeduplicator();
+        }
+        return instance;
+    }
+
+    /**
+     * Reads the first UniqueDocumentID of the file; only the beginning of the file is parsed.
+     * @return the ID or null if the file has none or is not XML
+     */
+    public static String readDocumentId(File file) {
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            return readDocumentId(in);
+        } catch (Exception e) {
+            log.debug("no UniqueDocumentID found in {}: {}", file.getName(), e.getMessage());
+        }
+        return null;
+    }
+
+    public static String readDocumentId(byte[] content) {
+        try {
+            return readDocumentId(new ByteArrayInputStream(content));
+        } catch (Exception e) {
+            log.debug("no UniqueDocumentID found: {}", e.getMessage());
+        }
+        return null;
+    }
+
+    private static String readDocumentId(InputStream in) throws XMLStreamException {
+        XMLStreamReader reader = XMLHelper.getInputFactory().createXMLStreamReader(in);
+        try {
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT &&
+                        "UniqueDocumentID".equals(reader.getLocalName())) {
+                    String id = reader.getElementText().trim();
+                    return id.isEmpty() ? null : id;
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return null;
+    }
+
+    /**
+     * Marks the document as being uploaded.
+     * @return false if the same document is already being uploaded
+     */
+    public synchronized boolean begin(String documentId) {
+        return documentId == null || inFlight.add(documentId);
+    }
+
+    public synchronized void finish(String documentId) {
+        if (documentId != null) {
+            inFlight.remove(documentId);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2024 Karl Kauc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dao;
+
+import common.XMLHelper;
+import model.UploadReply;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.StringReader;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Parses a FundsXML_Reply (FundsXML_Reply_3.0.1.xsd) of an upload into an {@link UploadReply}.
+ * <p>
+ * The reply is read in one StAX pass. A reply for a large upload can hold tens of thousands of status
+ * elements, so {@link Mode} decides which of them are kept; the error and info counts of the reply
+ * always cover all of them.
+ */
+public class UploadReplyParser {
+    private static final Logger log = LogManager.getLogger(UploadReplyParser.class);
+
+    /** errors kept by {@link Mode#FIRST_N_ERRORS} if no other limit is given */
+    public static final int DEFAULT_MAX_ERRORS = 1000;
+
+    public enum Mode {
+        /** keep every status */
+        FULL,
+        /** keep only the overall status, document data and counts */
+        SUMMARY_ONLY,
+        /** keep the first errors up to a limit, count everything else */
+        FIRST_N_ERRORS
+    }
+
+    private UploadReplyParser() {
+    }
+
+    /**
+     * @param replyXml reply of the server
+     * @return the parsed reply with all statuses or null if the reply is empty, an error message or not a FundsXML_Reply
+     */
+    public static UploadReply parse(String replyXml) {
+        return parse(replyXml, Mode.FULL, 0);
+    }
+
+    /**
+     * @param replyXml reply of the server
+     * @param maxErrors number of errors kept in {@link Mode#FIRST_N_ERRORS}, ignored by the other modes
+     * @return the parsed reply or null if the reply is empty, an error message or not a FundsXML_Reply
+     */
+    public static UploadReply parse(String replyXml, Mode mode, int maxErrors) {
+        if (replyXml == null || replyXml.isBlank() || replyXml.startsWith("ERROR:")) {
+            return null;
+        }
+
+        try {
+            XMLStreamReader reader = XMLHelper.getInputFactory().createXMLStreamReader(new StringReader(replyXml));
+            try {
+                return parse(reader, mode, maxErrors);
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            log.warn("Error parsing upload reply: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static UploadReply parse(XMLStreamReader reader, Mode mode, int maxErrors) throws XMLStreamException {
+        int keptErrors = 0;
+        UploadReply reply = null;
+        UploadReply.StatusInfo statusInfo = null;
+        UploadReply.AccessRuleStatus accessRule = null;
+        UploadReply.ElementStatus elementStatus = null;
+        String parent = null;
+
+        while (reader.hasNext()) {
+            int event = reader.next();
+
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                String name = reader.getLocalName();
+                if (reply == null) {
+                    if (!"FundsXML_Reply".equals(name)) {
+                        log.debug("not an upload reply, root element is <{}>", name);
+                        return null;
+                    }
+                    reply = new UploadReply();
+                    continue;
+                }
+
+                switch (name) {
+                    case "DataSupplier", "Document" -> parent = name;
+                    case "StatusInfo" -> statusInfo = new UploadReply.StatusInfo();
+                    case "AccessRule" -> accessRule = new UploadReply.AccessRuleStatus();
+                    case "ElementStatus" -> elementStatus = new UploadReply.ElementStatus();
+                    case "Short" -> {
+                        if ("DataSupplier".equals(parent)) reply.setDataSupplierShort(reader.getElementText().trim());
+                    }
+                    case "Name" -> {
+                        if ("DataSupplier".equals(parent)) reply.setDataSupplierName(reader.getElementText().trim());
+                    }
+                    case "ContentDate" -> reply.setContentDate(parseDate(reader.getElementText()));
+                    case "UniqueDocumentID" -> reply.setUniqueDocumentId(reader.getElementText().trim());
+                    case "RuleID" -> {
+                        if (accessRule != null) accessRule.setRuleId(reader.getElementText().trim());
+                    }
+                    case "Status" -> {
+                        UploadReply.StatusType status = parseStatus(reader.getElementText());
+                        if (elementStatus != null) {
+                            elementStatus.setStatus(status);
+                        } else if (statusInfo != null) {
+                            statusInfo.setStatus(status);
+                        }
+                    }
+                    case "Message" -> {
+                        String message = reader.getElementText().trim();
+                        if (elementStatus != null) {
+                            elementStatus.setMessage(message);
+                        } else if (statusInfo != null) {
+                            statusInfo.setMessage(message);
+                        }
+                    }
+                    case "Context" -> {
+                        if (statusInfo != null) statusInfo.setContext(reader.getElementText().trim());
+                    }
+                    case "Kategorie" -> {
+                        if (statusInfo != null) statusInfo.setKategorie(reader.getElementText().trim());
+                    }
+                    case "OverallStatus" ->
+                            reply.setOverallStatus(UploadReply.OverallStatus.fromString(reader.getElementText().trim()));
+                    case "AdditionalInformation" -> reply.setAdditionalInformation(reader.getElementText().trim());
+                    default -> {
+                        // not needed
+                    }
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                switch (reader.getLocalName()) {
+                    case "DataSupplier", "Document" -> parent = null;
+                    case "StatusInfo" -> {
+                        if (keep(mode, statusInfo.isError(), keptErrors, maxErrors)) {
+                            reply.addStatusInfo(statusInfo);
+                            keptErrors += statusInfo.isError() ? 1 : 0;
+                        } else {
+                            reply.countStatusInfo(statusInfo);
+                            // dropped infos and OKs are expected, only dropped errors are worth a warning
+                            if (statusInfo.isError()) {
+                                reply.setTruncated(true);
+                            }
+                        }
+                        statusInfo = null;
+                    }
+                    case "ElementStatus" -> {
+                        if (accessRule != null) {
+                            if (keep(mode, elementStatus.isError(), keptErrors, maxErrors)) {
+                                accessRule.addElementStatus(elementStatus);
+                                keptErrors += elementStatus.isError() ? 1 : 0;
+                            } else {
+                                accessRule.countElementStatus(elementStatus);
+                                if (elementStatus.isError()) {
+                                    reply.setTruncated(true);
+                                }
+                            }
+                        }
+                        elementStatus = null;
+                    }
+                    case "AccessRule" -> {
+                        reply.addAccessRuleStatus(accessRule);
+                        accessRule = null;
+                    }
+                    default -> {
+                        // nothing to finish
+                    }
+                }
+            }
+        }
+        return reply;
+    }
+
+    private static boolean keep(Mode mode, boolean error, int keptErrors, int maxErrors) {
+        return switch (mode) {
+            case FULL -> true;
+            case SUMMARY_ONLY -> false;
+            case FIRST_N_ERRORS -> error && keptErrors < maxErrors;
+        };
+    }
+
+    private static UploadReply.StatusType parseStatus(String value) {
+        try {
+            return UploadReply.StatusType.valueOf(value.trim());
+        } catch (IllegalArgumentException e) {
+            log.debug("unknown status in upload reply: {}", value);
+            return null;
+        }
+    }
+
+    private static LocalDate parseDate(String value) {
+        try {
+            return LocalDate.parse(value.trim());
+        } catch (DateTimeParseException e) {
+            log.debug("invalid ContentDate in upload reply: {}", value);
+            return null;
+        }
+    }
+}
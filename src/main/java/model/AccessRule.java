@@ -46,6 +46,38 @@ public class AccessRule {
     private List<String> documentTypes;         // For ContentType=DOC
     private List<String> regulatoryReportings;  // For ContentType=REG
 
+    public AccessRule() {
+    }
+
+    /**
+     * Copy with its own lists, so editing the copy leaves the original rule unchanged.
+     * @param other The rule to copy
+     */
+    public AccessRule(AccessRule other) {
+        this.id = other.id;
+        this.contentType = other.contentType;
+        this.profiles = copy(other.profiles);
+        this.dataSupplierCreatorShort = other.dataSupplierCreatorShort;
+        this.dataSupplierCreatorName = other.dataSupplierCreatorName;
+        this.dataSuppliersGivenShort = copy(other.dataSuppliersGivenShort);
+        this.creationTime = other.creationTime;
+        this.accessDelayInDays = other.accessDelayInDays;
+        this.dateFrom = other.dateFrom;
+        this.dateTo = other.dateTo;
+        this.frequency = other.frequency;
+        this.costsByDataSupplier = other.costsByDataSupplier;
+        this.LEI = copy(other.LEI);
+        this.OENB_ID = copy(other.OENB_ID);
+        this.ISIN_SEGMENT = copy(other.ISIN_SEGMENT);
+        this.ISIN_SHARECLASS = copy(other.ISIN_SHARECLASS);
+        this.documentTypes = copy(other.documentTypes);
+        this.regulatoryReportings = copy(other.regulatoryReportings);
+    }
+
+    private static List<String> copy(List<String> list) {
+        return list != null ? new ArrayList<>(list) : null;
+    }
+
     // Getters and Setters
     public String getId() {
         return id;
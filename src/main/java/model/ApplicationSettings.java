@@ -33,11 +33,134 @@ import java.io.File;
 import java.io.StringWriter;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
-
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Application settings stored in settings.xml.
+ * <p>
+ * The getters read from an immutable, versioned {@link Snapshot}. {@link #readSettingsFromFile()}
+ * only parses the file again if its modification time or size changed, so it can be called
+ * before every request. The setters change a draft that becomes visible with
+ * {@link #saveSettingsDataToFile()}. Every new snapshot is announced to the registered
+ * {@link ChangeListener}s.
+ */
 public class ApplicationSettings implements IApplicationSettings {
     private static final Logger log = LogManager.getLogger(ApplicationSettings.class);
     private static ApplicationSettings instance;
 
+    /**
+     * Notified after a new settings snapshot was published, on the thread that read or saved the settings.
+     * Listeners are called without holding the settings lock, so they may read or save the settings themselves.
+     */
+    public interface ChangeListener {
+        void settingsChanged(Snapshot oldSettings, Snapshot newSettings);
+    }
+
+    /**
+     * Immutable view of all settings at one point in time.
+     */
+    public static final class Snapshot {
+        private final long version;
+        private final String oekbUserName;
+        private final String oekbPasswort;
+        private final Boolean connectionUseSystemSettings;
+        private final String connectionProxyHost;
+        private final Integer connectionProxyPort;
+        private final String connectionProxyUser;
+        private final String connectionProxyPassword;
+        private final Boolean overwriteData;
+        private final Boolean newAccesRuleId;
+        private final Boolean useProdServer;
+        private final String backupDirectory;
+        private final Boolean fileSystem;
+        private final String dataSupplierList;
+        private final String authCredentialsBasic;
+
+        private Snapshot(ApplicationSettings draft, long version) {
+            this.version = version;
+            this.oekbUserName = draft.oekbUserName;
+            this.oekbPasswort = draft.oekbPasswort;
+            this.connectionUseSystemSettings = draft.connectionUseSystemSettings;
+            this.connectionProxyHost = draft.connectionProxyHost;
+            this.connectionProxyPort = draft.connectionProxyPort;
+            this.connectionProxyUser = draft.connectionProxyUser;
+            this.connectionProxyPassword = draft.connectionProxyPassword;
+            this.overwriteData = draft.overwriteData;
+            this.newAccesRuleId = draft.newAccesRuleId;
+            this.useProdServer = draft.useProdServer;
+            this.backupDirectory = draft.backupDirectory;
+            this.fileSystem = draft.fileSystem;
+            this.dataSupplierList = draft.dataSupplierList;
+            String pwString = new String((oekbUserName + ":" + oekbPasswort).getBytes(), StandardCharsets.US_ASCII);
+            this.authCredentialsBasic = Base64.encodeBase64String(pwString.getBytes());
+        }
+
+        /** Increases with every published snapshot */
+        public long getVersion() {
+            return version;
+        }
+
+        public String getOekbUserName() {
+            return oekbUserName;
+        }
+
+        public String getOekbPasswort() {
+            return oekbPasswort;
+        }
+
+        public boolean isConnectionUseSystemSettings() {
+            return Boolean.TRUE.equals(connectionUseSystemSettings);
+        }
+
+        public String getConnectionProxyHost() {
+            return connectionProxyHost;
+        }
+
+        public Integer getConnectionProxyPort() {
+            return connectionProxyPort;
+        }
+
+        public boolean isUseProdServer() {
+            return Boolean.TRUE.equals(useProdServer);
+        }
+
+        public String getBackupDirectory() {
+            return backupDirectory;
+        }
+
+        public boolean isFileSystem() {
+            return Boolean.TRUE.equals(fileSystem);
+        }
+
+        public String getDataSupplierList() {
+            return dataSupplierList;
+        }
+
+        public String getServerURL() {
+            if (isUseProdServer()) {
+                return "https://fdp-service.oekb.at/client";
+            }
+            return "https://fdp-qas-service.oekb.at/client";
+        }
+
+        public String getAuthCredentialsBasic() {
+            return authCredentialsBasic;
+        }
+    }
+
+    private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile Snapshot snapshot;
+    private long nextVersion = 1;
+
+    /** Modification time and size of the settings file when it was last read or written */
+    private String loadedFile;
+    private long loadedModified = -1;
+    private long loadedSize = -1;
+
+    // Draft values, changed by the setters and published by saveSettingsDataToFile()
+
     private String oekbPasswort;
     private String oekbUserName;
 
@@ -57,8 +180,9 @@ public class ApplicationSettings implements IApplicationSettings {
 
     private String dataSupplierList;
 
-    private ApplicationSettings() {
-        // Private constructor for singleton
+    // package-private for tests, the application uses getInstance()
+    ApplicationSettings() {
+        snapshot = new Snapshot(this, 0);
     }
 
     public static synchronized ApplicationSettings getInstance() {
@@ -73,6 +197,20 @@ public class ApplicationSettings implements IApplicationSettings {
     }
 
     public boolean saveSettingsDataToFile(String fileName) {
+        Snapshot oldSnapshot;
+        Snapshot newSnapshot;
+        synchronized (this) {
+            oldSnapshot = snapshot;
+            if (!writeSettings(fileName)) {
+                return false;
+            }
+            newSnapshot = snapshot;
+        }
+        notifyListeners(oldSnapshot, newSnapshot);
+        return true;
+    }
+
+    private boolean writeSettings(String fileName) {
         try {
             DocumentBuilderFactory docFactory = DocumentBuilderFactory.newInstance();
             DocumentBuilder docBuilder = docFactory.newDocumentBuilder();
@@ -99,7 +237,8 @@ public class ApplicationSettings implements IApplicationSettings {
 
             createElement(doc, rootElement, "overwriteData", String.valueOf(overwriteData));
             createElement(doc, rootElement, "newAccesRuleId", String.valueOf(newAccesRuleId));
-            createElement(doc, rootElement, "BackupDirectory", "backup");
+            createElement(doc, rootElement, "BackupDirectory",
+                    backupDirectory != null && !backupDirectory.isBlank() ? backupDirectory : "backup");
             createElement(doc, rootElement, "fileSystem", String.valueOf(fileSystem));
 
             TransformerFactory transformerFactory = TransformerFactory.newInstance();
@@ -116,6 +255,8 @@ public class ApplicationSettings implements IApplicationSettings {
             transformer.transform(source, result);
 
             log.debug("File " + fileName + " saved...");
+            rememberFileState(file, fileName);
+            publishSnapshot();
             return true;
         } catch (Exception e) {
             log.error("Error saving settings to file: " + fileName, e);
@@ -134,17 +275,32 @@ public class ApplicationSettings implements IApplicationSettings {
     }
 
     public void readSettingsFromFile(String filename) {
-        log.debug("lese settings aus file ein: " + filename);
-
         File file = new File(filename);
         if (!file.exists()) {
             log.error("Settings File " + file.getAbsolutePath() + " does not exists!");
             saveSettingsDataToFile();
             return;
-        } else {
-            log.debug("settings File " + file.getAbsolutePath() + " wird eingelesen");
         }
 
+        Snapshot oldSnapshot;
+        Snapshot newSnapshot;
+        synchronized (this) {
+            oldSnapshot = snapshot;
+            parseSettings(file, filename);
+            newSnapshot = snapshot;
+        }
+        if (newSnapshot != oldSnapshot) {
+            notifyListeners(oldSnapshot, newSnapshot);
+        }
+    }
+
+    private void parseSettings(File file, String filename) {
+        if (filename.equals(loadedFile) && file.lastModified() == loadedModified && file.length() == loadedSize) {
+            // unchanged since the last read or save, keep the current snapshot
+            return;
+        }
+        log.debug("settings File " + file.getAbsolutePath() + " wird eingelesen");
+
         try {
             DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
             DocumentBuilder builder = factory.newDocumentBuilder();
@@ -176,11 +332,54 @@ public class ApplicationSettings implements IApplicationSettings {
                 backupDirectory = "backup";
             }
             fileSystem = Boolean.parseBoolean(getElementText(doc, "fileSystem"));
+
+            rememberFileState(file, filename);
+            publishSnapshot();
         } catch (Exception e) {
             log.error("Error reading settings from file: " + filename, e);
         }
     }
 
+    private void rememberFileState(File file, String filename) {
+        loadedFile = filename;
+        loadedModified = file.lastModified();
+        loadedSize = file.length();
+    }
+
+    /**
+     * Publishes the draft values as new snapshot. Called with the lock held, the listeners are
+     * notified by the caller after releasing it.
+     */
+    private void publishSnapshot() {
+        snapshot = new Snapshot(this, nextVersion++);
+        log.debug("settings version {} published", snapshot.getVersion());
+    }
+
+    private void notifyListeners(Snapshot oldSnapshot, Snapshot newSnapshot) {
+        for (ChangeListener listener : listeners) {
+            try {
+                listener.settingsChanged(oldSnapshot, newSnapshot);
+            } catch (Exception e) {
+                log.error("Error in settings change listener", e);
+            }
+        }
+    }
+
+    /**
+     * @return the current immutable settings
+     */
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public void addChangeListener(ChangeListener listener) {
+        listeners.add(Objects.requireNonNull(listener));
+    }
+
+    public void removeChangeListener(ChangeListener listener) {
+        listeners.remove(listener);
+    }
+
     private String getElementText(Document doc, String tagName) {
         try {
             org.w3c.dom.NodeList nodeList = doc.getElementsByTagName(tagName);
@@ -194,20 +393,16 @@ public class ApplicationSettings implements IApplicationSettings {
     }
 
     public String getServerURL() {
-        if (useProdServer != null && useProdServer) {
-            return "https://fdp-service.oekb.at/client";
-        }
-        return "https://fdp-qas-service.oekb.at/client";
+        return snapshot.getServerURL();
     }
 
     public String getAuthCredentialsBasic() {
-        String pwString = new String((oekbUserName + ":" + oekbPasswort).getBytes(), StandardCharsets.US_ASCII);
-        return Base64.encodeBase64String(pwString.getBytes());
+        return snapshot.getAuthCredentialsBasic();
     }
 
     // Getters and Setters
     public String getOekbPasswort() {
-        return oekbPasswort;
+        return snapshot.oekbPasswort;
     }
 
     public void setOekbPasswort(String oekbPasswort) {
@@ -215,7 +410,7 @@ public class ApplicationSettings implements IApplicationSettings {
     }
 
     public String getOekbUserName() {
-        return oekbUserName;
+        return snapshot.oekbUserName;
     }
 
     public void setOekbUserName(String oekbUserName) {
@@ -223,11 +418,11 @@ public class ApplicationSettings implements IApplicationSettings {
     }
 
     public Boolean getConnectionUseSystemSettings() {
-        return connectionUseSystemSettings;
+        return snapshot.connectionUseSystemSettings;
     }
 
     public boolean isConnectionUseSystemSettings() {
-        return Boolean.TRUE.equals(connectionUseSystemSettings);
+        return snapshot.isConnectionUseSystemSettings();
     }
 
     public void setConnectionUseSystemSettings(Boolean connectionUseSystemSettings) {
@@ -235,7 +430,7 @@ public class ApplicationSettings implements IApplicationSettings {
     }
 
     public String getConnectionProxyHost() {
-        return connectionProxyHost;
+        return snapshot.connectionProxyHost;
     }
 
     public void setConnectionProxyHost(String connectionProxyHost) {
@@ -243,7 +438,7 @@ public class ApplicationSettings implements IApplicationSettings {
     }
 
     public Integer getConnectionProxyPort() {
-        return connectionProxyPort;
+        return snapshot.connectionProxyPort;
     }
 
     public void setConnectionProxyPort(Integer connectionProxyPort) {
@@ -251,7 +446,7 @@ public class ApplicationSettings implements IApplicationSettings {
     }
 
     public String getConnectionProxyUser() {
-        return connectionProxyUser;
+        return snapshot.connectionProxyUser;
     }
 
     public void setConnectionProxyUser(String connectionProxyUser) {
@@ -259,7 +454,7 @@ public class ApplicationSettings implements IApplicationSettings {
     }
 
     public String getConnectionProxyPassword() {
-        return connectionProxyPassword;
+        return snapshot.connectionProxyPassword;
     }
 
     public void setConnectionProxyPassword(String connectionProxyPassword) {
@@ -267,11 +462,11 @@ public class ApplicationSettings implements IApplicationSettings {
     }
 
     public Boolean getOverwriteData() {
-        return overwriteData;
+        return snapshot.overwriteData;
     }
 
     public boolean isOverwriteData() {
-        return Boolean.TRUE.equals(overwriteData);
+        return Boolean.TRUE.equals(snapshot.overwriteData);
     }
 
     public void setOverwriteData(Boolean overwriteData) {
@@ -279,11 +474,11 @@ public class ApplicationSettings implements IApplicationSettings {
     }
 
     public Boolean getNewAccesRuleId() {
-        return newAccesRuleId;
+        return snapshot.newAccesRuleId;
     }
 
     public boolean isNewAccesRuleId() {
-        return Boolean.TRUE.equals(newAccesRuleId);
+        return Boolean.TRUE.equals(snapshot.newAccesRuleId);
     }
 
     public void setNewAccesRuleId(Boolean newAccesRuleId) {
@@ -291,11 +486,11 @@ public class ApplicationSettings implements IApplicationSettings {
     }
 
     public Boolean getUseProdServer() {
-        return useProdServer;
+        return snapshot.useProdServer;
     }
 
     public boolean isUseProdServer() {
-        return Boolean.TRUE.equals(useProdServer);
+        return snapshot.isUseProdServer();
     }
 
     public void setUseProdServer(Boolean useProdServer) {
@@ -303,7 +498,7 @@ public class ApplicationSettings implements IApplicationSettings {
     }
 
     public String getBackupDirectory() {
-        return backupDirectory;
+        return snapshot.backupDirectory;
     }
 
     public void setBackupDirectory(String backupDirectory) {
@@ -311,11 +506,11 @@ public class ApplicationSettings implements IApplicationSettings {
     }
 
     public Boolean getFileSystem() {
-        return fileSystem;
+        return snapshot.fileSystem;
     }
 
     public boolean isFileSystem() {
-        return Boolean.TRUE.equals(fileSystem);
+        return snapshot.isFileSystem();
     }
 
     public void setFileSystem(Boolean fileSystem) {
@@ -323,7 +518,7 @@ public class ApplicationSettings implements IApplicationSettings {
     }
 
     public String getDataSupplierList() {
-        return dataSupplierList;
+        return snapshot.dataSupplierList;
     }
 
     public void setDataSupplierList(String dataSupplierList) {
@@ -332,17 +527,19 @@ public class ApplicationSettings implements IApplicationSettings {
 
     @Override
     public String toString() {
+        Snapshot current = snapshot;
         return "ApplicationSettings{" +
-                "oekbUserName='" + oekbUserName + '\'' +
-                ", connectionUseSystemSettings=" + connectionUseSystemSettings +
-                ", connectionProxyHost='" + connectionProxyHost + '\'' +
-                ", connectionProxyPort=" + connectionProxyPort +
-                ", overwriteData=" + overwriteData +
-                ", newAccesRuleId=" + newAccesRuleId +
-                ", useProdServer=" + useProdServer +
-                ", backupDirectory='" + backupDirectory + '\'' +
-                ", fileSystem=" + fileSystem +
-                ", dataSupplierList='" + dataSupplierList + '\'' +
+                "version=" + current.version +
+                ", oekbUserName='" + current.oekbUserName + '\'' +
+                ", connectionUseSystemSettings=" + current.connectionUseSystemSettings +
+                ", connectionProxyHost='" + current.connectionProxyHost + '\'' +
+                ", connectionProxyPort=" + current.connectionProxyPort +
+                ", overwriteData=" + current.overwriteData +
+                ", newAccesRuleId=" + current.newAccesRuleId +
+                ", useProdServer=" + current.useProdServer +
+                ", backupDirectory='" + current.backupDirectory + '\'' +
+                ", fileSystem=" + current.fileSystem +
+                ", dataSupplierList='" + current.dataSupplierList + '\'' +
                 '}';
     }
 }
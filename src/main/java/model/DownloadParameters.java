@@ -126,6 +126,22 @@ public class DownloadParameters {
         this.outputFileName = outputFileName;
     }
 
+    /**
+     * Creates a copy of these parameters for a subset of the LEI/OeNB-IDs (used for block downloads).
+     */
+    public DownloadParameters copyWithLeiOenIds(List<String> ids) {
+        DownloadParameters copy = new DownloadParameters(mode);
+        copy.date = date;
+        copy.profile = profile;
+        copy.dataSupplier = dataSupplier;
+        copy.leiOenIds = new ArrayList<>(ids);
+        copy.isins = new ArrayList<>(isins);
+        copy.requestBlockSize = requestBlockSize;
+        copy.excludeInvalid = excludeInvalid;
+        copy.outputFileName = outputFileName;
+        return copy;
+    }
+
     public boolean hasLeiOenIds() {
         return leiOenIds != null && !leiOenIds.isEmpty();
     }
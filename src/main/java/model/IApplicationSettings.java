@@ -23,7 +23,8 @@ package model;
 public interface IApplicationSettings {
 
     /**
-     * Read settings from the configuration file.
+     * Read settings from the configuration file. Implementations may skip parsing if the file
+     * did not change since the last read.
      */
     void readSettingsFromFile();
 
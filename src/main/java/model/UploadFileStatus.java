@@ -0,0 +1,137 @@
+/*
+ * Copyright 2018 Karl Kauc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package model;
+
+import common.XMLHelper;
+
+import java.io.File;
+
+/**
+ * Status of one file in a bulk upload. Updated by the upload threads and shown in the
+ * status table of the Data Upload page.
+ */
+public class UploadFileStatus {
+
+    public enum State {
+        QUEUED("Queued"),
+        UPLOADING("Uploading"),
+        DONE("Done"),
+        FAILED("Failed");
+
+        private final String description;
+
+        State(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+    }
+
+    private final File file;
+    private volatile State state = State.QUEUED;
+    private volatile XMLHelper.FileTypes fileType;
+    private volatile String reply;
+    private volatile UploadReply uploadReply;
+    private volatile Boolean ofiSumsOk;
+    private volatile String message;
+
+    public UploadFileStatus(File file) {
+        this.file = file;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public String getFileName() {
+        return file.getName();
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public void setState(State state) {
+        this.state = state;
+    }
+
+    public XMLHelper.FileTypes getFileType() {
+        return fileType;
+    }
+
+    public void setFileType(XMLHelper.FileTypes fileType) {
+        this.fileType = fileType;
+    }
+
+    /** Raw server reply */
+    public String getReply() {
+        return reply;
+    }
+
+    public void setReply(String reply) {
+        this.reply = reply;
+    }
+
+    public UploadReply getUploadReply() {
+        return uploadReply;
+    }
+
+    public void setUploadReply(UploadReply uploadReply) {
+        this.uploadReply = uploadReply;
+    }
+
+    /** Result of the OFI sum check, null for other file types */
+    public Boolean getOfiSumsOk() {
+        return ofiSumsOk;
+    }
+
+    public void setOfiSumsOk(Boolean ofiSumsOk) {
+        this.ofiSumsOk = ofiSumsOk;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public String getOverallStatus() {
+        UploadReply r = uploadReply;
+        return r != null && r.getOverallStatus() != null ? r.getOverallStatus().name() : "";
+    }
+
+    public int getErrorCount() {
+        UploadReply r = uploadReply;
+        if (r == null) {
+            return 0;
+        }
+        int errors = r.getErrorCount();
+        for (UploadReply.AccessRuleStatus rule : r.getAccessRuleStatuses()) {
+            if (rule.hasErrors()) {
+                errors++;
+            }
+        }
+        return errors;
+    }
+
+    public boolean isFinished() {
+        return state == State.DONE || state == State.FAILED;
+    }
+}
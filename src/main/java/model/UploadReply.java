@@ -72,6 +72,11 @@ public class UploadReply {
     private OverallStatus overallStatus;
     private String additionalInformation;
 
+    // Counts of all status infos, also of those the parser did not keep
+    private int errorCount;
+    private int infoCount;
+    private boolean truncated;
+
     public UploadReply() {
         this.statusInfos = new ArrayList<>();
         this.accessRuleStatuses = new ArrayList<>();
@@ -137,6 +142,7 @@ public class UploadReply {
     public static class AccessRuleStatus {
         private String ruleId;
         private List<ElementStatus> elementStatuses;
+        private int errorCount;
 
         public AccessRuleStatus() {
             this.elementStatuses = new ArrayList<>();
@@ -161,14 +167,25 @@ public class UploadReply {
 
         public void setElementStatuses(List<ElementStatus> elementStatuses) {
             this.elementStatuses = elementStatuses;
+            this.errorCount = (int) elementStatuses.stream().filter(ElementStatus::isError).count();
         }
 
         public void addElementStatus(ElementStatus status) {
             this.elementStatuses.add(status);
+            countElementStatus(status);
+        }
+
+        /**
+         * Counts an element status without keeping it, for replies too large to keep every status.
+         */
+        public void countElementStatus(ElementStatus status) {
+            if (status.isError()) {
+                errorCount++;
+            }
         }
 
         public boolean hasErrors() {
-            return elementStatuses.stream().anyMatch(ElementStatus::isError);
+            return errorCount > 0;
         }
     }
 
@@ -248,10 +265,25 @@ public class UploadReply {
 
     public void setStatusInfos(List<StatusInfo> statusInfos) {
         this.statusInfos = statusInfos;
+        this.errorCount = 0;
+        this.infoCount = 0;
+        statusInfos.forEach(this::countStatusInfo);
     }
 
     public void addStatusInfo(StatusInfo info) {
         this.statusInfos.add(info);
+        countStatusInfo(info);
+    }
+
+    /**
+     * Counts a status info without keeping it, for replies too large to keep every status.
+     */
+    public void countStatusInfo(StatusInfo info) {
+        if (info.isError()) {
+            errorCount++;
+        } else if (info.isInfo()) {
+            infoCount++;
+        }
     }
 
     public List<AccessRuleStatus> getAccessRuleStatuses() {
@@ -296,11 +328,22 @@ public class UploadReply {
     }
 
     public int getErrorCount() {
-        return (int) statusInfos.stream().filter(StatusInfo::isError).count();
+        return errorCount;
     }
 
     public int getInfoCount() {
-        return (int) statusInfos.stream().filter(StatusInfo::isInfo).count();
+        return infoCount;
+    }
+
+    /**
+     * @return true if the parser dropped error statuses, the counts still cover all of them
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public void setTruncated(boolean truncated) {
+        this.truncated = truncated;
     }
 
     @Override
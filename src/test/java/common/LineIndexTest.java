@@ -0,0 +1,126 @@
+package common;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LineIndexTest {
+
+    private static final String XML = String.join("\n",
+            "<FundsXML4>",
+            "  <Funds>",
+            "    <Fund>",
+            "      <Names>",
+            "        <OfficialName>Fund Ä</OfficialName>",
+            "      </Names>",
+            "      <SingleFundFlag>",
+            "        <ShareClasses>",
+            "          <ShareClass>",
+            "            <Identifiers><ISIN>AT0000000001</ISIN></Identifiers>",
+            "          </ShareClass>",
+            "          <ShareClass/>",
+            "        </ShareClasses>",
+            "      </SingleFundFlag>",
+            "    </Fund>",
+            "  </Funds>",
+            "</FundsXML4>",
+            "");
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Should index and decode the lines of a file")
+    void testLines() throws Exception {
+        LineIndex index = LineIndex.open(write(XML));
+
+        assertEquals(17, index.getLineCount());
+        assertEquals("<FundsXML4>", index.getLine(0));
+        assertEquals("        <OfficialName>Fund Ä</OfficialName>", index.getLine(4));
+        assertEquals("</FundsXML4>", index.getLine(16));
+    }
+
+    @Test
+    @DisplayName("Should find Fund and ShareClass records and where they end")
+    void testRecords() throws Exception {
+        LineIndex index = LineIndex.open(write(XML));
+
+        assertEquals(3, index.getRecordCount());
+        assertEquals(2, index.getRecordLine(0));
+        assertEquals(14, index.getRecordEndLine(2));
+        assertEquals(10, index.getRecordEndLine(8));
+        assertEquals(11, index.getRecordEndLine(11));
+    }
+
+    @Test
+    @DisplayName("Should search the file with and without case")
+    void testFind() throws Exception {
+        LineIndex index = LineIndex.open(write(XML.replace("\n", "\r\n")));
+
+        assertEquals(9, index.find("AT0000000001", 0, false));
+        assertEquals(-1, index.find("AT0000000001", 10, false));
+        assertEquals(-1, index.find("officialname", 0, false));
+        assertEquals(4, index.find("officialname", 0, true));
+        assertEquals(4, index.find("Fund Ä", 0, true));
+        assertEquals("    <Fund>", index.getLine(2));
+    }
+
+    @Test
+    @DisplayName("Should cut very long lines")
+    void testLongLine() throws Exception {
+        LineIndex index = LineIndex.open(write("x".repeat(LineIndex.MAX_LINE_BYTES * 2)));
+
+        assertEquals(1, index.getLineCount());
+        assertTrue(index.getLine(0).length() < LineIndex.MAX_LINE_BYTES + 5);
+    }
+
+    @Test
+    @DisplayName("Should not split a UTF-8 character when cutting a long line")
+    void testLongLineUtf8() throws Exception {
+        // 'Ä' takes two bytes, the limit falls into the middle of one
+        LineIndex index = LineIndex.open(write("x" + "Ä".repeat(LineIndex.MAX_LINE_BYTES)));
+
+        String line = index.getLine(0);
+        assertFalse(line.contains("\uFFFD"));
+        assertEquals("x" + "Ä".repeat(LineIndex.MAX_LINE_BYTES / 2 - 1) + " …", line);
+    }
+
+    @Test
+    @DisplayName("Should read lines across pages and release the file on close")
+    void testPagesAndClose() throws Exception {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 20_000; i++) {
+            text.append("    <Line>").append(i).append("</Line>\n");
+        }
+        Path file = write(text.toString());
+        LineIndex index = LineIndex.open(file);
+
+        assertEquals(20_000, index.getLineCount());
+        assertEquals("    <Line>19999</Line>", index.getLine(19_999));
+        assertEquals("    <Line>0</Line>", index.getLine(0));
+        assertEquals(12_345, index.find("<Line>12345<", 0, false));
+
+        index.close();
+        Files.delete(file);
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    @DisplayName("Should handle an empty file")
+    void testEmpty() throws Exception {
+        LineIndex index = LineIndex.open(write(""));
+
+        assertEquals(0, index.getLineCount());
+        assertEquals(-1, index.find("x", 0, false));
+    }
+
+    private Path write(String content) throws Exception {
+        return Files.writeString(tempDir.resolve("result.xml"), content, StandardCharsets.UTF_8);
+    }
+}
@@ -68,4 +68,27 @@ class XMLHelperTest {
             XMLHelper.getFileType(malformedXml);
         });
     }
+
+    @Test
+    @DisplayName("Should find Meldungstyp below a FundsXML4 root")
+    void testGetFileType_OFIInFundsXML4() {
+        String ofiXml = "<FundsXML4>" +
+                        "  <Funds><Fund><CountrySpecificData><AT><OeNB>" +
+                        "    <Meldungstyp>OFI</Meldungstyp>" +
+                        "  </OeNB></AT></CountrySpecificData></Fund></Funds>" +
+                        "</FundsXML4>";
+        assertEquals(XMLHelper.FileTypes.OFI, XMLHelper.getFileType(ofiXml));
+        assertTrue(XMLHelper.isOfiFile(ofiXml));
+    }
+
+    @Test
+    @DisplayName("Should only look at the first Meldungstyp")
+    void testIsOfiFile_FirstMeldungstyp() {
+        String xml = "<Funds>" +
+                     "  <Fund><CountrySpecificData><AT><OeNB><Meldungstyp>VERMOEGEN</Meldungstyp></OeNB></AT></CountrySpecificData></Fund>" +
+                     "  <Fund><CountrySpecificData><AT><OeNB><Meldungstyp>OFI</Meldungstyp></OeNB></AT></CountrySpecificData></Fund>" +
+                     "</Funds>";
+        assertFalse(XMLHelper.isOfiFile(xml));
+        assertEquals(XMLHelper.FileTypes.FUND_DATA, XMLHelper.getFileType(xml));
+    }
 }
@@ -0,0 +1,58 @@
+package common;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class XmlFileInfoTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Should read type and document ID of a file in one pass")
+    void testRead() throws Exception {
+        String xml = "<FundsXML4><ControlData><UniqueDocumentID> DOC-1 </UniqueDocumentID></ControlData>" +
+                "<Funds><Fund><CountrySpecificData><AT><OeNB><Meldungstyp>OFI</Meldungstyp></OeNB></AT>" +
+                "</CountrySpecificData></Fund></Funds></FundsXML4>";
+        Path file = Files.writeString(tempDir.resolve("ofi.xml"), xml, StandardCharsets.UTF_8);
+
+        XmlFileInfo info = XmlFileInfo.read(file.toFile());
+
+        assertEquals(XMLHelper.FileTypes.OFI, info.getFileType());
+        assertEquals("DOC-1", info.getDocumentId());
+        assertEquals(xml, new String(info.getContent(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Should stop reading at the first Meldungstyp once the document ID is known")
+    void testStopsAtMeldungstyp() {
+        // the rest of the file is never read, so the missing end tags do not matter
+        String xml = "<FundsXML4><ControlData><UniqueDocumentID>DOC-2</UniqueDocumentID></ControlData>" +
+                "<Funds><Fund><CountrySpecificData><AT><OeNB><Meldungstyp>OFI</Meldungstyp></OeNB></AT>" +
+                "</CountrySpecificData></Fund><Fund>";
+
+        XmlFileInfo info = XmlFileInfo.of(tempDir.resolve("big.xml").toFile(), xml.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(XMLHelper.FileTypes.OFI, info.getFileType());
+        assertEquals("DOC-2", info.getDocumentId());
+    }
+
+    @Test
+    @DisplayName("Should classify fund data without Meldungstyp and files without document ID")
+    void testFundData() {
+        String xml = "<FundsXML4><Funds><Fund><CountrySpecificData><AT><OeNB><Meldungstyp>VERMOEGEN</Meldungstyp>" +
+                "</OeNB></AT></CountrySpecificData></Fund></Funds></FundsXML4>";
+
+        XmlFileInfo info = XmlFileInfo.of(tempDir.resolve("fund.xml").toFile(), xml.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(XMLHelper.FileTypes.FUND_DATA, info.getFileType());
+        assertNull(info.getDocumentId());
+    }
+}
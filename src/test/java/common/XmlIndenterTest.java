@@ -0,0 +1,25 @@
+package common;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class XmlIndenterTest {
+
+    @Test
+    @DisplayName("Should indent nested elements and keep text content")
+    void testIndent() {
+        String indented = XmlIndenter.indent("<Funds><Fund><Name>A &amp; B</Name></Fund>\n   <Fund/></Funds>");
+
+        assertTrue(indented.contains("\n<Funds>\n  <Fund>\n    <Name>A &amp; B</Name>\n  </Fund>\n  <Fund></Fund>\n</Funds>"));
+    }
+
+    @Test
+    @DisplayName("Should return text that is not XML unchanged")
+    void testNoXml() {
+        assertEquals("ERROR: invalid user", XmlIndenter.indent("ERROR: invalid user"));
+        assertEquals("<Funds><Fund></Funds>", XmlIndenter.indent("<Funds><Fund></Funds>"));
+        assertNull(XmlIndenter.indent(null));
+    }
+}
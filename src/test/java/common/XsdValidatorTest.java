@@ -0,0 +1,74 @@
+package common;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class XsdValidatorTest {
+
+    private static final String RULE = "<FundsXML_AccessRules>" +
+            "<Task>delete</Task>" +
+            "<DataSupplier><Short>KKCA</Short><Name>Test KAG</Name>" +
+            "<Contact><Name>Test</Name><Phone>1</Phone><Email>test@example.com</Email></Contact></DataSupplier>" +
+            "<AccessRule id=\"R1\"><ContentType>%s</ContentType>" +
+            "<DataSuppliers><DataSupplier><Short>ABCD</Short></DataSupplier></DataSuppliers>" +
+            "<Profiles><Profile>all</Profile></Profiles>" +
+            "<AccessObjects><AccessObject><Fund><LEI>529900ABCDEFGHIJKL12</LEI></Fund></AccessObject></AccessObjects>" +
+            "<Schedule><AccessDelayInDays>0</AccessDelayInDays><DataAccessRange><DateFrom>2024-01-01</DateFrom>" +
+            "<DateTo>2099-12-31</DateTo><Frequency>daily</Frequency></DataAccessRange></Schedule>" +
+            "<CostsByDataSupplier>false</CostsByDataSupplier></AccessRule></FundsXML_AccessRules>";
+
+    @Test
+    @DisplayName("Should accept an access rule matching the XSD")
+    void testValid() throws Exception {
+        assertEquals(List.of(), validate(String.format(RULE, "FUND")));
+    }
+
+    @Test
+    @DisplayName("Should report the line of an access rule not matching the XSD")
+    void testInvalid() throws Exception {
+        List<String> errors = validate(String.format(RULE, "FUNDS"));
+
+        assertFalse(errors.isEmpty());
+        assertTrue(errors.get(0).startsWith("line 1, column "));
+    }
+
+    @Test
+    @DisplayName("Should skip fund data files, no FundsXML4 schema ships with the client")
+    void testNoSchema() throws Exception {
+        assertNull(XsdValidator.getSchemaName("FundsXML4"));
+        assertEquals(List.of(), XsdValidator.validate("FundsXML4",
+                new ByteArrayInputStream("<FundsXML4><Broken/></FundsXML4>".getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    @DisplayName("Should validate from several threads at once")
+    void testParallel() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<String>>> results = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                String xml = String.format(RULE, i % 2 == 0 ? "FUND" : "WRONG");
+                results.add(executor.submit(() -> validate(xml)));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals(i % 2 == 0, results.get(i).get().isEmpty());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static List<String> validate(String xml) throws Exception {
+        return XsdValidator.validate("FundsXML_AccessRules", new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,90 @@
+package dao;
+
+import common.XsdValidator;
+import model.AccessRule;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccesRightsTest {
+
+    @Test
+    @DisplayName("Should create a delete file matching the XSD")
+    void testDeleteRuleMatchesSchema() throws Exception {
+        AccessRule rule = rule("FUND");
+        rule.setDataSuppliersGivenShort(List.of("ABCD", "EFGH"));
+        rule.setAccessDelayInDays("0");
+        rule.setDateFrom("2024-01-01");
+        rule.setDateTo("2099-12-31");
+        rule.setFrequency("daily");
+        rule.setCostsByDataSupplier("false");
+
+        String xml = AccesRights.deleteRule(rule);
+
+        assertEquals(List.of(), validate(xml));
+        assertTrue(xml.contains("<Short>EFGH</Short>"));
+    }
+
+    @Test
+    @DisplayName("Should leave out empty schedule values and costs")
+    void testDeleteRuleWithoutOptionalValues() throws Exception {
+        AccessRule rule = rule("FUND");
+        rule.setAccessDelayInDays("");
+        rule.setCostsByDataSupplier("null");
+
+        String xml = AccesRights.deleteRule(rule);
+
+        assertEquals(List.of(), validate(xml));
+        assertFalse(xml.contains("Schedule"));
+        assertFalse(xml.contains("CostsByDataSupplier"));
+    }
+
+    @Test
+    @DisplayName("Should write listed and unlisted document types")
+    void testDeleteRuleWithDocumentTypes() throws Exception {
+        AccessRule rule = rule("DOC");
+        rule.setDocumentTypes(List.of("KID", "Quarterly Report"));
+
+        String xml = AccesRights.deleteRule(rule);
+
+        assertEquals(List.of(), validate(xml));
+        assertTrue(xml.contains("<ListedType>KID</ListedType>"));
+        assertTrue(xml.contains("<UnlistedType>Quarterly Report</UnlistedType>"));
+    }
+
+    @Test
+    @DisplayName("Should write regulatory reportings as Type elements")
+    void testDeleteRuleWithRegulatoryReportings() throws Exception {
+        AccessRule rule = rule("REG");
+        rule.setRegulatoryReportings(List.of("EMT", "PRIIPS"));
+
+        String xml = AccesRights.deleteRule(rule);
+
+        assertEquals(List.of(), validate(xml));
+        assertTrue(xml.contains("<Type>EMT</Type>"));
+    }
+
+    private static AccessRule rule(String contentType) {
+        AccessRule rule = new AccessRule();
+        rule.setId("R1");
+        rule.setContentType(contentType);
+        rule.setDataSupplierCreatorShort("KKCA");
+        rule.setDataSupplierCreatorName("Test KAG");
+        rule.setDataSuppliersGivenShort(List.of("ABCD"));
+        rule.setProfiles(List.of("all"));
+        rule.setLEI(List.of("529900ABCDEFGHIJKL12"));
+        rule.setOENB_ID(List.of());
+        rule.setISIN_SEGMENT(List.of());
+        rule.setISIN_SHARECLASS(List.of());
+        return rule;
+    }
+
+    private static List<String> validate(String xml) throws Exception {
+        return XsdValidator.validate("FundsXML_AccessRules", new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+    }
+}
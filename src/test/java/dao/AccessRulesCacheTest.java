@@ -0,0 +1,83 @@
+package dao;
+
+import model.AccessRule;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccessRulesCacheTest {
+
+    private static final String RULES = "<FundsXML_AccessRules>" +
+            "<AccessRule id=\"R1\"><ContentType>FUND</ContentType><AccessObjects>" +
+            "<AccessObject><Fund><LEI>LEI1</LEI></Fund></AccessObject>" +
+            "<AccessObject><ShareClass><ISIN>AT0000000001</ISIN></ShareClass></AccessObject>" +
+            "</AccessObjects></AccessRule>" +
+            "<AccessRule id=\"R2\"><ContentType>FUND</ContentType><AccessObjects>" +
+            "<AccessObject><Fund><LEI>LEI1</LEI></Fund></AccessObject>" +
+            "<AccessObject><Fund><OeNB_Identnr>123456</OeNB_Identnr></Fund></AccessObject>" +
+            "</AccessObjects></AccessRule>" +
+            "</FundsXML_AccessRules>";
+
+    private final Map<AccessRulesCache.Kind, String> replies = new EnumMap<>(AccessRulesCache.Kind.class);
+    private final AtomicInteger reads = new AtomicInteger();
+    private final AccessRulesCache cache = new AccessRulesCache(kind -> {
+        reads.incrementAndGet();
+        return replies.get(kind);
+    });
+
+    @Test
+    @DisplayName("Should download the rules once and answer lookups by ID and identifier from memory")
+    void testLookups() {
+        replies.put(AccessRulesCache.Kind.RECEIVED, RULES);
+
+        assertEquals(2, cache.getRules(AccessRulesCache.Kind.RECEIVED).size());
+        assertEquals("R2", cache.findById(AccessRulesCache.Kind.RECEIVED, "R2").orElseThrow().getId());
+        assertTrue(cache.findById(AccessRulesCache.Kind.RECEIVED, "R3").isEmpty());
+        assertEquals(2, cache.findByIdentifier(AccessRulesCache.Kind.RECEIVED, "LEI1").size());
+        assertEquals("R1", cache.findByIdentifier(AccessRulesCache.Kind.RECEIVED, "AT0000000001").get(0).getId());
+        assertEquals("R2", cache.findByIdentifier(AccessRulesCache.Kind.RECEIVED, "123456").get(0).getId());
+        assertEquals(1, reads.get());
+    }
+
+    @Test
+    @DisplayName("Should hand out copies that do not change the cached rules")
+    void testCopies() {
+        replies.put(AccessRulesCache.Kind.RECEIVED, RULES);
+
+        AccessRule rule = cache.findById(AccessRulesCache.Kind.RECEIVED, "R1").orElseThrow();
+        rule.getLEI().remove("LEI1");
+
+        assertEquals(List.of("LEI1"), cache.findById(AccessRulesCache.Kind.RECEIVED, "R1").orElseThrow().getLEI());
+    }
+
+    @Test
+    @DisplayName("Should keep the cached rules if a refresh gets an error reply")
+    void testRefreshError() {
+        replies.put(AccessRulesCache.Kind.GIVEN, RULES);
+        assertEquals(2, cache.getRules(AccessRulesCache.Kind.GIVEN).size());
+
+        replies.put(AccessRulesCache.Kind.GIVEN, "ERROR: invalid user");
+        cache.refresh(AccessRulesCache.Kind.GIVEN);
+
+        assertEquals(2, cache.getRules(AccessRulesCache.Kind.GIVEN).size());
+    }
+
+    @Test
+    @DisplayName("Should read the rules again after an invalidation")
+    void testInvalidate() {
+        replies.put(AccessRulesCache.Kind.RECEIVED, RULES);
+        cache.getRules(AccessRulesCache.Kind.RECEIVED);
+
+        replies.put(AccessRulesCache.Kind.RECEIVED, "<FundsXML_AccessRules/>");
+        cache.invalidate();
+
+        assertTrue(cache.getRules(AccessRulesCache.Kind.RECEIVED).isEmpty());
+        assertEquals(2, reads.get());
+    }
+}
@@ -0,0 +1,147 @@
+package dao;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BackupStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Should store backups per day and mode and keep identical content only once")
+    void testDeduplication() throws Exception {
+        BackupStore store = new BackupStore(tempDir);
+        LocalDateTime time = LocalDateTime.of(2025, 11, 19, 9, 15);
+
+        Path first = store.commit(temp(store, "<Journal/>"), "DOWNLOAD_JOURNAL", "PROD", "KKCA", time);
+        Path second = store.commit(temp(store, "<Journal/>"), "DOWNLOAD_JOURNAL", "PROD", "KKCA", time.plusDays(1));
+        Path other = store.commit(temp(store, "<Journal></Journal>"), "DOWNLOAD_JOURNAL", "PROD", "KKCA", time.plusDays(1));
+
+        assertEquals(first, second);
+        assertNotEquals(first, other);
+        assertEquals(tempDir.resolve("2025-11-19").resolve("DOWNLOAD_JOURNAL"), first.getParent());
+        assertTrue(first.getFileName().toString().startsWith("PROD_"));
+        assertTrue(first.getFileName().toString().endsWith(".xml.gz"));
+        assertEquals("<Journal/>", BackupStore.readString(first));
+        assertEquals(3, store.getEntries().size());
+        try (var files = Files.list(tempDir.resolve(BackupStore.TMP_DIR))) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    @DisplayName("Should keep identical content committed in parallel only once")
+    void testParallelCommit() throws Exception {
+        BackupStore store = new BackupStore(tempDir);
+        LocalDateTime time = LocalDateTime.of(2025, 11, 19, 9, 15);
+        List<Path> temps = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            temps.add(temp(store, "<FundsXML4>" + "x".repeat(100_000) + "</FundsXML4>"));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Path>> files = new ArrayList<>();
+            for (Path temp : temps) {
+                files.add(executor.submit(() -> store.commit(temp, "DOWNLOAD_FUND", "PROD", "KKCA", time)));
+            }
+            for (Future<Path> file : files) {
+                assertEquals(files.get(0).get(), file.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(8, store.getEntries().size());
+        try (var files = Files.list(tempDir.resolve("2025-11-19").resolve("DOWNLOAD_FUND"))) {
+            assertEquals(1, files.count());
+        }
+        try (var files = Files.list(tempDir.resolve(BackupStore.TMP_DIR))) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    @DisplayName("Should find the latest backup of a mode through the index after a restart")
+    void testFindLatest() throws Exception {
+        BackupStore store = new BackupStore(tempDir);
+        LocalDateTime time = LocalDateTime.of(2025, 11, 19, 9, 15);
+        store.commit(temp(store, "<A/>"), "DOWNLOAD_ACCESS_RULE", "PROD", "KKCA", time);
+        Path latest = store.commit(temp(store, "<B/>"), "DOWNLOAD_ACCESS_RULE", "PROD", "KKCA", time.plusHours(1));
+        store.commit(temp(store, "<C/>"), "DOWNLOAD_AR_ASSIGNED", "PROD", "KKCA", time.plusHours(2));
+
+        BackupStore reloaded = new BackupStore(tempDir);
+        assertEquals(latest, reloaded.findLatest("DOWNLOAD_ACCESS_RULE").orElseThrow());
+        assertEquals(3, reloaded.getEntries().size());
+        assertEquals("KKCA", reloaded.getEntries().get(0).getDataSupplier());
+    }
+
+    @Test
+    @DisplayName("Should fall back to backup files of older versions")
+    void testLegacyFiles() throws Exception {
+        Files.writeString(tempDir.resolve("2025_11_18_9_0_0__PROD_KKCA_DOWNLOAD_JOURNAL.xml"), "<old/>");
+        Path newest = Files.writeString(tempDir.resolve("2025_11_19_9_0_0__PROD_KKCA_DOWNLOAD_JOURNAL.xml"), "<new/>");
+        BackupStore store = new BackupStore(tempDir);
+
+        assertEquals(newest, store.findLatest("DOWNLOAD_JOURNAL").orElseThrow());
+        assertTrue(store.findLatest("DOWNLOAD_ACCESS_RULE").isEmpty());
+        assertTrue(new BackupStore(tempDir.resolve("missing")).findLatest("DOWNLOAD_JOURNAL").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should read compressed and plain backups through the same stream")
+    void testOpen() throws Exception {
+        BackupStore store = new BackupStore(tempDir);
+        StringBuilder xml = new StringBuilder("<Funds>");
+        for (int i = 0; i < 10_000; i++) {
+            xml.append("<Fund><Name>Fund ").append(i).append("</Name></Fund>");
+        }
+        xml.append("</Funds>");
+        Path compressed = store.commit(temp(store, xml.toString()), "DOWNLOAD_FUND", "PROD", "KKCA", LocalDateTime.now());
+        Path plain = Files.writeString(tempDir.resolve("plain.xml"), "<Funds/>");
+
+        assertTrue(Files.size(compressed) < xml.length() / 10);
+        assertEquals(xml.toString(), BackupStore.readString(compressed));
+        assertEquals(xml.length(), store.getEntries().get(0).getSize());
+        assertEquals("<Funds/>", BackupStore.readString(plain));
+        try (InputStream in = BackupStore.open(compressed)) {
+            assertTrue(in.markSupported());
+        }
+    }
+
+    @Test
+    @DisplayName("Should write and read index lines")
+    void testIndexLine() {
+        BackupStore.Entry entry = new BackupStore.Entry(LocalDateTime.of(2025, 11, 19, 9, 15, 1), "DEV", "UPLOAD_DATA_REPLY",
+                "KKCA\tOEKB", "ab12", 42, "2025-11-19/UPLOAD_DATA_REPLY/DEV_ab12.xml");
+
+        BackupStore.Entry read = BackupStore.fromLine(BackupStore.toLine(entry));
+
+        assertNotNull(read);
+        assertEquals(entry.getTime(), read.getTime());
+        assertEquals("KKCA OEKB", read.getDataSupplier());
+        assertEquals(42, read.getSize());
+        assertEquals(entry.getPath(), read.getPath());
+        assertNull(BackupStore.fromLine("broken line"));
+        assertEquals("fund_v2", BackupStore.sanitize("fund.v2.xml"));
+    }
+
+    private static Path temp(BackupStore store, String content) throws Exception {
+        return Files.writeString(store.newTempFile(), content, StandardCharsets.UTF_8);
+    }
+}
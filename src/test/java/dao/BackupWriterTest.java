@@ -0,0 +1,52 @@
+package dao;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BackupWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Should write all queued backups before flush returns")
+    void testFlush() throws Exception {
+        BackupStore store = new BackupStore(tempDir);
+        BackupWriter writer = new BackupWriter();
+        try {
+            for (int i = 0; i < 3 * BackupWriter.QUEUE_CAPACITY; i++) {
+                writer.submit(store, "DOWNLOAD_FUND", "PROD", "KKCA", ("<Fund id=\"" + i + "\"/>").getBytes(StandardCharsets.UTF_8), null);
+            }
+
+            assertTrue(writer.flush(Duration.ofSeconds(30)));
+            assertEquals(0, writer.getQueueDepth());
+            assertEquals(0, writer.getLagMillis());
+            assertEquals(3 * BackupWriter.QUEUE_CAPACITY, writer.getWrittenCount());
+            assertEquals(3 * BackupWriter.QUEUE_CAPACITY, store.getEntries().size());
+        } finally {
+            writer.shutdown(Duration.ofSeconds(5));
+        }
+    }
+
+    @Test
+    @DisplayName("Should write queued backups on shutdown and later ones in the calling thread")
+    void testShutdown() throws Exception {
+        BackupStore store = new BackupStore(tempDir);
+        BackupWriter writer = new BackupWriter();
+        writer.submit(store, "UPLOAD_DATA_REPLY", "DEV", "KKCA", "<Reply/>".getBytes(StandardCharsets.UTF_8), null);
+
+        writer.shutdown(Duration.ofSeconds(30));
+        writer.submit(store, "UPLOAD_DATA_REPLY", "DEV", "KKCA", "ERROR: late".getBytes(StandardCharsets.UTF_8), null);
+
+        assertEquals(2, store.getEntries().size());
+        assertEquals("ERROR: late", BackupStore.readString(store.findLatest("UPLOAD_DATA_REPLY").orElseThrow()));
+        assertEquals(0, writer.getFailedCount());
+    }
+}
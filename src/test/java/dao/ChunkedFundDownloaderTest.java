@@ -0,0 +1,104 @@
+package dao;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChunkedFundDownloaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Should split IDs into blocks of the request block size")
+    void testPartition() {
+        List<List<String>> chunks = ChunkedFundDownloader.partition(List.of("A", "B", "C", "D", "E"), 2);
+
+        assertEquals(3, chunks.size());
+        assertEquals(List.of("A", "B"), chunks.get(0));
+        assertEquals(List.of("E"), chunks.get(2));
+    }
+
+    @Test
+    @DisplayName("Should merge funds of all responses and add shared assets only once")
+    void testMergeFiles() throws Exception {
+        Path first = write("first.xml", "<FundsXML4><ControlData><UniqueDocumentID>1</UniqueDocumentID></ControlData>" +
+                "<Funds><Fund><Names><OfficialName>Fund A</OfficialName></Names></Fund></Funds>" +
+                "<AssetMasterData><Asset><UniqueID>X1</UniqueID></Asset></AssetMasterData></FundsXML4>");
+        Path second = write("second.xml", "<FundsXML4><ControlData><UniqueDocumentID>2</UniqueDocumentID></ControlData>" +
+                "<Funds><Fund><Names><OfficialName>Fund B</OfficialName></Names></Fund></Funds>" +
+                "<AssetMasterData><Asset><UniqueID>X1</UniqueID></Asset><Asset><UniqueID>X2</UniqueID></Asset>" +
+                "</AssetMasterData></FundsXML4>");
+        Path target = tempDir.resolve("merged.xml");
+
+        ChunkedFundDownloader.mergeFiles(List.of(first, second), target);
+        String merged = Files.readString(target, StandardCharsets.UTF_8);
+
+        assertTrue(merged.contains("Fund A"));
+        assertTrue(merged.contains("Fund B"));
+        assertEquals(1, count(merged, "<ControlData>"));
+        assertEquals(1, count(merged, "<Funds>"));
+        assertEquals(1, count(merged, "<UniqueID>X1</UniqueID>"));
+        assertEquals(1, count(merged, "<UniqueID>X2</UniqueID>"));
+    }
+
+    @Test
+    @DisplayName("Should only accept responses starting with XML")
+    void testIsValidResponse() throws Exception {
+        assertTrue(ChunkedFundDownloader.isValidResponse(write("ok.xml", "\n  <FundsXML4/>")));
+        assertFalse(ChunkedFundDownloader.isValidResponse(write("error.xml", "ERROR: invalid user")));
+        assertFalse(ChunkedFundDownloader.isValidResponse(null));
+    }
+
+    @Test
+    @DisplayName("Should report blocks that are no well-formed XML as failed instead of merging them")
+    void testMergeWithBrokenBlock() throws Exception {
+        Path first = write("first.xml", "<FundsXML4><Funds><Fund><Names><OfficialName>Fund A</OfficialName></Names></Fund></Funds></FundsXML4>");
+        Path broken = write("broken.xml", "<FundsXML4><Funds><Fund>");
+        Path third = write("third.xml", "<FundsXML4><Funds><Fund><Names><OfficialName>Fund C</OfficialName></Names></Fund></Funds></FundsXML4>");
+        List<String> failedIds = new ArrayList<>();
+
+        Path merged = ChunkedFundDownloader.merge(new BackupStore(tempDir.resolve("backup")), List.of(first, broken, third),
+                List.of(List.of("A"), List.of("B"), List.of("C")), failedIds);
+
+        assertEquals(List.of("B"), failedIds);
+        String xml = BackupStore.readString(merged);
+        assertTrue(xml.contains("Fund A"));
+        assertTrue(xml.contains("Fund C"));
+        assertTrue(ChunkedFundDownloader.isWellFormed(merged));
+    }
+
+    @Test
+    @DisplayName("Should report all blocks as failed if none can be merged")
+    void testMergeWithoutValidBlocks() throws Exception {
+        Path first = write("first.xml", "<FundsXML4><Funds>");
+        Path second = write("second.xml", "<FundsXML4><Funds>");
+        List<String> failedIds = new ArrayList<>();
+
+        Path merged = ChunkedFundDownloader.merge(new BackupStore(tempDir.resolve("backup")), List.of(first, second),
+                List.of(List.of("A"), List.of("B")), failedIds);
+
+        assertNull(merged);
+        assertEquals(List.of("A", "B"), failedIds);
+    }
+
+    private Path write(String name, String content) throws Exception {
+        return Files.writeString(tempDir.resolve(name), content, StandardCharsets.UTF_8);
+    }
+
+    private static int count(String text, String token) {
+        int count = 0;
+        for (int i = text.indexOf(token); i >= 0; i = text.indexOf(token, i + 1)) {
+            count++;
+        }
+        return count;
+    }
+}
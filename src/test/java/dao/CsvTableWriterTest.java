@@ -0,0 +1,37 @@
+package dao;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvTableWriterTest {
+
+    @Test
+    @DisplayName("Should write a BOM, the header and quote fields with separators")
+    void testWriteRows() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (CsvTableWriter writer = new CsvTableWriter(out, "Rule ID", "Creator To")) {
+            writer.writeRow("R1", "AAA;BBB");
+            writer.writeRow("R2", "say \"hi\"");
+            writer.writeRow(null, LocalDateTime.of(2025, 11, 19, 9, 15));
+        }
+
+        String csv = out.toString(StandardCharsets.UTF_8);
+        assertEquals("\uFEFFRule ID;Creator To\r\n" +
+                "R1;\"AAA;BBB\"\r\n" +
+                "R2;\"say \"\"hi\"\"\"\r\n" +
+                ";2025-11-19 09:15:00\r\n", csv);
+    }
+
+    @Test
+    @DisplayName("Should switch to CSV when the rows do not fit into an Excel sheet")
+    void testTargetFile() {
+        assertEquals("export.xlsx", WriteXLS.targetFile("export.xlsx", 100).getName());
+        assertEquals("export.csv", WriteXLS.targetFile("export.xlsx", WriteXLS.MAX_EXCEL_ROWS + 1).getName());
+    }
+}
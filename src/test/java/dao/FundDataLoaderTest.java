@@ -0,0 +1,50 @@
+package dao;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FundDataLoaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Should read rows like the former split parser")
+    void testLoad() throws Exception {
+        Path file = tempDir.resolve("isinlei.csv");
+        Files.writeString(file, "TEST_ISIN_1;My Test Fund (A);Test KAG ;TEST_OENB_1;TEST_LEI_1;ACTIVE;NO;ACTIVE\r\n" +
+                "\r\n" +
+                "TEST_ISIN_2;Too short;;;;;;\n" +
+                "TEST_ISIN_3;Third Fund (T) (IT);KAG;OENB_3;LEI_3;ISSUED;1;A;", StandardCharsets.UTF_8);
+
+        List<FundEnhancerData> rows = FundDataLoader.load(file);
+
+        assertEquals(2, rows.size());
+        assertEquals("TEST_ISIN_1", rows.get(0).getISIN());
+        assertEquals("My Test Fund", rows.get(0).getFondsbezeichnung());
+        assertEquals("Test KAG", rows.get(0).getKAG());
+        assertEquals("ACTIVE", rows.get(0).getISINStatus());
+        assertEquals("Third Fund", rows.get(1).getFondsbezeichnung());
+        assertEquals("A", rows.get(1).getISINStatus());
+    }
+
+    @Test
+    @DisplayName("Should read files that are not UTF-8 as windows-1252")
+    void testLegacyCharset() {
+        byte[] line = "AT1;Sparkasse Ober\u00f6sterreich;KAG;1;LEI;ISSUED;1;A\n".getBytes(FundDataLoader.LEGACY_CHARSET);
+
+        List<FundEnhancerData> rows = FundDataLoader.parse(ByteBuffer.wrap(line));
+
+        assertFalse(FundDataLoader.isUtf8(ByteBuffer.wrap(line)));
+        assertEquals("Sparkasse Ober\u00f6sterreich", rows.get(0).getFondsbezeichnung());
+    }
+}
@@ -8,6 +8,7 @@ import java.io.BufferedReader;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -77,5 +78,21 @@ class FundEnhancerTest {
         assertEquals("My Test Fund", fundName2);
     }
 
-    
+    @Test
+    @DisplayName("Should remove combined suffixes like (T) (IT) at load time")
+    void testNormalizeCombinedSuffixes() {
+        assertEquals("KEPLER Euro Plus Rentenfonds", FundEnhancer.normalizeFundName("KEPLER Euro Plus Rentenfonds (T) (IT)"));
+        assertEquals("VKB Vorsorge Plus", FundEnhancer.normalizeFundName("VKB Vorsorge Plus (A)(I)"));
+        assertEquals("Gutmann Strategie 365 (EUR)", FundEnhancer.normalizeFundName("Gutmann Strategie 365 (EUR) (VT)"));
+    }
+
+    @Test
+    @DisplayName("Should answer lookups from parallel threads")
+    void testParallelLookups() {
+        long found = IntStream.range(0, 10_000).parallel()
+                .mapToObj(i -> FundEnhancer.getFundNameByID(i % 2 == 0 ? "TEST_ISIN_1" : "TEST_LEI_2"))
+                .filter(name -> name.equals("My Test Fund") || name.equals("Another Fund"))
+                .count();
+        assertEquals(10_000, found);
+    }
 }
@@ -0,0 +1,64 @@
+package dao;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FundSearchIndexTest {
+
+    private final FundSearchIndex index = FundSearchIndex.build(List.of(
+            row("AT0000A0ZZB2", "VKB Vorsorge Plus", "Gutmann KAG", "8458472", "213800VCE1KZ1DYHDM67"),
+            row("AT0000A0ZZC0", "VKB Vorsorge Plus", "Gutmann KAG", "8458472", "213800VCE1KZ1DYHDM67"),
+            row("AT0000A2MKV6", "KEPLER Euro Plus Rentenfonds", "KEPLER-FONDS KAG", "8106444", "529900X81HL7TKZH1E04"),
+            row("AT0000A1Z882", "Erste Plus Aktien", "Erste Asset Management GmbH", "7525150", "")));
+
+    @Test
+    @DisplayName("Should rank an exact ID before other matches")
+    void testExactId() {
+        List<FundEnhancerData> result = index.search("at0000a2mkv6", 5, FundSearchIndex.Field.ANY);
+
+        assertEquals("AT0000A2MKV6", result.get(0).getISIN());
+    }
+
+    @Test
+    @DisplayName("Should find funds by a part of the name and rank word prefixes first")
+    void testNameSearch() {
+        List<FundEnhancerData> result = index.search("plus", 10, FundSearchIndex.Field.ANY);
+
+        assertEquals(4, result.size());
+        assertEquals("AT0000A0ZZB2", result.get(0).getISIN());
+
+        assertEquals(1, index.search("rentenf", 10, FundSearchIndex.Field.ANY).size());
+        assertTrue(index.search("xyz", 10, FundSearchIndex.Field.ANY).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should return every LEI once and skip funds without LEI")
+    void testDistinctField() {
+        List<FundEnhancerData> result = index.search("plus", 10, FundSearchIndex.Field.LEI);
+
+        assertEquals(2, result.size());
+        assertEquals("213800VCE1KZ1DYHDM67", result.get(0).getLEI());
+        assertEquals("529900X81HL7TKZH1E04", result.get(1).getLEI());
+    }
+
+    @Test
+    @DisplayName("Should answer short queries by prefix and respect the limit")
+    void testShortQuery() {
+        assertEquals(2, index.search("AT", 2, FundSearchIndex.Field.ANY).size());
+        assertEquals("KEPLER Euro Plus Rentenfonds", index.search("81", 5, FundSearchIndex.Field.OENB_ID).get(0).getFondsbezeichnung());
+    }
+
+    private static FundEnhancerData row(String isin, String name, String kag, String oenbId, String lei) {
+        FundEnhancerData data = new FundEnhancerData();
+        data.setISIN(isin);
+        data.setFondsbezeichnung(name);
+        data.setKAG(kag);
+        data.setOENB_ID(oenbId);
+        data.setLEI(lei);
+        return data;
+    }
+}
@@ -0,0 +1,83 @@
+package dao;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FundSnapshotTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Should write a snapshot and read the same index back")
+    void testRoundTrip() throws Exception {
+        Path csv = writeCsv("ISIN;ISIN-Bezeichnung;Verwaltungsgesellschaft;OeNB-Identnummer;LEI;LEI-Status;Wrapper;ISIN-Status\n" +
+                "AT0000A0ZZB2;VKB Vorsorge Plus (A)(I);Gutmann KAG;8458472;213800VCE1KZ1DYHDM67;ISSUED;2824;A;\n" +
+                "AT0000A0ZZC0;VKB Vorsorge Plus (T);Gutmann KAG;8458472;213800VCE1KZ1DYHDM67;ISSUED;2824;A;\n");
+
+        FundIndex parsed = FundSnapshot.load(csv);
+        Path snapshot = FundSnapshot.snapshotFor(csv);
+        assertTrue(Files.exists(snapshot));
+
+        FundIndex read = FundSnapshot.read(snapshot, Files.size(csv), FundSnapshot.lastModified(csv));
+        assertNotNull(read);
+        assertEquals(parsed.size(), read.size());
+        for (int i = 0; i < parsed.size(); i++) {
+            assertEquals(parsed.getRows().get(i).toString(), read.getRows().get(i).toString());
+        }
+        assertEquals(2, read.lookup("213800VCE1KZ1DYHDM67").size());
+        assertEquals("VKB Vorsorge Plus", read.lookup("AT0000A0ZZB2").get(0).getFondsbezeichnung());
+        assertSame(read.getRows().get(1).getKAG(), read.getRows().get(2).getKAG());
+    }
+
+    @Test
+    @DisplayName("Should ignore a snapshot of another CSV version")
+    void testOutdatedSnapshot() throws Exception {
+        Path csv = writeCsv("AT1;Fund One;KAG;1;LEI1;ISSUED;1;A\n");
+        FundSnapshot.load(csv);
+
+        writeCsv("AT1;Fund One;KAG;1;LEI1;ISSUED;1;A\nAT2;Fund Two;KAG;2;LEI2;ISSUED;1;A\n");
+
+        assertNull(FundSnapshot.read(FundSnapshot.snapshotFor(csv), Files.size(csv), FundSnapshot.lastModified(csv)));
+        assertEquals(2, FundSnapshot.load(csv).size());
+    }
+
+    @Test
+    @DisplayName("Should ignore a snapshot of a CSV with the same size but another modification time")
+    void testModifiedSnapshot() throws Exception {
+        Path csv = writeCsv("AT1;Fund One;KAG;1;LEI1;ISSUED;1;A\n");
+        FundSnapshot.load(csv);
+
+        writeCsv("AT2;Fund Two;KAG;2;LEI2;ISSUED;1;A\n");
+        Files.setLastModifiedTime(csv, FileTime.fromMillis(FundSnapshot.lastModified(csv) + 2000));
+
+        assertNull(FundSnapshot.read(FundSnapshot.snapshotFor(csv), Files.size(csv), FundSnapshot.lastModified(csv)));
+        assertEquals("AT2", FundSnapshot.load(csv).getRows().get(0).getISIN());
+    }
+
+    @Test
+    @DisplayName("Should keep the snapshot replaceable after reading it")
+    void testSnapshotReplaceable() throws Exception {
+        Path csv = writeCsv("AT1;Fund One;KAG;1;LEI1;ISSUED;1;A\n");
+        FundIndex index = FundSnapshot.load(csv);
+        Path snapshot = FundSnapshot.snapshotFor(csv);
+
+        assertNotNull(FundSnapshot.read(snapshot, Files.size(csv), FundSnapshot.lastModified(csv)));
+        FundSnapshot.write(snapshot, index, Files.size(csv), FundSnapshot.lastModified(csv));
+        Files.delete(snapshot);
+
+        assertFalse(Files.exists(snapshot));
+    }
+
+    private Path writeCsv(String content) throws Exception {
+        return Files.writeString(tempDir.resolve("isinlei.csv"), content, StandardCharsets.UTF_8);
+    }
+}
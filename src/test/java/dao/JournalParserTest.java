@@ -0,0 +1,70 @@
+package dao;
+
+import model.JournalEntry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JournalParserTest {
+
+    private static final String JOURNAL = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+            "<FundsXML_Journal><CreationTime>2025-11-19T14:30:00</CreationTime>" +
+            "<JournalEntry><Action>UL</Action><Type>FXML_DATA</Type>" +
+            "<DataSupplier><Short>FUM</Short><Name>Fund Management AG</Name></DataSupplier>" +
+            "<User>max.mustermann@fum.at</User><ActionTime>2025-11-19T09:15:23</ActionTime>" +
+            "<Upload><Status>OK</Status><UniqueDocumentID>FUM_20251119_001</UniqueDocumentID></Upload>" +
+            "</JournalEntry>" +
+            "<JournalEntry><Action>DL</Action><Type>FXML_DATA</Type>" +
+            "<DataSupplier><Short>3BA</Short></DataSupplier>" +
+            "<Download><Data IsEmpty=\"true\"/><Data IsEmpty=\"false\"/></Download>" +
+            "</JournalEntry>" +
+            "<JournalEntry><Action>XX</Action></JournalEntry>" +
+            "</FundsXML_Journal>";
+
+    @Test
+    @DisplayName("Should read all journal entries in document order")
+    void testParse() throws Exception {
+        List<JournalEntry> entries = new ArrayList<>();
+        int count = JournalParser.parse(new ByteArrayInputStream(JOURNAL.getBytes(StandardCharsets.UTF_8)), entries::add);
+
+        assertEquals(3, count);
+        assertEquals(3, entries.size());
+
+        JournalEntry upload = entries.get(0);
+        assertEquals(JournalEntry.ActionType.UL, upload.getAction());
+        assertEquals(JournalEntry.JournalType.FXML_DATA, upload.getType());
+        assertEquals("FUM", upload.getDataSupplier());
+        assertEquals("max.mustermann@fum.at", upload.getUserName());
+        assertEquals(LocalDateTime.of(2025, 11, 19, 9, 15, 23), upload.getTimestamp());
+        assertEquals("Status: OK", upload.getDetails());
+        assertEquals("FUM_20251119_001", upload.getUniqueId());
+        assertFalse(upload.isEmpty());
+
+        JournalEntry download = entries.get(1);
+        assertEquals(JournalEntry.ActionType.DL, download.getAction());
+        assertEquals("3BA", download.getDataSupplier());
+        assertEquals("", download.getUserName());
+        assertTrue(download.isEmpty());
+        assertEquals("Empty download (no data available)", download.getDetails());
+
+        assertNull(entries.get(2).getAction());
+    }
+
+    @Test
+    @DisplayName("Should return no entries for a journal without entries")
+    void testEmptyJournal() throws Exception {
+        List<JournalEntry> entries = new ArrayList<>();
+        int count = JournalParser.parse(new ByteArrayInputStream(
+                "<FundsXML_Journal/>".getBytes(StandardCharsets.UTF_8)), entries::add);
+
+        assertEquals(0, count);
+        assertTrue(entries.isEmpty());
+    }
+}
@@ -0,0 +1,102 @@
+package dao;
+
+import model.JournalEntry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JournalStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final List<LocalDateTime> requestedFrom = new ArrayList<>();
+
+    @Test
+    @DisplayName("Should only download entries newer than the last synced action time")
+    void testDeltaSync() throws Exception {
+        Path store = tempDir.resolve("store");
+        JournalStore journalStore = new JournalStore(store);
+        journalStore.sync(LocalDate.of(2025, 11, 1), true, source(
+                entry("UL", "2025-11-18T09:00:00", "DOC_1"),
+                entry("DL", "2025-11-19T10:00:00", "DOC_2")));
+        assertEquals(2, journalStore.size());
+
+        journalStore.sync(LocalDate.of(2025, 11, 1), true, source(
+                entry("DL", "2025-11-19T10:00:00", "DOC_2"),
+                entry("UL", "2025-11-20T08:00:00", "DOC_3")));
+
+        assertEquals(LocalDateTime.of(2025, 11, 1, 0, 0), requestedFrom.get(0));
+        assertEquals(LocalDateTime.of(2025, 11, 19, 0, 0), requestedFrom.get(1));
+        assertEquals(3, journalStore.size());
+
+        // a new instance reads the appended entries and does not sync again within the interval
+        JournalStore reopened = new JournalStore(store);
+        reopened.sync(LocalDate.of(2025, 11, 1), false, source());
+        assertEquals(2, requestedFrom.size());
+        assertEquals(3, reopened.size());
+    }
+
+    @Test
+    @DisplayName("Should answer filter queries from the local entries")
+    void testQuery() throws Exception {
+        JournalStore journalStore = new JournalStore(tempDir.resolve("store"));
+        journalStore.sync(null, true, source(
+                entry("UL", "2025-11-18T09:00:00", "DOC_1"),
+                entry("DL", "2025-11-19T10:00:00", "DOC_2"),
+                entry("UL", "2025-11-20T08:00:00", "DOC_3")));
+
+        List<JournalEntry> uploads = journalStore.query(null, null, "UL", null, true);
+        assertEquals(2, uploads.size());
+        assertEquals("DOC_1", uploads.get(0).getUniqueId());
+
+        List<JournalEntry> range = journalStore.query(LocalDateTime.of(2025, 11, 19, 0, 0),
+                LocalDateTime.of(2025, 11, 19, 23, 59, 59), null, null, true);
+        assertEquals(1, range.size());
+        assertEquals("DOC_2", range.get(0).getUniqueId());
+    }
+
+    @Test
+    @DisplayName("Should keep all fields when writing and reading a store line")
+    void testLineRoundTrip() {
+        JournalEntry entry = new JournalEntry();
+        entry.setTimestamp(LocalDateTime.of(2025, 11, 19, 10, 0));
+        entry.setAction(JournalEntry.ActionType.DL);
+        entry.setType(JournalEntry.JournalType.FXML_DATA);
+        entry.setUserName("anna\tschmidt");
+        entry.setDetails("line1\nline2 \\ end");
+        entry.setEmpty(true);
+
+        JournalEntry read = JournalStore.fromLine(JournalStore.toLine(entry));
+
+        assertNotNull(read);
+        assertEquals(JournalStore.key(entry), JournalStore.key(read));
+        assertNull(read.getDataSupplier());
+        assertTrue(read.isEmpty());
+    }
+
+    private JournalStore.JournalSource source(String... entries) {
+        return (from, to) -> {
+            requestedFrom.add(from);
+            Path file = tempDir.resolve("journal_" + requestedFrom.size() + ".xml");
+            return Files.writeString(file, "<FundsXML_Journal>" + String.join("", entries) + "</FundsXML_Journal>",
+                    StandardCharsets.UTF_8);
+        };
+    }
+
+    private static String entry(String action, String actionTime, String documentId) {
+        return "<JournalEntry><Action>" + action + "</Action><Type>FXML_DATA</Type><User>u</User>" +
+                "<ActionTime>" + actionTime + "</ActionTime>" +
+                "<Upload><UniqueDocumentID>" + documentId + "</UniqueDocumentID></Upload></JournalEntry>";
+    }
+}
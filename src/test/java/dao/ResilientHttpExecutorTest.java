@@ -0,0 +1,157 @@
+package dao;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.hc.client5.http.classic.methods.HttpPost;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the retry and circuit breaker behaviour against a local stub HTTP server.
+ */
+class ResilientHttpExecutorTest {
+
+    private HttpServer server;
+    private CloseableHttpClient httpClient;
+    private final Deque<Integer> statusCodes = new ArrayDeque<>();
+    private final AtomicInteger requests = new AtomicInteger();
+    private String serverUrl;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            requests.incrementAndGet();
+            exchange.getRequestBody().readAllBytes();
+            Integer status;
+            synchronized (statusCodes) {
+                status = statusCodes.isEmpty() ? 200 : statusCodes.poll();
+            }
+            byte[] body = ("<Reply status='" + status + "'/>").getBytes(StandardCharsets.UTF_8);
+            if (status == 503) {
+                exchange.getResponseHeaders().add("Retry-After", "0");
+            }
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        serverUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/fdp";
+        httpClient = HttpClients.custom().disableAutomaticRetries().build();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        httpClient.close();
+        server.stop(0);
+    }
+
+    private static RetryPolicy fastPolicy() {
+        RetryPolicy policy = new RetryPolicy();
+        policy.setInitialBackoff(Duration.ofMillis(5));
+        policy.setMaxBackoff(Duration.ofMillis(20));
+        return policy;
+    }
+
+    private String send(ResilientHttpExecutor executor, ResilientHttpExecutor.RequestType type) throws IOException {
+        return executor.execute(httpClient, new HttpPost(serverUrl), type,
+                response -> EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Should retry downloads on 503 and 502 until the server answers")
+    void testDownload_RetriesTransientErrors() throws Exception {
+        statusCodes.addAll(java.util.List.of(503, 502));
+
+        String reply = send(new ResilientHttpExecutor(fastPolicy()), ResilientHttpExecutor.RequestType.DOWNLOAD);
+
+        assertEquals("<Reply status='200'/>", reply);
+        assertEquals(3, requests.get());
+    }
+
+    @Test
+    @DisplayName("Should not retry uploads on 502 because the server may have processed them")
+    void testUpload_NoRetryOnGatewayError() throws Exception {
+        statusCodes.add(502);
+
+        String reply = send(new ResilientHttpExecutor(fastPolicy()), ResilientHttpExecutor.RequestType.UPLOAD);
+
+        assertEquals("<Reply status='502'/>", reply);
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    @DisplayName("Should retry uploads the server refused with 503")
+    void testUpload_RetriesOnServiceUnavailable() throws Exception {
+        statusCodes.add(503);
+
+        send(new ResilientHttpExecutor(fastPolicy()), ResilientHttpExecutor.RequestType.UPLOAD);
+
+        assertEquals(2, requests.get());
+    }
+
+    @Test
+    @DisplayName("Should open the circuit after repeated failures and fail fast")
+    void testCircuitBreaker_Opens() throws Exception {
+        RetryPolicy policy = fastPolicy();
+        policy.setMaxAttempts(2);
+        policy.setFailureThreshold(2);
+        ResilientHttpExecutor executor = new ResilientHttpExecutor(policy);
+        statusCodes.addAll(java.util.List.of(503, 503, 503, 503));
+
+        send(executor, ResilientHttpExecutor.RequestType.DOWNLOAD);
+        assertEquals(CircuitBreaker.State.CLOSED, executor.getCircuitBreaker(serverUrl).getState());
+        send(executor, ResilientHttpExecutor.RequestType.DOWNLOAD);
+        int requestsBefore = requests.get();
+
+        assertThrows(CircuitBreaker.CircuitOpenException.class,
+                () -> send(executor, ResilientHttpExecutor.RequestType.DOWNLOAD));
+        assertEquals(requestsBefore, requests.get());
+        assertEquals(CircuitBreaker.State.OPEN, executor.getCircuitBreaker(serverUrl).getState());
+    }
+
+    @Test
+    @DisplayName("Should count the retries of one request as one failure")
+    void testCircuitBreaker_CountsRequests() throws Exception {
+        RetryPolicy policy = fastPolicy();
+        policy.setMaxAttempts(4);
+        policy.setFailureThreshold(2);
+        ResilientHttpExecutor executor = new ResilientHttpExecutor(policy);
+        statusCodes.addAll(java.util.List.of(503, 503, 503, 503, 503, 503, 503));
+
+        send(executor, ResilientHttpExecutor.RequestType.DOWNLOAD);
+        assertEquals(4, requests.get());
+        assertEquals(CircuitBreaker.State.CLOSED, executor.getCircuitBreaker(serverUrl).getState());
+
+        // three failed attempts, then an answer: a success that resets the count
+        assertEquals("<Reply status='200'/>", send(executor, ResilientHttpExecutor.RequestType.DOWNLOAD));
+        assertEquals(CircuitBreaker.State.CLOSED, executor.getCircuitBreaker(serverUrl).getState());
+    }
+
+    @Test
+    @DisplayName("Should parse Retry-After as seconds and as HTTP date")
+    void testParseRetryAfter() {
+        Instant now = Instant.parse("2025-01-01T10:00:00Z");
+
+        assertEquals(120_000, ResilientHttpExecutor.parseRetryAfter("120", now));
+        assertEquals(30_000, ResilientHttpExecutor.parseRetryAfter("Wed, 01 Jan 2025 10:00:30 GMT", now));
+        assertEquals(0, ResilientHttpExecutor.parseRetryAfter("soon", now));
+    }
+}
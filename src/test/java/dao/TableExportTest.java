@@ -0,0 +1,84 @@
+package dao;
+
+import model.JournalEntry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TableExportTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Should write the journal columns as CSV")
+    void testExportCsv() throws Exception {
+        File file = TableExport.export(tempDir.resolve("journal.csv").toFile(), "Journal",
+                List.of(entry("U1")), TableExport.JOURNAL, null);
+
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        assertEquals(2, lines.size());
+        assertEquals("\uFEFFTimestamp;Action;Type;Username;Data Supplier;Unique ID;Details;Is Empty", lines.get(0));
+        assertTrue(lines.get(1).startsWith("2025-11-19 09:15:00;"));
+        assertTrue(lines.get(1).contains(";U1;"));
+    }
+
+    @Test
+    @DisplayName("Should compress files ending with .csv.gz")
+    void testExportCompressed() throws Exception {
+        File file = TableExport.export(tempDir.resolve("journal.csv.gz").toFile(), "Journal",
+                List.of(entry("U1"), entry("U2")), TableExport.JOURNAL, null);
+
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file.toPath()))) {
+            String csv = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            assertEquals(3, csv.split("\r\n").length);
+            assertTrue(csv.contains(";U2;"));
+        }
+    }
+
+    @Test
+    @DisplayName("Should report progress and remove the file of a cancelled export")
+    void testCancel() {
+        List<JournalEntry> rows = new ArrayList<>();
+        for (int i = 0; i < 3 * TableExport.PROGRESS_STEP; i++) {
+            rows.add(entry("U" + i));
+        }
+        File file = tempDir.resolve("cancelled.csv").toFile();
+        List<Long> updates = new ArrayList<>();
+
+        assertThrows(CancellationException.class, () -> TableExport.export(file, "Journal", rows, TableExport.JOURNAL,
+                new TableExport.Progress() {
+                    @Override
+                    public void update(long done, long total) {
+                        updates.add(done);
+                    }
+
+                    @Override
+                    public boolean isCancelled() {
+                        return updates.size() == 2;
+                    }
+                }));
+        assertEquals(List.of(0L, (long) TableExport.PROGRESS_STEP), updates);
+        assertFalse(file.exists());
+    }
+
+    private static JournalEntry entry(String uniqueId) {
+        JournalEntry entry = new JournalEntry(LocalDateTime.of(2025, 11, 19, 9, 15),
+                JournalEntry.ActionType.values()[0], JournalEntry.JournalType.values()[0]);
+        entry.setUniqueId(uniqueId);
+        return entry;
+    }
+}
@@ -0,0 +1,45 @@
+package dao;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UploadDeduplicatorTest {
+
+    @Test
+    @DisplayName("Should block a document only while its upload is running")
+    void testBeginFinish() {
+        UploadDeduplicator deduplicator = new UploadDeduplicator();
+
+        assertTrue(deduplicator.begin("DOC-1"));
+        assertFalse(deduplicator.begin("DOC-1"));
+        assertTrue(deduplicator.begin("DOC-2"));
+
+        deduplicator.finish("DOC-1");
+        // a corrected file with the same ID has to reach the server again
+        assertTrue(deduplicator.begin("DOC-1"));
+    }
+
+    @Test
+    @DisplayName("Should never block documents without ID")
+    void testWithoutId() {
+        UploadDeduplicator deduplicator = new UploadDeduplicator();
+
+        assertTrue(deduplicator.begin(null));
+        assertTrue(deduplicator.begin(null));
+        deduplicator.finish(null);
+    }
+
+    @Test
+    @DisplayName("Should read the UniqueDocumentID from the beginning of the file")
+    void testReadDocumentId() {
+        byte[] content = ("<FundsXML4><ControlData><UniqueDocumentID> ID-42 </UniqueDocumentID></ControlData>" +
+                "</FundsXML4>").getBytes(StandardCharsets.UTF_8);
+
+        assertEquals("ID-42", UploadDeduplicator.readDocumentId(content));
+        assertNull(UploadDeduplicator.readDocumentId("no xml".getBytes(StandardCharsets.UTF_8)));
+    }
+}
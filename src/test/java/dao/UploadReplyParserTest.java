@@ -0,0 +1,124 @@
+package dao;
+
+import model.UploadReply;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UploadReplyParserTest {
+
+    @Test
+    @DisplayName("Should parse document status infos and overall status")
+    void testParse_DocumentReply() {
+        String xml = "<FundsXML_Reply><DataSupplier><Short>CAP</Short><Name>Capital</Name></DataSupplier>" +
+                "<Document><ContentDate>2025-11-19</ContentDate><UniqueDocumentID>CAP_1</UniqueDocumentID>" +
+                "<StatusInfos><StatusInfo><Status>ERROR</Status><Message>Invalid ISIN</Message>" +
+                "<Context>ISIN: AT000INVALID</Context><Kategorie>VALIDATION</Kategorie></StatusInfo>" +
+                "<StatusInfo><Status>OK_INFO</Status><Message>Name updated</Message></StatusInfo></StatusInfos>" +
+                "</Document><OverallStatus>ERROR</OverallStatus></FundsXML_Reply>";
+
+        UploadReply reply = UploadReplyParser.parse(xml);
+
+        assertNotNull(reply);
+        assertEquals("CAP", reply.getDataSupplierShort());
+        assertEquals("Capital", reply.getDataSupplierName());
+        assertEquals(LocalDate.of(2025, 11, 19), reply.getContentDate());
+        assertEquals("CAP_1", reply.getUniqueDocumentId());
+        assertEquals(UploadReply.OverallStatus.ERROR, reply.getOverallStatus());
+        assertEquals(1, reply.getErrorCount());
+        assertEquals("VALIDATION", reply.getStatusInfos().get(0).getKategorie());
+    }
+
+    @Test
+    @DisplayName("Should parse access rule element statuses")
+    void testParse_AccessRuleReply() {
+        String xml = "<FundsXML_Reply><AccessRules><AccessRule><RuleID>AR-1</RuleID><ElementStatuses>" +
+                "<ElementStatus><Status>ERROR</Status><Message>Grantee not found</Message></ElementStatus>" +
+                "</ElementStatuses></AccessRule></AccessRules><OverallStatus>OK_INFOS</OverallStatus></FundsXML_Reply>";
+
+        UploadReply reply = UploadReplyParser.parse(xml);
+
+        assertNotNull(reply);
+        assertEquals(1, reply.getAccessRuleStatuses().size());
+        assertEquals("AR-1", reply.getAccessRuleStatuses().get(0).getRuleId());
+        assertTrue(reply.getAccessRuleStatuses().get(0).hasErrors());
+    }
+
+    @Test
+    @DisplayName("Should return null for error messages and other documents")
+    void testParse_NoReply() {
+        assertNull(UploadReplyParser.parse("ERROR: Connection refused"));
+        assertNull(UploadReplyParser.parse("<FundsXML4/>"));
+        assertNull(UploadReplyParser.parse(""));
+    }
+
+    @Test
+    @DisplayName("Should keep only the first errors but count all of them")
+    void testParse_FirstNErrors() {
+        UploadReply reply = UploadReplyParser.parse(largeReply(50), UploadReplyParser.Mode.FIRST_N_ERRORS, 10);
+
+        assertNotNull(reply);
+        assertEquals(10, reply.getStatusInfos().size());
+        assertTrue(reply.getStatusInfos().stream().allMatch(UploadReply.StatusInfo::isError));
+        assertEquals("Error 0", reply.getStatusInfos().get(0).getMessage());
+        assertEquals(50, reply.getErrorCount());
+        assertEquals(50, reply.getInfoCount());
+        assertTrue(reply.isTruncated());
+    }
+
+    @Test
+    @DisplayName("Should not mark a reply as truncated if only infos were dropped")
+    void testParse_FirstNErrorsWithoutErrors() {
+        String xml = "<FundsXML_Reply><Document><UniqueDocumentID>CAP_1</UniqueDocumentID><StatusInfos>" +
+                "<StatusInfo><Status>INFO</Status><Message>Info 0</Message></StatusInfo>" +
+                "<StatusInfo><Status>OK</Status><Message>Imported</Message></StatusInfo>" +
+                "</StatusInfos></Document><OverallStatus>OK_INFOS</OverallStatus></FundsXML_Reply>";
+
+        UploadReply reply = UploadReplyParser.parse(xml, UploadReplyParser.Mode.FIRST_N_ERRORS, 10);
+
+        assertNotNull(reply);
+        assertTrue(reply.getStatusInfos().isEmpty());
+        assertEquals(0, reply.getErrorCount());
+        assertEquals(1, reply.getInfoCount());
+        assertFalse(reply.isTruncated());
+    }
+
+    @Test
+    @DisplayName("Should keep no statuses in summary mode")
+    void testParse_SummaryOnly() {
+        UploadReply reply = UploadReplyParser.parse(largeReply(20), UploadReplyParser.Mode.SUMMARY_ONLY, 0);
+
+        assertNotNull(reply);
+        assertTrue(reply.getStatusInfos().isEmpty());
+        assertEquals(20, reply.getErrorCount());
+        assertEquals("CAP_1", reply.getUniqueDocumentId());
+        assertEquals(UploadReply.OverallStatus.ERROR, reply.getOverallStatus());
+        assertTrue(reply.isTruncated());
+    }
+
+    @Test
+    @DisplayName("Should still see access rule errors that were not kept")
+    void testParse_AccessRuleSummary() {
+        String xml = "<FundsXML_Reply><AccessRules><AccessRule><RuleID>AR-1</RuleID><ElementStatuses>" +
+                "<ElementStatus><Status>ERROR</Status><Message>Grantee not found</Message></ElementStatus>" +
+                "</ElementStatuses></AccessRule></AccessRules><OverallStatus>ERROR</OverallStatus></FundsXML_Reply>";
+
+        UploadReply reply = UploadReplyParser.parse(xml, UploadReplyParser.Mode.SUMMARY_ONLY, 0);
+
+        assertNotNull(reply);
+        assertTrue(reply.getAccessRuleStatuses().get(0).getElementStatuses().isEmpty());
+        assertTrue(reply.getAccessRuleStatuses().get(0).hasErrors());
+    }
+
+    private static String largeReply(int errors) {
+        StringBuilder xml = new StringBuilder("<FundsXML_Reply><Document><UniqueDocumentID>CAP_1</UniqueDocumentID><StatusInfos>");
+        for (int i = 0; i < errors; i++) {
+            xml.append("<StatusInfo><Status>INFO</Status><Message>Info ").append(i).append("</Message></StatusInfo>");
+            xml.append("<StatusInfo><Status>ERROR</Status><Message>Error ").append(i).append("</Message></StatusInfo>");
+        }
+        return xml.append("</StatusInfos></Document><OverallStatus>ERROR</OverallStatus></FundsXML_Reply>").toString();
+    }
+}
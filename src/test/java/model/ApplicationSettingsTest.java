@@ -0,0 +1,118 @@
+package model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ApplicationSettingsTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Should keep a snapshot unchanged when the settings change")
+    void testSnapshotImmutable() throws Exception {
+        ApplicationSettings settings = new ApplicationSettings();
+        settings.setOekbUserName("first");
+        assertTrue(settings.saveSettingsDataToFile(file()));
+        ApplicationSettings.Snapshot first = settings.getSnapshot();
+
+        settings.setOekbUserName("second");
+        assertSame(first, settings.getSnapshot());
+        assertEquals("first", settings.getOekbUserName());
+
+        assertTrue(settings.saveSettingsDataToFile(file()));
+        assertEquals("first", first.getOekbUserName());
+        assertEquals("second", settings.getSnapshot().getOekbUserName());
+    }
+
+    @Test
+    @DisplayName("Should count up the version with every published snapshot")
+    void testVersion() throws Exception {
+        ApplicationSettings settings = new ApplicationSettings();
+        assertEquals(0, settings.getSnapshot().getVersion());
+
+        settings.saveSettingsDataToFile(file());
+        assertEquals(1, settings.getSnapshot().getVersion());
+        settings.saveSettingsDataToFile(file());
+        assertEquals(2, settings.getSnapshot().getVersion());
+    }
+
+    @Test
+    @DisplayName("Should only parse the settings file again when it changed")
+    void testReadUnchangedFile() throws Exception {
+        ApplicationSettings settings = new ApplicationSettings();
+        settings.setOekbUserName("user");
+        settings.saveSettingsDataToFile(file());
+        ApplicationSettings.Snapshot saved = settings.getSnapshot();
+
+        settings.readSettingsFromFile(file());
+        assertSame(saved, settings.getSnapshot());
+
+        Path path = Path.of(file());
+        Files.writeString(path, Files.readString(path).replace("<OeKBUserName>user<", "<OeKBUserName>other user<"));
+        Files.setLastModifiedTime(path, FileTime.fromMillis(Files.getLastModifiedTime(path).toMillis() + 2000));
+
+        settings.readSettingsFromFile(file());
+        assertEquals(saved.getVersion() + 1, settings.getSnapshot().getVersion());
+        assertEquals("other user", settings.getOekbUserName());
+    }
+
+    @Test
+    @DisplayName("Should notify the listeners of every new snapshot")
+    void testListener() throws Exception {
+        ApplicationSettings settings = new ApplicationSettings();
+        List<long[]> changes = new ArrayList<>();
+        ApplicationSettings.ChangeListener listener =
+                (oldSettings, newSettings) -> changes.add(new long[]{oldSettings.getVersion(), newSettings.getVersion()});
+        settings.addChangeListener(listener);
+
+        settings.saveSettingsDataToFile(file());
+        settings.readSettingsFromFile(file());
+        assertEquals(1, changes.size());
+        assertEquals(0, changes.get(0)[0]);
+        assertEquals(1, changes.get(0)[1]);
+
+        settings.removeChangeListener(listener);
+        settings.saveSettingsDataToFile(file());
+        assertEquals(1, changes.size());
+    }
+
+    @Test
+    @DisplayName("Should notify the listeners without holding the settings lock")
+    void testListenerWithoutLock() throws Exception {
+        ApplicationSettings settings = new ApplicationSettings();
+        AtomicBoolean readInOtherThread = new AtomicBoolean();
+        settings.addChangeListener((oldSettings, newSettings) -> {
+            // e.g. a listener handing the new settings to a worker that reads them again
+            Thread worker = new Thread(() -> {
+                settings.readSettingsFromFile(file());
+                readInOtherThread.set(true);
+            });
+            worker.setDaemon(true);
+            worker.start();
+            try {
+                worker.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        settings.saveSettingsDataToFile(file());
+
+        assertTrue(readInOtherThread.get());
+    }
+
+    private String file() {
+        return tempDir.resolve("settings.xml").toString();
+    }
+}